@@ -0,0 +1,3 @@
+package alpha;
+
+public class Alpha {}
@@ -0,0 +1,12 @@
+package alpha;
+
+import org.junit.jupiter.api.Test;
+
+class AlphaTests {
+
+  @Test
+  void first() {}
+
+  @Test
+  void second() {}
+}
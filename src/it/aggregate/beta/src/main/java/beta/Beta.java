@@ -0,0 +1,3 @@
+package beta;
+
+public class Beta {}
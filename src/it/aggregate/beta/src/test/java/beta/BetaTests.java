@@ -0,0 +1,16 @@
+package beta;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+class BetaTests {
+
+  @Test
+  void slow() throws Exception {
+    Thread.sleep(200);
+  }
+
+  @Test
+  @Disabled
+  void skipped() {}
+}
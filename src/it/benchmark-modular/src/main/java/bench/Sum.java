@@ -0,0 +1,12 @@
+package bench;
+
+class Sum {
+
+  static long sum(int size) {
+    long sum = 0;
+    for (int i = 0; i < size; i++) {
+      sum += i;
+    }
+    return sum;
+  }
+}
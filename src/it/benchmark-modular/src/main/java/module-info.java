@@ -0,0 +1,3 @@
+module bench {
+  exports bench;
+}
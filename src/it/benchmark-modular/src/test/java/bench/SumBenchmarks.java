@@ -0,0 +1,23 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@Warmup(time = 100, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(time = 100, timeUnit = TimeUnit.MILLISECONDS)
+public class SumBenchmarks {
+
+  @Param({"10", "100"})
+  public int size;
+
+  @Benchmark
+  public long sum() {
+    return Sum.sum(size);
+  }
+}
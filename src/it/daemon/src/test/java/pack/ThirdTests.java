@@ -0,0 +1,17 @@
+package pack;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class ThirdTests {
+
+  @Test
+  void third() {}
+
+  @Nested
+  class NestedTests {
+
+    @Test
+    void nested() {}
+  }
+}
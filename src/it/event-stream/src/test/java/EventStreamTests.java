@@ -0,0 +1,18 @@
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+class EventStreamTests {
+
+  @Test
+  void successful() {}
+
+  @Test
+  void aborted() {
+    Assumptions.assumeTrue(false, "aborted on purpose");
+  }
+
+  @Test
+  @Disabled("skipped on purpose")
+  void skipped() {}
+}
@@ -0,0 +1,12 @@
+import static org.junit.jupiter.api.Assertions.fail;
+
+import org.junit.jupiter.api.Test;
+
+class FailingTests {
+
+  @Test
+  void fails() throws Exception {
+    Thread.sleep(2000);
+    fail("failed on purpose");
+  }
+}
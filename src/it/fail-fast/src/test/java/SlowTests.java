@@ -0,0 +1,9 @@
+import org.junit.jupiter.api.Test;
+
+class SlowTests {
+
+  @Test
+  void slow() throws Exception {
+    Thread.sleep(60_000);
+  }
+}
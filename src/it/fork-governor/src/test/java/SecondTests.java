@@ -0,0 +1,9 @@
+import org.junit.jupiter.api.Test;
+
+class SecondTests {
+
+  @Test
+  void second() {}
+
+  class Inner {}
+}
@@ -0,0 +1,11 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class GreeterTests {
+
+  @Test
+  void greet() {
+    assertEquals("Hello World", Greeter.greet("World"));
+  }
+}
@@ -0,0 +1,7 @@
+import org.junit.jupiter.api.Test;
+
+class FirstTests {
+
+  @Test
+  void first() {}
+}
@@ -0,0 +1,9 @@
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("fast")
+class FastTests {
+
+  @Test
+  void fast() {}
+}
@@ -0,0 +1,12 @@
+import org.junit.jupiter.api.Test;
+
+class SecondTests {
+
+  @Test
+  void slow() throws Exception {
+    Thread.sleep(1500);
+  }
+
+  @Test
+  void fast() {}
+}
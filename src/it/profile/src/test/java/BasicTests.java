@@ -0,0 +1,17 @@
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+class BasicTests {
+
+  @Test
+  void test() {
+    var end = System.nanoTime() + 500_000_000L;
+    var list = new ArrayList<String>();
+    while (System.nanoTime() < end) {
+      list.add(String.valueOf(Math.random()));
+      if (list.size() > 10_000) {
+        list.clear();
+      }
+    }
+  }
+}
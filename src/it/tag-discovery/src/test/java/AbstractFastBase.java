@@ -0,0 +1,4 @@
+import org.junit.jupiter.api.Tag;
+
+@Tag("fast")
+abstract class AbstractFastBase {}
@@ -0,0 +1,8 @@
+import org.junit.jupiter.api.Test;
+
+@Fast
+class ComposedTests {
+
+  @Test
+  void composed() {}
+}
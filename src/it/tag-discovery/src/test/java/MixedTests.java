@@ -0,0 +1,12 @@
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class MixedTests {
+
+  @Test
+  @Tag("fast")
+  void fast() {}
+
+  @Test
+  void untagged() {}
+}
@@ -0,0 +1,14 @@
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class NestedTests {
+
+  @Nested
+  @Tag("fast")
+  class Inner {
+
+    @Test
+    void nested() {}
+  }
+}
@@ -0,0 +1,9 @@
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("slow")
+class SlowTests {
+
+  @Test
+  void slow() {}
+}
@@ -0,0 +1,7 @@
+import org.junit.jupiter.api.Test;
+
+class UntaggedTests {
+
+  @Test
+  void untagged() {}
+}
@@ -0,0 +1,7 @@
+import org.junit.jupiter.api.Test;
+
+class BasicTests {
+
+  @Test
+  void test() {}
+}
@@ -0,0 +1,7 @@
+package app;
+
+public class Counter {
+  public int count() {
+    return 1;
+  }
+}
@@ -0,0 +1,7 @@
+package app;
+
+public class Greeter {
+  public String greet() {
+    return "hello";
+  }
+}
@@ -0,0 +1,25 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import org.junit.jupiter.api.Test;
+
+class CounterTests {
+
+  @Test
+  void count() {
+    assertEquals(1, new Counter().count());
+  }
+
+  // Emulate an edit of Greeter.java followed by a compilation while the goal is watching
+  @Test
+  void changeGreeter() throws Exception {
+    var testClasses = Paths.get(CounterTests.class.getResource("/").toURI());
+    var file = testClasses.resolveSibling("classes").resolve("app/Greeter.class");
+    var text = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+    Files.write(file, text.replace("hello", "jello").getBytes(StandardCharsets.ISO_8859_1));
+  }
+}
@@ -0,0 +1,13 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class GreeterTests {
+
+  @Test
+  void greet() {
+    assertTrue(new Greeter().greet().endsWith("ello"));
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Path argument assembly, argument files, merged class paths and test class scanning. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassPathBenchmarks {
+
+  @Param({"10", "1000", "10000"})
+  public int elements;
+
+  private Path directory;
+  private Path classes;
+  private List<String> paths;
+  private MergedClassPath merged;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    directory = Fixtures.createDirectory();
+    paths = new ArrayList<>(Fixtures.jars(directory, elements));
+    // Dependencies reached via multiple paths show up more than once
+    paths.addAll(paths.subList(0, elements / 2));
+    classes = Fixtures.classes(directory.resolve("classes"), elements);
+    merged = new MergedClassPath(new JUnitPlatformMojo(), directory.resolve("merged"));
+    merged.merge(paths);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    Fixtures.delete(directory);
+  }
+
+  /** Normalize and de-duplicate the elements, then append the class path option. */
+  @Benchmark
+  public List<String> createPathArgument() {
+    var elements = JUnitPlatformStarter.createPathElements(paths, missing -> {});
+    var cmd = new ArrayList<String>();
+    JUnitPlatformStarter.addClassPathOption(cmd, elements);
+    return cmd;
+  }
+
+  /** Quote every element like the module options argument file does. */
+  @Benchmark
+  public List<String> quoteArguments() {
+    return JUnitPlatformStarter.createArgumentFileLines(paths);
+  }
+
+  /** Reuse a merged jar file: computes the key of the unchanged jar files. */
+  @Benchmark
+  public List<String> mergeUnchangedClassPath() throws Exception {
+    return merged.merge(paths);
+  }
+
+  /** Find test classes in a class file tree. */
+  @Benchmark
+  public List<String> scanTestClasses() {
+    return new TestClassScanner().scan(classes);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+/** Generated benchmark fixtures: jar files, package names and class file trees. */
+class Fixtures {
+
+  /** Create a temporary directory, deleted by {@link #delete(Path)}. */
+  static Path createDirectory() {
+    try {
+      return Files.createTempDirectory("junit-platform-jmh-");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Names of {@code count} packages, {@code p0} to {@code p<count-1>} below {@code root}. */
+  static TreeSet<String> packages(String root, int count) {
+    var packages = new TreeSet<String>();
+    for (int i = 0; i < count; i++) {
+      packages.add(root + ".p" + i);
+    }
+    return packages;
+  }
+
+  /** Write a jar file with one class file entry per package. */
+  static Path jar(Path file, Iterable<String> packages) {
+    try (var jar = new JarOutputStream(Files.newOutputStream(file))) {
+      for (var pack : packages) {
+        jar.putNextEntry(new ZipEntry(pack.replace('.', '/') + "/C.class"));
+        jar.write(new byte[] {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE});
+        jar.closeEntry();
+      }
+      return file;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Write {@code count} jar files containing a single, distinct package each. */
+  static List<String> jars(Path directory, int count) {
+    var elements = new ArrayList<String>();
+    for (int i = 0; i < count; i++) {
+      var jar = jar(directory.resolve("lib-" + i + ".jar"), List.of("lib" + i));
+      elements.add(jar.toString());
+    }
+    return elements;
+  }
+
+  /** Write minimal class files named like test classes and helpers, one each per package. */
+  static Path classes(Path directory, int count) {
+    try {
+      for (int i = 0; i < count; i++) {
+        var pack = Files.createDirectories(directory.resolve("p" + i));
+        Files.write(pack.resolve("T" + i + "Tests.class"), classFile("p" + i + "/T" + i + "Tests"));
+        Files.write(pack.resolve("Helper" + i + ".class"), classFile("p" + i + "/Helper" + i));
+      }
+      return directory;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Return the bytes of a public class extending {@code Object} without any members. */
+  static byte[] classFile(String internalName) {
+    var bytes = new ByteArrayOutputStream();
+    try (var out = new DataOutputStream(bytes)) {
+      out.writeInt(0xCAFEBABE);
+      out.writeShort(0); // minor version
+      out.writeShort(52); // major version, Java 8
+      out.writeShort(5); // constant pool count, entries 1 to 4
+      out.writeByte(1); // #1 utf8
+      out.writeUTF(internalName);
+      out.writeByte(7); // #2 class #1
+      out.writeShort(1);
+      out.writeByte(1); // #3 utf8
+      out.writeUTF("java/lang/Object");
+      out.writeByte(7); // #4 class #3
+      out.writeShort(3);
+      out.writeShort(0x0021); // public super
+      out.writeShort(2); // this class
+      out.writeShort(4); // super class
+      out.writeShort(0); // interfaces
+      out.writeShort(0); // fields
+      out.writeShort(0); // methods
+      out.writeShort(0); // attributes
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /** Delete the directory tree. */
+  static void delete(Path directory) {
+    try (var paths = Files.walk(directory)) {
+      for (var path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.deleteIfExists(path);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
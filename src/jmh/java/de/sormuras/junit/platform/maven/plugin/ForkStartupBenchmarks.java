@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of starting a JVM whose main class is found after all other class path elements.
+ *
+ * <p>Compares the class path as is with the one produced by {@link MergedClassPath}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ForkStartupBenchmarks {
+
+  /** Main class of the forked JVM, exits immediately. */
+  public static class Probe {
+    public static void main(String... args) {}
+  }
+
+  @Param({"10", "1000", "10000"})
+  public int elements;
+
+  private Path directory;
+  private List<String> plain;
+  private List<String> merged;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    directory = Fixtures.createDirectory();
+    var self = Probe.class.getProtectionDomain().getCodeSource().getLocation().toURI();
+    plain = new ArrayList<>(Fixtures.jars(directory, elements));
+    plain.add(Paths.get(self).toString());
+    var mojo = new JUnitPlatformMojo();
+    merged = new MergedClassPath(mojo, directory.resolve("merged")).merge(plain);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    Fixtures.delete(directory);
+  }
+
+  @Benchmark
+  public int startWithPlainClassPath() throws Exception {
+    return start(plain);
+  }
+
+  @Benchmark
+  public int startWithMergedClassPath() throws Exception {
+    return start(merged);
+  }
+
+  // Pass the class path via an argument file, it may exceed the limits of a single argument
+  private int start(List<String> elements) throws Exception {
+    var java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    var path = String.join(File.pathSeparator, elements);
+    var arguments = directory.resolve("java.args");
+    Files.write(arguments, List.of("-cp", JUnitPlatformStarter.quoteArgument(path)));
+    var builder = new ProcessBuilder(java, "@" + arguments, Probe.class.getName());
+    builder.redirectErrorStream(true);
+    builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+    return builder.start().waitFor();
+  }
+}
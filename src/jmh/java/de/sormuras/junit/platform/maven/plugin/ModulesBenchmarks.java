@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.lang.module.ModuleDescriptor;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Module detection and module option assembly for modules with many packages. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModulesBenchmarks {
+
+  @Param({"10", "1000", "10000"})
+  public int packages;
+
+  private Path directory;
+  private Path jar;
+  private ModuleDescriptor descriptor;
+  private Set<String> testPackages;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    directory = Fixtures.createDirectory();
+    var names = Fixtures.packages("foo", packages);
+    jar = Fixtures.jar(directory.resolve("foo.jar"), names);
+    descriptor = ModuleDescriptor.newModule("foo").packages(names).build();
+    testPackages = Set.copyOf(names);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    Fixtures.delete(directory);
+  }
+
+  /** {@code ModuleFinder.of(path).findAll()} of an automatic module. */
+  @Benchmark
+  public Object findSingleModuleReference() {
+    return Modules.getSingleModuleReferenceOrNull(jar);
+  }
+
+  /** Packages to open to the JUnit Platform when patching test classes into the main module. */
+  @Benchmark
+  public Object computePackagesToOpen() {
+    return ModuleGraph.opens(descriptor, testPackages, "org.junit.platform.commons");
+  }
+}
@@ -14,10 +14,17 @@
 
 package de.sormuras.junit.platform.maven.plugin;
 
+import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Build;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugins.annotations.Component;
@@ -37,6 +44,9 @@ import org.eclipse.aether.resolution.DependencyRequest;
 /** Provides basic utility helpers. */
 abstract class AbstractBaseMojo extends AbstractMojo { // I don't like this name and there doesn't seem to be a need for this extra abstraction layer. 
 
+  /** Maximum number of artifacts resolved concurrently. */
+  private static final int RESOLVER_THREADS = 4;
+
   /** Detected versions extracted from the project's dependencies. */
   private Map<String, String> detectedVersions;
 
@@ -47,6 +57,10 @@ abstract class AbstractBaseMojo extends AbstractMojo { // I don't like this name
   @Parameter(defaultValue = "${project}", readonly = true, required = true)
   private MavenProject project;
 
+  /** The current build session. */
+  @Parameter(defaultValue = "${session}", readonly = true, required = true)
+  private MavenSession mavenSession;
+
   /** The project's remote repositories to use for the resolution. */
   @Parameter(defaultValue = "${project.remotePluginRepositories}", readonly = true, required = true)
   private List<RemoteRepository> repositories;
@@ -70,6 +84,10 @@ abstract class AbstractBaseMojo extends AbstractMojo { // I don't like this name
     return project;
   }
 
+  MavenSession getMavenSession() {
+    return mavenSession;
+  }
+
   Modules getModules() {
     return modules;
   }
@@ -123,29 +141,105 @@ abstract class AbstractBaseMojo extends AbstractMojo { // I don't like this name
         "junit.platform.version", platformVersion);
   }
 
-  void resolve(List<String> elements, String groupAndArtifact, String version) throws Exception {
+  /**
+   * Resolve artifacts and their transitive dependencies, adding all files not mapped by the project
+   * to the elements.
+   *
+   * <p>Resolutions are looked up in a cache shared by all modules and persisted between builds.
+   * Cache misses are resolved concurrently.
+   *
+   * @param elements path elements to extend, keeps the first occurrence of each path
+   * @param coordinates artifact coordinates in {@code groupId:artifactId:version} form
+   */
+  void resolve(Set<String> elements, List<String> coordinates) throws Exception {
     var map = project.getArtifactMap();
-    if (map.containsKey(groupAndArtifact)) {
-      debug("Skip resolving '%s', because it is already mapped.", groupAndArtifact);
+    var misses = new ArrayList<String>();
+    for (var gav : coordinates) {
+      var groupAndArtifact = gav.substring(0, gav.lastIndexOf(':'));
+      if (map.containsKey(groupAndArtifact)) {
+        debug("Skip resolving '%s', because it is already mapped.", groupAndArtifact);
+        continue;
+      }
+      misses.add(gav);
+    }
+    if (misses.isEmpty()) {
       return;
     }
-    var gav = groupAndArtifact + ":" + version;
+    // Blocking resolutions must not occupy the common pool shared by all modules of the session
+    var executor =
+        Executors.newFixedThreadPool(
+            Math.min(misses.size(), RESOLVER_THREADS),
+            runnable -> {
+              var thread = new Thread(runnable, "junit-platform-resolver");
+              thread.setDaemon(true);
+              return thread;
+            });
+    try {
+      var futures = new ArrayList<CompletableFuture<List<ResolutionCache.Entry>>>();
+      for (var gav : misses) {
+        futures.add(CompletableFuture.supplyAsync(() -> resolveCached(gav), executor));
+      }
+      for (var future : futures) {
+        List<ResolutionCache.Entry> resolved;
+        try {
+          resolved = future.join();
+        } catch (CompletionException e) {
+          var cause = e.getCause();
+          if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          if (cause instanceof Exception) {
+            throw (Exception) cause;
+          }
+          throw e;
+        }
+        for (var entry : resolved) {
+          if (map.containsKey(entry.key)) {
+            // debug("  X %s // mapped by project", entry.key);
+            continue;
+          }
+          if (elements.add(entry.path)) {
+            debug(" -> %s", entry.path);
+          }
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private List<ResolutionCache.Entry> resolveCached(String gav) {
+    var local = session.getLocalRepository().getBasedir().toPath();
+    var cache =
+        ResolutionCache.of(local.resolve(".cache/junit-platform-maven-plugin/resolutions.tsv"));
+    var key =
+        gav
+            + repositories
+                .stream()
+                .map(repository -> repository.getId() + "=" + repository.getUrl())
+                .collect(Collectors.joining(",", "@", ""));
+    var cached = cache.get(key);
+    if (cached != null) {
+      debug("Resolved '%s' from cache", gav);
+      return cached;
+    }
     debug("");
     debug("Resolving '%s' and its transitive dependencies...", gav);
-    for (var resolved : resolve(gav)) {
-      var key = resolved.getGroupId() + ':' + resolved.getArtifactId();
-      if (map.containsKey(key)) {
-        // debug("  X %s // mapped by project", resolved);
-        continue;
+    try {
+      var entries = new ArrayList<ResolutionCache.Entry>();
+      for (var resolved : resolve(gav)) {
+        var path = resolved.getFile().toPath().toAbsolutePath().normalize();
+        var groupAndArtifact = resolved.getGroupId() + ':' + resolved.getArtifactId();
+        entries.add(new ResolutionCache.Entry(groupAndArtifact, path.toString()));
       }
-      var path = resolved.getFile().toPath().toAbsolutePath().normalize();
-      var element = path.toString();
-      if (elements.contains(element)) {
-        // debug("  X %s // already added", resolved);
-        continue;
+      try {
+        cache.put(key, entries);
+      } catch (IOException e) {
+        getLog().warn("Storing resolution of '" + gav + "' failed: " + e);
       }
-      debug(" -> %s", element);
-      elements.add(element);
+      return entries;
+    } catch (Exception e) {
+      throw new CompletionException(e);
     }
   }
 
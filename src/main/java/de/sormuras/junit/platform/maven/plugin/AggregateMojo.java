@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.utils.logging.MessageUtils;
+
+/**
+ * Merge the reports of all modules of the reactor into one report and print a summary.
+ *
+ * <p>Run it after the tests of all modules, for example via {@code mvn verify
+ * junit-platform:aggregate}. The merged report and the summary are written to the {@code
+ * junit-platform/aggregate} directory of the build directory of the project Maven was started in.
+ * Modules are named by their {@code groupId:artifactId}.
+ */
+@Mojo(name = "aggregate", aggregator = true, threadSafe = true)
+public class AggregateMojo extends AbstractMojo {
+
+  /** Number of modules listed as the slowest ones. */
+  static final int SLOWEST_MODULES = 10;
+
+  @Parameter(defaultValue = "${project}", readonly = true, required = true)
+  private MavenProject project;
+
+  @Parameter(defaultValue = "${reactorProjects}", readonly = true, required = true)
+  private List<MavenProject> reactorProjects;
+
+  @Parameter(defaultValue = "junit-platform/reports")
+  private String reports;
+
+  @Parameter(defaultValue = "false")
+  private boolean skip;
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    var log = getLog();
+    if (skip) {
+      log.info(MessageUtils.buffer().warning("Report aggregation skipped.").toString());
+      return;
+    }
+    var modules = new LinkedHashMap<String, Path>();
+    for (var module : reactorProjects) {
+      var directory = Paths.get(module.getBuild().getDirectory()).resolve(reports);
+      // Artifact ids are only unique within their group
+      modules.put(module.getGroupId() + ':' + module.getArtifactId(), directory);
+    }
+    var target = Paths.get(project.getBuild().getDirectory(), "junit-platform", "aggregate");
+    var file = target.resolve("TEST-aggregate.xml");
+    var start = System.nanoTime();
+    List<ReportAggregator.Totals> totals;
+    try {
+      totals = new ReportAggregator(target).aggregate(modules, file, project.getArtifactId());
+    } catch (IOException e) {
+      throw new MojoExecutionException("Aggregating reports failed", e);
+    }
+    var millis = (System.nanoTime() - start) / 1_000_000;
+    log.info(
+        String.format(
+            "Aggregated reports of %d modules into %s in %d ms", totals.size(), file, millis));
+    var summary = createSummary(totals);
+    for (var line : summary) {
+      if (line.startsWith("Failed ")) {
+        log.error(line);
+      } else {
+        log.info(line);
+      }
+    }
+    try {
+      Files.write(target.resolve("summary.txt"), summary);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Writing summary failed", e);
+    }
+  }
+
+  static List<String> createSummary(List<ReportAggregator.Totals> totals) {
+    var all = new ReportAggregator.Totals("all");
+    totals.forEach(all::add);
+    var lines = new ArrayList<String>();
+    lines.add(
+        String.format(
+            Locale.ROOT,
+            "Tests run: %d, Failures: %d, Errors: %d, Skipped: %d, Time: %.3f s",
+            all.tests,
+            all.failures,
+            all.errors,
+            all.skipped,
+            all.time));
+    for (var module : totals) {
+      if (module.isFailed()) {
+        lines.add("Failed " + module);
+      }
+    }
+    lines.add("Slowest modules");
+    totals
+        .stream()
+        .sorted(Comparator.comparingDouble((ReportAggregator.Totals t) -> t.time).reversed())
+        .limit(SLOWEST_MODULES)
+        .forEach(
+            module ->
+                lines.add(
+                    String.format(
+                        Locale.ROOT,
+                        "  %9.3f s %s (%d tests)",
+                        module.time,
+                        module.name,
+                        module.tests)));
+    return lines;
+  }
+}
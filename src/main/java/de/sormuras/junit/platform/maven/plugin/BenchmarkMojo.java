@@ -0,0 +1,216 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.shared.utils.logging.MessageUtils;
+
+/** Run JMH benchmarks found in the test output directory. */
+@Mojo(
+    name = "benchmark",
+    defaultPhase = LifecyclePhase.INTEGRATION_TEST,
+    threadSafe = true,
+    requiresDependencyCollection = ResolutionScope.TEST,
+    requiresDependencyResolution = ResolutionScope.TEST)
+public class BenchmarkMojo extends JUnitPlatformMojo {
+
+  @Parameter private String benchmarkBaseline;
+
+  @Parameter(defaultValue = "false")
+  private boolean benchmarkFailOnRegression;
+
+  @Parameter(defaultValue = "1")
+  private int benchmarkForks;
+
+  @Parameter private List<String> benchmarkIncludes = List.of();
+
+  @Parameter(defaultValue = "5")
+  private int benchmarkMeasurementIterations;
+
+  @Parameter(defaultValue = "junit-platform/benchmark/jmh-result.json")
+  private String benchmarkResults;
+
+  @Parameter(defaultValue = "3600")
+  private long benchmarkTimeout;
+
+  @Parameter(defaultValue = "10")
+  private double benchmarkTolerance;
+
+  @Parameter(defaultValue = "3")
+  private int benchmarkWarmupIterations;
+
+  @Override
+  public void execute() throws MojoFailureException {
+    var log = getLog();
+    log.info("Running JMH benchmarks...");
+
+    if (isSkip()) {
+      log.info(MessageUtils.buffer().warning("Benchmark execution skipped.").toString());
+      return;
+    }
+
+    if (Files.notExists(Paths.get(getMavenProject().getBuild().getTestOutputDirectory()))) {
+      log.info(MessageUtils.buffer().warning("Test output directory doesn't exist.").toString());
+      return;
+    }
+
+    initialize();
+    debug("Java module system mode: %s", getModules().getMode());
+
+    var target = Paths.get(getMavenProject().getBuild().getDirectory(), "junit-platform");
+    int result = new BenchmarkRunner(this, target).getAsInt();
+    if (result != 0) {
+      throw new MojoFailureException("Running benchmarks failed: " + result);
+    }
+    var baseline = getBenchmarkBaselinePath();
+    if (isDryRun() || !baseline.isPresent()) {
+      return;
+    }
+    // The runner deleted earlier results: no file means no benchmark ran
+    if (Files.notExists(getBenchmarkResultsPath())) {
+      log.info("No benchmark results written, skipping comparison with " + baseline.get());
+      return;
+    }
+    try {
+      if (Files.notExists(baseline.get())) {
+        Files.createDirectories(baseline.get().toAbsolutePath().getParent());
+        Files.copy(getBenchmarkResultsPath(), baseline.get(), StandardCopyOption.COPY_ATTRIBUTES);
+        log.info("Benchmark baseline created: " + baseline.get());
+        return;
+      }
+      var regressions = compare(baseline.get());
+      if (regressions > 0 && isBenchmarkFailOnRegression()) {
+        throw new MojoFailureException(regressions + " benchmarks regressed");
+      }
+    } catch (IOException e) {
+      throw new MojoFailureException("Comparing benchmark results failed", e);
+    }
+  }
+
+  // Log the relative change of each score, return the number of regressions
+  private int compare(Path baseline) throws IOException {
+    var log = getLog();
+    var current = BenchmarkResults.read(getBenchmarkResultsPath());
+    var changes = current.compare(BenchmarkResults.read(baseline));
+    log.info("");
+    log.info("Benchmark results compared to " + baseline);
+    var regressions = 0;
+    for (var change : changes) {
+      var line =
+          String.format(
+              "  %+7.1f%% %s: %.3f -> %.3f %s",
+              change.getImprovement(),
+              change.key,
+              change.baseline.value,
+              change.current.value,
+              change.current.unit);
+      if (change.getImprovement() < -getBenchmarkTolerance()) {
+        log.warn(line + " // regression");
+        regressions++;
+        continue;
+      }
+      log.info(line);
+    }
+    var missing = current.getScores().size() - changes.size();
+    if (missing > 0) {
+      log.info(String.format("  %d benchmarks not found in the baseline", missing));
+    }
+    return regressions;
+  }
+
+  /**
+   * Optional path to a stored JMH result file to compare the results with.
+   *
+   * <p>A relative path is resolved against the project's base directory. If the file does not
+   * exist, the results of this run are copied to it. Delete the file to establish a new baseline.
+   *
+   * @return path to the baseline, empty if no comparison is to be made
+   */
+  Optional<Path> getBenchmarkBaselinePath() {
+    if (benchmarkBaseline == null || benchmarkBaseline.trim().isEmpty()) {
+      return Optional.empty();
+    }
+    return Optional.of(getMavenProject().getBasedir().toPath().resolve(benchmarkBaseline));
+  }
+
+  /**
+   * Fail the build if a benchmark regressed beyond the tolerance.
+   *
+   * @see #getBenchmarkTolerance()
+   */
+  boolean isBenchmarkFailOnRegression() {
+    return benchmarkFailOnRegression;
+  }
+
+  /** Number of JVMs forked by JMH for each benchmark. */
+  int getBenchmarkForks() {
+    return benchmarkForks;
+  }
+
+  /**
+   * Regular expressions selecting the benchmarks to run.
+   *
+   * <p>Matched against the fully qualified benchmark method names. All benchmarks listed in the
+   * test output directory are run, if empty.
+   */
+  List<String> getBenchmarkIncludes() {
+    return benchmarkIncludes;
+  }
+
+  /** Number of measurement iterations per fork. */
+  int getBenchmarkMeasurementIterations() {
+    return benchmarkMeasurementIterations;
+  }
+
+  /**
+   * Path to the JMH result file in JSON format.
+   *
+   * <p>A relative path is resolved below the current build directory, normally {@code target}.
+   */
+  Path getBenchmarkResultsPath() {
+    var path = Paths.get(benchmarkResults);
+    if (path.isAbsolute()) {
+      return path;
+    }
+    return Paths.get(getMavenProject().getBuild().getDirectory()).resolve(path);
+  }
+
+  /** Time to wait for all benchmarks to finish before the runner is terminated. */
+  Duration getBenchmarkTimeout() {
+    return Duration.ofSeconds(benchmarkTimeout);
+  }
+
+  /** Percentage a score may become worse than its baseline without being a regression. */
+  double getBenchmarkTolerance() {
+    return benchmarkTolerance;
+  }
+
+  /** Number of warmup iterations per fork. */
+  int getBenchmarkWarmupIterations() {
+    return benchmarkWarmupIterations;
+  }
+}
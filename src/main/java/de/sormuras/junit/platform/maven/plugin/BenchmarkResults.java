@@ -0,0 +1,307 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Scores read from a JMH result file in JSON format.
+ *
+ * <p>Each result is keyed by the benchmark name followed by its sorted parameters, like {@code
+ * a.b.C.method(size=10)}. Only the primary metric is read.
+ */
+class BenchmarkResults {
+
+  /** Primary metric of a benchmark run. */
+  static class Score {
+
+    final String mode;
+    final double value;
+    final String unit;
+
+    Score(String mode, double value, String unit) {
+      this.mode = mode;
+      this.value = value;
+      this.unit = unit;
+    }
+
+    /** Throughput measures operations per time unit, all other modes measure time. */
+    boolean isHigherBetter() {
+      return "thrpt".equals(mode);
+    }
+  }
+
+  /** Relative change of a score compared to its baseline. */
+  static class Change {
+
+    final String key;
+    final Score baseline;
+    final Score current;
+
+    Change(String key, Score baseline, Score current) {
+      this.key = key;
+      this.baseline = baseline;
+      this.current = current;
+    }
+
+    /** Change in percent, positive values are improvements. */
+    double getImprovement() {
+      if (baseline.value == 0) {
+        return 0;
+      }
+      var delta = (current.value - baseline.value) / baseline.value * 100;
+      return current.isHigherBetter() ? delta : -delta;
+    }
+  }
+
+  static BenchmarkResults read(Path file) throws IOException {
+    var json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    return parse(json);
+  }
+
+  static BenchmarkResults parse(String json) throws IOException {
+    Object root;
+    try {
+      root = new JsonParser(json).parse();
+    } catch (RuntimeException e) {
+      throw new IOException("Parsing benchmark results failed", e);
+    }
+    var scores = new LinkedHashMap<String, Score>();
+    if (!(root instanceof List)) {
+      throw new IOException("Expected an array of benchmark results");
+    }
+    for (var element : (List<?>) root) {
+      if (!(element instanceof Map)) {
+        throw new IOException("Expected a benchmark result object: " + element);
+      }
+      var result = (Map<?, ?>) element;
+      var key = new StringBuilder(String.valueOf(result.get("benchmark")));
+      var params = result.get("params");
+      if (params instanceof Map) {
+        var sorted = new TreeMap<String, Object>();
+        ((Map<?, ?>) params).forEach((k, v) -> sorted.put(String.valueOf(k), v));
+        var joiner = new ArrayList<String>();
+        sorted.forEach((k, v) -> joiner.add(k + "=" + v));
+        key.append('(').append(String.join(",", joiner)).append(')');
+      }
+      if (!(result.get("primaryMetric") instanceof Map)) {
+        throw new IOException("Expected a primary metric object in result of " + key);
+      }
+      var metric = (Map<?, ?>) result.get("primaryMetric");
+      if (!(metric.get("score") instanceof Number)) {
+        throw new IOException("Expected a numeric primary metric score in result of " + key);
+      }
+      var score = ((Number) metric.get("score")).doubleValue();
+      var mode = String.valueOf(result.get("mode"));
+      scores.put(key.toString(), new Score(mode, score, String.valueOf(metric.get("scoreUnit"))));
+    }
+    return new BenchmarkResults(scores);
+  }
+
+  private final Map<String, Score> scores;
+
+  BenchmarkResults(Map<String, Score> scores) {
+    this.scores = scores;
+  }
+
+  Map<String, Score> getScores() {
+    return scores;
+  }
+
+  /** Compare all scores also present in the baseline, in the order of this result. */
+  List<Change> compare(BenchmarkResults baseline) {
+    var changes = new ArrayList<Change>();
+    scores.forEach(
+        (key, score) -> {
+          var base = baseline.scores.get(key);
+          if (base != null && base.mode.equals(score.mode) && base.unit.equals(score.unit)) {
+            changes.add(new Change(key, base, score));
+          }
+        });
+    return changes;
+  }
+
+  /** Minimal JSON parser producing maps, lists, strings, numbers, booleans and {@code null}. */
+  static class JsonParser {
+
+    private final String json;
+    private int index;
+
+    JsonParser(String json) {
+      this.json = json;
+    }
+
+    Object parse() {
+      var value = value();
+      skipWhitespace();
+      if (index != json.length()) {
+        throw error("Unexpected trailing characters");
+      }
+      return value;
+    }
+
+    private Object value() {
+      skipWhitespace();
+      if (index >= json.length()) {
+        throw error("Unexpected end");
+      }
+      var c = json.charAt(index);
+      switch (c) {
+        case '{':
+          return object();
+        case '[':
+          return array();
+        case '"':
+          return string();
+        case 't':
+          return literal("true", Boolean.TRUE);
+        case 'f':
+          return literal("false", Boolean.FALSE);
+        case 'n':
+          return literal("null", null);
+        default:
+          return number();
+      }
+    }
+
+    private Map<String, Object> object() {
+      var map = new LinkedHashMap<String, Object>();
+      index++;
+      skipWhitespace();
+      if (json.charAt(index) == '}') {
+        index++;
+        return map;
+      }
+      while (true) {
+        skipWhitespace();
+        var key = string();
+        skipWhitespace();
+        expect(':');
+        map.put(key, value());
+        skipWhitespace();
+        if (json.charAt(index) == ',') {
+          index++;
+          continue;
+        }
+        expect('}');
+        return map;
+      }
+    }
+
+    private List<Object> array() {
+      var list = new ArrayList<Object>();
+      index++;
+      skipWhitespace();
+      if (json.charAt(index) == ']') {
+        index++;
+        return list;
+      }
+      while (true) {
+        list.add(value());
+        skipWhitespace();
+        if (json.charAt(index) == ',') {
+          index++;
+          continue;
+        }
+        expect(']');
+        return list;
+      }
+    }
+
+    private String string() {
+      expect('"');
+      var builder = new StringBuilder();
+      while (true) {
+        var c = json.charAt(index++);
+        if (c == '"') {
+          return builder.toString();
+        }
+        if (c != '\\') {
+          builder.append(c);
+          continue;
+        }
+        var escaped = json.charAt(index++);
+        switch (escaped) {
+          case 'b':
+            builder.append('\b');
+            break;
+          case 'f':
+            builder.append('\f');
+            break;
+          case 'n':
+            builder.append('\n');
+            break;
+          case 'r':
+            builder.append('\r');
+            break;
+          case 't':
+            builder.append('\t');
+            break;
+          case 'u':
+            builder.append((char) Integer.parseInt(json.substring(index, index + 4), 16));
+            index += 4;
+            break;
+          default:
+            builder.append(escaped);
+        }
+      }
+    }
+
+    // JMH writes "NaN" for missing values, read it as a number
+    private Object number() {
+      var start = index;
+      while (index < json.length() && "+-0123456789.eEaNIinfty".indexOf(json.charAt(index)) >= 0) {
+        index++;
+      }
+      if (start == index) {
+        throw error("Unexpected character '" + json.charAt(index) + "'");
+      }
+      return Double.valueOf(json.substring(start, index));
+    }
+
+    private Object literal(String literal, Object value) {
+      if (!json.startsWith(literal, index)) {
+        throw error("Expected " + literal);
+      }
+      index += literal.length();
+      return value;
+    }
+
+    private void expect(char c) {
+      if (index >= json.length() || json.charAt(index) != c) {
+        throw error("Expected '" + c + "'");
+      }
+      index++;
+    }
+
+    private void skipWhitespace() {
+      while (index < json.length() && Character.isWhitespace(json.charAt(index))) {
+        index++;
+      }
+    }
+
+    private IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(message + " at index " + index);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Forks a JMH runner for the benchmarks compiled into the test output directory.
+ *
+ * <p>The runner JVM is launched with the same class path or module path, patch, read and open
+ * options as the console launcher. The JMH annotation processor lists the benchmarks in {@code
+ * META-INF/BenchmarkList} of the test output directory.
+ */
+class BenchmarkRunner implements IntSupplier {
+
+  static final String JMH_MODULE = "jmh.core";
+
+  static final String JMH_MAIN_CLASS = "org.openjdk.jmh.Main";
+
+  private final BenchmarkMojo mojo;
+  private final JUnitPlatformStarter starter;
+  private final Path target;
+
+  BenchmarkRunner(BenchmarkMojo mojo, Path target) {
+    this.mojo = mojo;
+    this.starter = new JUnitPlatformStarter(mojo);
+    this.target = target;
+  }
+
+  @Override
+  public int getAsInt() {
+    var log = mojo.getLog();
+    var testOutput = Paths.get(mojo.getMavenProject().getBuild().getTestOutputDirectory());
+    // Results of an earlier run must not be mistaken for results of this one
+    if (!mojo.isDryRun()) {
+      try {
+        Files.deleteIfExists(mojo.getBenchmarkResultsPath());
+      } catch (IOException e) {
+        log.error("Deleting earlier benchmark results failed", e);
+        return -1;
+      }
+    }
+    if (Files.notExists(testOutput.resolve("META-INF/BenchmarkList"))) {
+      log.warn("No benchmarks found in " + testOutput);
+      return 0;
+    }
+    if (!mojo.getMavenProject().getArtifactMap().containsKey("org.openjdk.jmh:jmh-core")) {
+      log.error("Running benchmarks requires a test dependency on org.openjdk.jmh:jmh-core");
+      return -1;
+    }
+    var cmd = new ArrayList<String>();
+    cmd.add(mojo.getJavaExecutable());
+    starter.addBenchmarkJavaOptions(cmd);
+    addBenchmarkOptions(cmd);
+
+    if (mojo.isDryRun()) {
+      log.info("Dry-run mode is active -- only printing command line");
+      cmd.forEach(log::info);
+      return 0;
+    }
+
+    var outputPath = target.resolve("benchmark.out.log");
+    var errorPath = target.resolve("benchmark.err.log");
+    try {
+      Files.createDirectories(target);
+      Files.createDirectories(mojo.getBenchmarkResultsPath().getParent());
+      Files.write(target.resolve("benchmark.cmd.log"), cmd);
+      log.info("Running benchmarks...");
+      cmd.forEach(mojo::debug);
+      var process = new ProcessBuilder(cmd).redirectInput(ProcessBuilder.Redirect.INHERIT).start();
+      var tail = mojo.getOutputTail();
+      var out = new StreamPump(process.getInputStream(), outputPath, log::info, tail, log::warn);
+      var err = new StreamPump(process.getErrorStream(), errorPath, log::warn, tail, log::warn);
+      var pumps = List.of(out.start("junit-platform-out"), err.start("junit-platform-err"));
+      var timeout = mojo.getBenchmarkTimeout().toSeconds();
+      if (!process.waitFor(timeout, TimeUnit.SECONDS)) {
+        log.error("Benchmark timeout of " + timeout + " seconds reached.");
+        new ProcessTerminator(mojo, target).terminate(process.toHandle());
+        starter.join(pumps);
+        return -2;
+      }
+      var exitValue = process.exitValue();
+      starter.join(pumps);
+      starter.printTail(exitValue, out, err);
+      return exitValue;
+    } catch (IOException | InterruptedException e) {
+      log.error("Executing benchmarks failed", e);
+      return -1;
+    }
+  }
+
+  // Append JMH runner options, see "java -jar benchmarks.jar -h"
+  private void addBenchmarkOptions(List<String> cmd) {
+    cmd.add("-f");
+    cmd.add(String.valueOf(mojo.getBenchmarkForks()));
+    cmd.add("-wi");
+    cmd.add(String.valueOf(mojo.getBenchmarkWarmupIterations()));
+    cmd.add("-i");
+    cmd.add(String.valueOf(mojo.getBenchmarkMeasurementIterations()));
+    cmd.add("-rf");
+    cmd.add("json");
+    cmd.add("-rff");
+    cmd.add(mojo.getBenchmarkResultsPath().toString());
+    cmd.addAll(mojo.getBenchmarkIncludes());
+  }
+}
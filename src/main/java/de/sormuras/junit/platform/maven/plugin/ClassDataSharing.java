@@ -0,0 +1,349 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.ZipFile;
+
+/**
+ * Creates and reuses a dynamic application class data sharing (AppCDS) archive.
+ *
+ * <p>The JVM refuses to dump classes if a non-empty directory is on the class path. Therefore the
+ * archive is created by a separate training run that only sees the jar files and launches the
+ * console launcher without selecting any test. It loads the console launcher, the launcher and the
+ * engines -- those classes dominate the startup time. The training run executes concurrently with
+ * the first test run. Subsequent runs map the archive via {@code -XX:SharedArchiveFile}, which
+ * requires the archived class path to be a prefix of the runtime class path. Therefore jar files
+ * are moved before all directories, but only if that doesn't change which class or resource wins:
+ * no jar file may contain an entry that is also found in a directory. Otherwise the class path
+ * order is kept and class data sharing is not used. Checking that reads every jar file, so the
+ * decision is stored next to the archive in a {@code <key>.order} file, together with a digest of
+ * the entries of all directories. Later runs with the same key reuse it while the directories hold
+ * the same entries.
+ *
+ * <p>Archives are keyed by a fingerprint of the Java command, which includes the Java executable
+ * and all Java options, and of the size and modification time of every jar file. An archive with a
+ * different key is stale and deleted. Dynamic archives are supported by Java 13 and later, only
+ * class path mode is supported.
+ */
+class ClassDataSharing {
+
+  private static final Set<String> PATH_OPTIONS = Set.of("--class-path", "-classpath", "-cp");
+
+  private final JUnitPlatformStarter starter;
+  private final JUnitPlatformMojo mojo;
+  private final Path directory;
+  private final List<String> command;
+  private final Path archive;
+  private final Path startup;
+  private Process training;
+
+  /**
+   * Prepare class data sharing for the given Java command.
+   *
+   * @param starter the starter, used to start the training run
+   * @param directory the directory to store archives in
+   * @param command the Java executable followed by all Java options and the main class
+   */
+  ClassDataSharing(JUnitPlatformStarter starter, Path directory, List<String> command) {
+    this.starter = starter;
+    this.mojo = starter.getMojo();
+    this.directory = directory;
+    this.command = command;
+    var key = createKey(command);
+    this.archive = directory.resolve(key + ".jsa");
+    this.startup = directory.resolve(key + ".startup");
+  }
+
+  /**
+   * Return {@code true} if the Java executable supports dynamic archives for the command.
+   *
+   * <p>Only class path mode is supported: mapping a dynamic archive of classes loaded from the
+   * module path crashed Java 17 when the runtime module path was extended by directories. Module
+   * options are passed via an argument file, so a command reading one is rejected, too: neither the
+   * module path check nor the training run look into it.
+   */
+  static boolean isSupported(List<String> command) {
+    if (command.contains("--module-path") || command.contains("-p")) {
+      return false;
+    }
+    if (command.stream().skip(1).anyMatch(option -> option.startsWith("@"))) {
+      return false;
+    }
+    var feature = getFeatureVersion(command.get(0));
+    return feature.isPresent() && feature.get() >= 13;
+  }
+
+  // Read the "release" file of the Java installation, or use this runtime's version
+  static Optional<Integer> getFeatureVersion(String javaExecutable) {
+    var home = Paths.get(javaExecutable).toAbsolutePath().getParent().getParent();
+    var release = home.resolve("release");
+    try {
+      if (Files.isRegularFile(release)) {
+        for (var line : Files.readAllLines(release)) {
+          if (line.startsWith("JAVA_VERSION=")) {
+            var version = line.substring("JAVA_VERSION=".length()).replace("\"", "");
+            return Optional.of(Runtime.Version.parse(version).feature());
+          }
+        }
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      // fall through
+    }
+    var current = ProcessHandle.current().info().command().map(Paths::get);
+    if (current.isPresent() && current.get().equals(Paths.get(javaExecutable))) {
+      return Optional.of(Runtime.version().feature());
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Reorder path option values in place: jar files first, directories last.
+   *
+   * <p>The decision is looked up in, or stored to, the order file of the reordered command's key.
+   * It is only reused if the directories still hold the same entries.
+   *
+   * @param command the Java command to reorder
+   * @param directory the directory to store archives and order files in
+   * @return {@code false} if the command was kept in its order, because a jar file would shadow a
+   *     class or resource of a directory
+   */
+  static boolean reorderPaths(List<String> command, Path directory) throws IOException {
+    var reordered = new ArrayList<>(command);
+    var pairs = new ArrayList<List<List<String>>>();
+    var entries = new ArrayList<Set<String>>();
+    for (int i = 1; i < reordered.size(); i++) {
+      if (PATH_OPTIONS.contains(reordered.get(i - 1))) {
+        var files = new ArrayList<String>();
+        var others = new ArrayList<String>();
+        for (var element : reordered.get(i).split(File.pathSeparator)) {
+          (Files.isRegularFile(Paths.get(element)) ? files : others).add(element);
+        }
+        pairs.add(List.of(files, others));
+        entries.add(listEntries(others));
+        var elements = new ArrayList<>(files);
+        elements.addAll(others);
+        reordered.set(i, String.join(File.pathSeparator, elements));
+      }
+    }
+    var order = directory.resolve(createKey(reordered) + ".order");
+    var digest = createKey(entries.stream().map(String::valueOf).collect(Collectors.toList()));
+    var lines = Files.isRegularFile(order) ? Files.readAllLines(order) : List.<String>of();
+    boolean shadowing;
+    if (lines.size() == 2 && lines.get(1).equals(digest)) {
+      shadowing = Boolean.parseBoolean(lines.get(0).trim());
+    } else {
+      shadowing = false;
+      for (int i = 0; i < pairs.size(); i++) {
+        if (isShadowing(pairs.get(i).get(0), entries.get(i))) {
+          shadowing = true;
+          break;
+        }
+      }
+      Files.createDirectories(directory);
+      Files.write(order, List.of(String.valueOf(shadowing), digest));
+    }
+    if (shadowing) {
+      return false;
+    }
+    command.clear();
+    command.addAll(reordered);
+    return true;
+  }
+
+  // Sorted names of all files in the directories, module descriptors excluded
+  private static Set<String> listEntries(List<String> directories) throws IOException {
+    var names = new TreeSet<String>();
+    for (var directory : directories) {
+      var root = Paths.get(directory);
+      if (!Files.isDirectory(root)) {
+        continue;
+      }
+      try (var paths = Files.walk(root)) {
+        for (var path : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+          names.add(root.relativize(path).toString().replace(File.separatorChar, '/'));
+        }
+      }
+    }
+    names.removeIf(name -> name.endsWith("module-info.class"));
+    return names;
+  }
+
+  // Does any jar file contain an entry that is also present in one of the directories?
+  private static boolean isShadowing(List<String> jars, Set<String> names) throws IOException {
+    if (names.isEmpty()) {
+      return false;
+    }
+    for (var jar : jars) {
+      try (var zip = new ZipFile(jar)) {
+        var entries = zip.entries();
+        while (entries.hasMoreElements()) {
+          if (names.contains(entries.nextElement().getName())) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /** Return {@code true} if an archive for the command already exists. */
+  boolean isArchived() {
+    return Files.isRegularFile(archive);
+  }
+
+  /**
+   * Delete stale archives and return the Java options mapping the archive.
+   *
+   * <p>If no archive exists, the training run creating it is started and no option is returned.
+   * Like every fork, the training run waits for a slot of the fork governor, if enabled.
+   *
+   * @return {@code -XX:SharedArchiveFile} option to insert after the Java executable, or nothing
+   */
+  List<String> createOptions() throws IOException, InterruptedException {
+    Files.createDirectories(directory);
+    var key = archive.getFileName().toString().replace(".jsa", "");
+    try (var files = Files.list(directory)) {
+      for (var file : (Iterable<Path>) files::iterator) {
+        if (!file.getFileName().toString().startsWith(key)) {
+          mojo.debug("Deleting stale class data sharing file: " + file);
+          Files.delete(file);
+        }
+      }
+    }
+    if (isArchived()) {
+      mojo.debug("Using class data sharing archive: " + archive);
+      return List.of("-XX:SharedArchiveFile=" + archive);
+    }
+    var builder = new ProcessBuilder(createTrainingCommand());
+    builder.redirectErrorStream(true);
+    builder.redirectOutput(directory.resolve(key + ".log").toFile());
+    mojo.debug("Creating class data sharing archive: " + archive);
+    builder.command().forEach(mojo::debug);
+    training = starter.start(builder);
+    return List.of();
+  }
+
+  // Same Java options, only jar files, no test selected and no events streamed
+  private List<String> createTrainingCommand() {
+    var training = new ArrayList<String>();
+    training.add(command.get(0));
+    training.add("-XX:ArchiveClassesAtExit=" + getTemporaryArchive());
+    for (int i = 1; i < command.size(); i++) {
+      var option = command.get(i);
+      if (!option.startsWith("-")) {
+        break; // main class
+      }
+      if (option.startsWith("-D" + EventStreamListener.PROPERTY + "=")) {
+        continue;
+      }
+      training.add(option);
+      if (PATH_OPTIONS.contains(option)) {
+        var jars = new ArrayList<String>();
+        for (var element : command.get(++i).split(File.pathSeparator)) {
+          if (Files.isRegularFile(Paths.get(element))) {
+            jars.add(element);
+          }
+        }
+        training.add(String.join(File.pathSeparator, jars));
+      }
+    }
+    training.add("org.junit.platform.console.ConsoleLauncher");
+    training.add("--disable-ansi-colors");
+    training.add("--details");
+    training.add("none");
+    training.add("--scan-class-path");
+    return training;
+  }
+
+  /**
+   * Complete the run: publish a freshly trained archive and log the startup duration.
+   *
+   * @param duration time from process start to its first line of output, may be {@code null}
+   */
+  void complete(Duration duration) throws IOException, InterruptedException {
+    var log = mojo.getLog();
+    if (training == null) {
+      if (duration != null && Files.isRegularFile(startup)) {
+        var before = Long.parseLong(Files.readAllLines(startup).get(0).trim());
+        var after = duration.toMillis();
+        log.debug(
+            String.format(
+                "Startup took %d ms using the class data sharing archive, %d ms without, saved %d ms",
+                after, before, before - after));
+      }
+      return;
+    }
+    if (!training.waitFor(mojo.getTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+      training.destroy();
+    }
+    var temporary = getTemporaryArchive();
+    if (training.isAlive() || training.exitValue() != 0 || Files.notExists(temporary)) {
+      log.debug("Class data sharing archive was not created, see log in " + directory);
+      Files.deleteIfExists(temporary);
+      return;
+    }
+    Files.move(temporary, archive, StandardCopyOption.REPLACE_EXISTING);
+    log.debug("Class data sharing archive created: " + archive);
+    if (duration != null) {
+      Files.write(startup, List.of(String.valueOf(duration.toMillis())));
+      log.debug(
+          String.format("Startup took %d ms without class data sharing", duration.toMillis()));
+    }
+  }
+
+  // The JVM writes the archive at exit, publish it only after the process is gone
+  private Path getTemporaryArchive() {
+    return archive.resolveSibling(archive.getFileName() + ".tmp");
+  }
+
+  private static String createKey(List<String> command) {
+    try {
+      var digest = Digests.sha256();
+      for (int i = 0; i < command.size(); i++) {
+        var element = command.get(i);
+        digest.update(element.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        if (i > 0 && PATH_OPTIONS.contains(command.get(i - 1))) {
+          for (var path : element.split(File.pathSeparator)) {
+            var file = Paths.get(path);
+            if (Files.isRegularFile(file)) {
+              var stamp = Files.size(file) + "@" + Files.getLastModifiedTime(file).toMillis();
+              digest.update(stamp.getBytes(StandardCharsets.UTF_8));
+            }
+          }
+        }
+      }
+      return Digests.toHex(digest.digest()).substring(0, 16);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Fingerprinting path elements failed", e);
+    }
+  }
+}
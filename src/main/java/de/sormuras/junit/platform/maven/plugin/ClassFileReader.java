@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the header and the constant pool of a class file.
+ *
+ * <p>Only UTF-8 and class entries are kept, all other constants are skipped. The remaining bytes,
+ * starting with the access flags of the class, are left to the caller.
+ */
+class ClassFileReader {
+
+  private final DataInputStream in;
+  private final String[] strings;
+  private final int[] classes;
+
+  /**
+   * Read the constant pool of a class file.
+   *
+   * @param stream class file bytes
+   * @throws IOException if the stream doesn't start with a valid class file header
+   */
+  ClassFileReader(InputStream stream) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(stream));
+    if (in.readInt() != 0xCAFEBABE) {
+      throw new IOException("Not a class file");
+    }
+    in.readUnsignedShort(); // minor version
+    in.readUnsignedShort(); // major version
+    var count = in.readUnsignedShort();
+    this.strings = new String[count];
+    this.classes = new int[count];
+    for (int index = 1; index < count; index++) {
+      var tag = in.readUnsignedByte();
+      switch (tag) {
+        case 1: // Utf8
+          strings[index] = in.readUTF();
+          break;
+        case 7: // Class
+          classes[index] = in.readUnsignedShort();
+          break;
+        case 8: // String
+        case 16: // MethodType
+        case 19: // Module
+        case 20: // Package
+          in.skipBytes(2);
+          break;
+        case 15: // MethodHandle
+          in.skipBytes(3);
+          break;
+        case 3: // Integer
+        case 4: // Float
+        case 9: // Fieldref
+        case 10: // Methodref
+        case 11: // InterfaceMethodref
+        case 12: // NameAndType
+        case 17: // Dynamic
+        case 18: // InvokeDynamic
+          in.skipBytes(4);
+          break;
+        case 5: // Long
+        case 6: // Double
+          in.skipBytes(8);
+          index++;
+          break;
+        default:
+          throw new IOException("Unknown constant pool tag " + tag + " at index " + index);
+      }
+    }
+  }
+
+  /** Stream positioned right after the constant pool. */
+  DataInputStream getInput() {
+    return in;
+  }
+
+  /** UTF-8 entry at the given index, {@code null} if there is none. */
+  String getString(int index) {
+    return strings[index];
+  }
+
+  /** Internal name of the class entry at the given index, {@code null} if there is none. */
+  String getClassName(int index) {
+    return classes[index] == 0 ? null : strings[classes[index]];
+  }
+
+  /** Internal names of all class entries, including array descriptors. */
+  List<String> getClassNames() {
+    var names = new ArrayList<String>();
+    for (int index = 1; index < classes.length; index++) {
+      var name = getClassName(index);
+      if (name != null) {
+        names.add(name);
+      }
+    }
+    return names;
+  }
+
+  /** All UTF-8 entries in constant pool order. */
+  List<String> getStrings() {
+    var list = new ArrayList<String>();
+    for (var string : strings) {
+      if (string != null) {
+        list.add(string);
+      }
+    }
+    return list;
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+
+/** Reads resource limits of the Linux control group this JVM runs in, cgroup v2 or v1. */
+class ControlGroup {
+
+  /** Memory limits of cgroup v1 at or above this value mean unlimited. */
+  static final long UNLIMITED = 1L << 60;
+
+  /** Read the CPU quota of this process in processors. */
+  static OptionalDouble readCpuQuota() {
+    try {
+      // cgroup v2: "<quota|max> <period>" in cpu.max
+      var cpuMax = find("", "cpu.max");
+      if (cpuMax.isPresent()) {
+        var values = read(cpuMax.get()).split(" ");
+        return values.length == 2 ? divide(values[0], values[1]) : OptionalDouble.empty();
+      }
+      // cgroup v1: cfs_quota_us of -1 means unlimited
+      var quota = find("cpu", "cpu.cfs_quota_us");
+      var period = find("cpu", "cpu.cfs_period_us");
+      if (quota.isPresent() && period.isPresent()) {
+        return divide(read(quota.get()), read(period.get()));
+      }
+    } catch (IOException | RuntimeException e) {
+      // unknown cgroup layout
+    }
+    return OptionalDouble.empty();
+  }
+
+  /** Read the memory limit of this process in bytes. */
+  static OptionalLong readMemoryLimit() {
+    try {
+      var file = find("", "memory.max");
+      if (!file.isPresent()) {
+        file = find("memory", "memory.limit_in_bytes");
+      }
+      if (file.isPresent()) {
+        var value = read(file.get());
+        if (!value.equals("max") && Long.parseLong(value) < UNLIMITED) {
+          return OptionalLong.of(Long.parseLong(value));
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // unknown cgroup layout
+    }
+    return OptionalLong.empty();
+  }
+
+  static OptionalDouble divide(String quota, String period) {
+    if (quota.equals("max") || quota.startsWith("-")) {
+      return OptionalDouble.empty();
+    }
+    var divisor = Double.parseDouble(period);
+    if (divisor <= 0) {
+      return OptionalDouble.empty();
+    }
+    return OptionalDouble.of(Double.parseDouble(quota) / divisor);
+  }
+
+  /**
+   * Find a control file of this process' control group.
+   *
+   * @param controller name of the cgroup v1 controller, empty for the cgroup v2 hierarchy
+   * @param name name of the control file
+   * @return path to the control file of the nested group or, inside a container, of the root
+   */
+  private static Optional<Path> find(String controller, String name) throws IOException {
+    var cgroups = Paths.get("/proc/self/cgroup");
+    if (Files.notExists(cgroups)) {
+      return Optional.empty();
+    }
+    for (var line : Files.readAllLines(cgroups)) {
+      // "<id>:<controllers>:<path>", cgroup v2 has id 0 and no controllers
+      var fields = line.split(":", 3);
+      if (fields.length < 3) {
+        continue;
+      }
+      var roots = List.<Path>of();
+      if (controller.isEmpty() && fields[0].equals("0") && fields[1].isEmpty()) {
+        roots = List.of(Paths.get("/sys/fs/cgroup"));
+      }
+      if (!controller.isEmpty() && List.of(fields[1].split(",")).contains(controller)) {
+        roots =
+            List.of(
+                Paths.get("/sys/fs/cgroup", fields[1]), Paths.get("/sys/fs/cgroup", controller));
+      }
+      for (var root : roots) {
+        var nested = root.resolve(fields[2].substring(1)).resolve(name);
+        if (Files.isReadable(nested)) {
+          return Optional.of(nested);
+        }
+        if (Files.isReadable(root.resolve(name))) {
+          return Optional.of(root.resolve(name));
+        }
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file)).trim();
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Long-lived worker JVM accepting launch requests over a loopback socket.
+ *
+ * <p>On start, the daemon writes its port, an access token and its process id into a state file.
+ * Clients connect, send the token followed by a {@link LaunchRequest} and receive an acceptance
+ * frame ({@code 'A'}) once their request is taken up, frames carrying standard output ({@code 'O'})
+ * and standard error ({@code 'E'}) and finally the exit code ({@code 'X'}). Requests are executed
+ * one after another by the {@link IsolatedLauncher}, each one in its own worker thread within a
+ * fresh class loader or module layer. The daemon exits after being idle for the given number of
+ * seconds. A client that doesn't send its token and request within {@link #REQUEST_TIMEOUT} is
+ * disconnected, so a silent connection can't block the daemon.
+ *
+ * <p>A client cancels its request by sending a single {@code 'C'} byte or by closing the
+ * connection. The worker thread is interrupted and the exit code {@value #CANCELLED} is sent. If
+ * the worker doesn't stop within a grace period, the daemon retires: it removes its state file,
+ * stops accepting requests and exits, so that waiting clients start a fresh daemon.
+ *
+ * <p>This class is loaded by the daemon JVM and must only depend on the Java SE API.
+ */
+class Daemon {
+
+  static final int OUT = 'O';
+  static final int ERR = 'E';
+  static final int EXIT = 'X';
+  static final int ACCEPTED = 'A';
+  static final int CANCEL = 'C';
+
+  /** Exit code sent for a cancelled request. */
+  static final int CANCELLED = -2;
+
+  /** Time granted to a cancelled request to stop its worker thread. */
+  static final Duration CANCEL_GRACE_PERIOD = Duration.ofSeconds(10);
+
+  /** Time granted to a connected client to send its token and request. */
+  static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+  public static void main(String... args) throws Exception {
+    var state = Paths.get(args[0]);
+    var idle = Integer.parseInt(args[1]);
+    var token = new BigInteger(130, new SecureRandom()).toString(32);
+    try (var server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      server.setSoTimeout(Math.multiplyExact(idle, 1000));
+      writeState(state, server.getLocalPort(), token);
+      while (true) {
+        try (var socket = server.accept()) {
+          if (!serve(socket, token)) {
+            System.err.println("Cancelled request didn't stop, retiring");
+            Files.deleteIfExists(state);
+            break;
+          }
+        } catch (SocketTimeoutException e) {
+          break;
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+    } finally {
+      if (Files.exists(state) && Files.readAllLines(state).contains(token)) {
+        Files.delete(state);
+      }
+    }
+    // Don't wait for non-daemon threads started by tests
+    System.exit(0);
+  }
+
+  private static void writeState(Path state, int port, String token) throws IOException {
+    var lines = List.of(String.valueOf(port), token, String.valueOf(ProcessHandle.current().pid()));
+    var temp = state.resolveSibling(state.getFileName() + ".tmp");
+    Files.deleteIfExists(temp);
+    try {
+      Files.createFile(
+          temp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    } catch (UnsupportedOperationException e) {
+      Files.createFile(temp);
+    }
+    Files.write(temp, lines);
+    Files.move(temp, state, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Serve a single request and return {@code false} if its worker thread didn't stop. */
+  private static boolean serve(Socket socket, String token) throws IOException {
+    var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    LaunchRequest request;
+    try {
+      socket.setSoTimeout((int) REQUEST_TIMEOUT.toMillis());
+      if (!token.equals(in.readUTF())) {
+        return true;
+      }
+      request = LaunchRequest.read(in);
+    } catch (SocketTimeoutException e) {
+      System.err.println("Client didn't send a request in time, disconnecting");
+      return true;
+    }
+    // Wait for a cancel byte as long as the request runs
+    socket.setSoTimeout(0);
+    synchronized (out) {
+      out.writeByte(ACCEPTED);
+      out.flush();
+    }
+    var standardOut = System.out;
+    var standardErr = System.err;
+    var properties = (Properties) System.getProperties().clone();
+    var requestOut = new PrintStream(new BufferedOutputStream(frames(out, OUT)), true);
+    var requestErr = new PrintStream(new BufferedOutputStream(frames(out, ERR)), true);
+    var exitCode = new int[] {-1};
+    var worker =
+        new Thread(
+            () -> exitCode[0] = IsolatedLauncher.launch(request, requestOut, requestErr),
+            "junit-platform-daemon-request");
+    var cancelled = new AtomicBoolean();
+    var stopped = true;
+    try {
+      System.setOut(requestOut);
+      System.setErr(requestErr);
+      worker.start();
+      var watcher = new Thread(() -> awaitCancel(in, worker, cancelled), "junit-platform-cancel");
+      watcher.setDaemon(true);
+      watcher.start();
+      while (worker.isAlive() && !cancelled.get()) {
+        worker.join(100);
+      }
+      if (cancelled.get()) {
+        worker.join(CANCEL_GRACE_PERIOD.toMillis());
+        stopped = !worker.isAlive();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      stopped = false;
+    } finally {
+      requestOut.flush();
+      requestErr.flush();
+      System.setOut(standardOut);
+      System.setErr(standardErr);
+      System.setProperties(properties);
+    }
+    try {
+      synchronized (out) {
+        out.writeByte(EXIT);
+        out.writeInt(cancelled.get() ? CANCELLED : exitCode[0]);
+        out.flush();
+      }
+    } catch (IOException e) {
+      // the client is gone
+    }
+    return stopped;
+  }
+
+  // Interrupt the worker when the client sends a cancel byte or closes the connection
+  private static void awaitCancel(DataInputStream in, Thread worker, AtomicBoolean cancelled) {
+    int b;
+    try {
+      b = in.read();
+    } catch (IOException e) {
+      b = -1;
+    }
+    if (b != CANCEL && b != -1) {
+      return;
+    }
+    if (worker.isAlive() && cancelled.compareAndSet(false, true)) {
+      worker.interrupt();
+    }
+  }
+
+  private static OutputStream frames(DataOutputStream out, int type) {
+    return new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] bytes, int offset, int length) throws IOException {
+        synchronized (out) {
+          out.writeByte(type);
+          out.writeInt(length);
+          out.write(bytes, offset, length);
+          out.flush();
+        }
+      }
+    };
+  }
+}
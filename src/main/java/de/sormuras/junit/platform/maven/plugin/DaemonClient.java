@@ -0,0 +1,321 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Sends the launch request to a warm {@link Daemon} JVM, starting one if none is running.
+ *
+ * <p>Daemons are shared by all modules of a reactor and by subsequent builds. They are keyed by the
+ * Java executable, the additional Java options they were started with and the size and modification
+ * time of the plugin archive: a rebuilt plugin snapshot gets a new daemon. Like forked JVMs, a
+ * daemon only sees the classes it needs, copied from the plugin archive by {@link ForkArchive}.
+ *
+ * <p>The global timeout is a wall-clock deadline starting when the daemon accepts the request, time
+ * spent waiting for other requests is not counted. When the deadline is reached, only this request
+ * is cancelled: the daemon itself is never terminated by a client, as it may serve other builds.
+ */
+class DaemonClient implements IntSupplier {
+
+  /** Number of attempts to hand the request to a daemon, which may retire while connecting. */
+  private static final int ATTEMPTS = 3;
+
+  /** Serializes daemon lookup and start within this JVM, the file lock guards across JVMs. */
+  private static final Object LOCK = new Object();
+
+  private final JUnitPlatformStarter starter;
+  private final JUnitPlatformMojo mojo;
+  private final Path target;
+
+  DaemonClient(JUnitPlatformStarter starter, Path target) {
+    this.starter = starter;
+    this.mojo = starter.getMojo();
+    this.target = target;
+  }
+
+  @Override
+  public int getAsInt() {
+    var log = mojo.getLog();
+    var request = starter.createLaunchRequest();
+    if (request.getArguments().isEmpty()) {
+      log.warn(
+          "No test classes found in " + mojo.getMavenProject().getBuild().getTestOutputDirectory());
+      return 0;
+    }
+
+    // In dry-run mode, we're done here.
+    if (mojo.isDryRun()) {
+      log.info("Dry-run mode is active -- only printing launch request");
+      log.info(request.toString());
+      return 0;
+    }
+
+    try {
+      Files.write(target.resolve("console-launcher.cmd.log"), List.of(request.toString()));
+      for (int attempt = 1; ; attempt++) {
+        var state = connect();
+        var accepted = false;
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), state.port)) {
+          var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+          var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+          out.writeUTF(state.token);
+          request.write(out);
+          out.flush();
+          debug("Launch request sent to daemon #%d", state.pid);
+          if (in.readByte() != Daemon.ACCEPTED) {
+            throw new IOException("Unexpected response from daemon #" + state.pid);
+          }
+          accepted = true;
+          debug("Launch request accepted by daemon #%d", state.pid);
+          return receive(socket, in, out, state);
+        } catch (EOFException | SocketException e) {
+          // the daemon may have retired before accepting the request
+          if (accepted || attempt == ATTEMPTS) {
+            throw e;
+          }
+          debug("Daemon #%d is gone, retrying: %s", state.pid, e);
+          TimeUnit.MILLISECONDS.sleep(100);
+        }
+      }
+    } catch (IOException | InterruptedException e) {
+      log.error("Launching via daemon failed", e);
+      return -1;
+    }
+  }
+
+  // Demultiplex the frames into pumps writing the usual log files
+  private int receive(Socket socket, DataInputStream in, DataOutputStream out, State state)
+      throws IOException, InterruptedException {
+    var log = mojo.getLog();
+    var outPipe = new PipedOutputStream();
+    var errPipe = new PipedOutputStream();
+    var tail = mojo.getOutputTail();
+    var outputPath = target.resolve("console-launcher.out.log");
+    var errorPath = target.resolve("console-launcher.err.log");
+    var outPump =
+        new StreamPump(new PipedInputStream(outPipe, 8192), outputPath, log::info, tail, log::warn);
+    var errPump =
+        new StreamPump(new PipedInputStream(errPipe, 8192), errorPath, log::warn, tail, log::warn);
+    var pumps = List.of(outPump.start("junit-platform-out"), errPump.start("junit-platform-err"));
+    var deadline = new Deadline(socket, out, state);
+    var watchdog = new Thread(deadline, "junit-platform-deadline");
+    watchdog.setDaemon(true);
+    var exitValue = -1;
+    try {
+      watchdog.start();
+      while (true) {
+        var type = in.readByte();
+        if (type == Daemon.EXIT) {
+          exitValue = in.readInt();
+          break;
+        }
+        var bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        (type == Daemon.OUT ? outPipe : errPipe).write(bytes);
+      }
+    } catch (IOException e) {
+      if (!deadline.isReached()) {
+        throw e;
+      }
+    } finally {
+      watchdog.interrupt();
+      outPipe.close();
+      errPipe.close();
+      starter.join(pumps);
+    }
+    if (deadline.isReached()) {
+      exitValue = Daemon.CANCELLED;
+    }
+    starter.printTail(exitValue, outPump, errPump);
+    return exitValue;
+  }
+
+  /** Cancels the request when the global timeout is reached, closes the socket if unconfirmed. */
+  private class Deadline implements Runnable {
+
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final State state;
+    private volatile boolean reached;
+
+    Deadline(Socket socket, DataOutputStream out, State state) {
+      this.socket = socket;
+      this.out = out;
+      this.state = state;
+    }
+
+    boolean isReached() {
+      return reached;
+    }
+
+    @Override
+    public void run() {
+      var log = mojo.getLog();
+      try {
+        TimeUnit.MILLISECONDS.sleep(mojo.getTimeout().toMillis());
+        reached = true;
+        var timeout = mojo.getTimeout().toSeconds();
+        var s = timeout == 1 ? "" : "s";
+        log.error("Global timeout of " + timeout + " second" + s + " reached.");
+        ProcessHandle.of(state.pid).ifPresent(new ProcessTerminator(mojo, target)::diagnose);
+        log.error("Cancelling launch request in daemon #" + state.pid);
+        out.writeByte(Daemon.CANCEL);
+        out.flush();
+        TimeUnit.MILLISECONDS.sleep(Daemon.CANCEL_GRACE_PERIOD.toMillis() + 1000);
+        log.error("Daemon #" + state.pid + " didn't confirm the cancellation, disconnecting");
+        socket.close();
+      } catch (InterruptedException e) {
+        // request completed in time
+      } catch (IOException e) {
+        log.warn("Cancelling launch request failed", e);
+      }
+    }
+  }
+
+  private State connect() throws IOException, InterruptedException {
+    var directory = Paths.get(System.getProperty("java.io.tmpdir"), "junit-platform-maven-plugin");
+    Files.createDirectories(directory);
+    // The daemon archive is named after the plugin archive's stamp, the key covers both
+    var stamp = createKey(List.of(createPluginStamp()));
+    var archive = directory.resolve("daemon-" + stamp + ".jar");
+    var command = createCommand(archive);
+    var key = createKey(command);
+    var stateFile = directory.resolve("daemon-" + key + ".state");
+    synchronized (LOCK) {
+      var lockFile = directory.resolve("daemon-" + key + ".lock");
+      try (var channel =
+          FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+        var lock = channel.lock();
+        try {
+          return reuseOrStart(command, archive, key, stateFile);
+        } finally {
+          lock.release();
+        }
+      }
+    }
+  }
+
+  // Reuse a live daemon or start a new one, called while holding the file lock
+  private State reuseOrStart(List<String> command, Path archive, String key, Path stateFile)
+      throws IOException, InterruptedException {
+    var state = State.read(stateFile);
+    if (state != null && state.isAlive()) {
+      debug("Reusing daemon #%d listening on port %d", state.pid, state.port);
+      return state;
+    }
+    Files.deleteIfExists(stateFile);
+    ForkArchive.daemon(archive);
+    command.add(stateFile.toString());
+    command.add(String.valueOf(mojo.getDaemonIdleTimeout().toSeconds()));
+    var logFile = stateFile.resolveSibling("daemon-" + key + ".log").toFile();
+    var builder = new ProcessBuilder(command);
+    builder.redirectErrorStream(true);
+    builder.redirectOutput(ProcessBuilder.Redirect.appendTo(logFile));
+    debug("Starting daemon...");
+    command.forEach(mojo::debug);
+    var process = builder.start();
+    for (int i = 0; i < 300 && process.isAlive(); i++) {
+      state = State.read(stateFile);
+      if (state != null) {
+        debug("Daemon #%d started, listening on port %d", state.pid, state.port);
+        return state;
+      }
+      TimeUnit.MILLISECONDS.sleep(100);
+    }
+    process.destroy();
+    throw new IOException("Daemon didn't start, see " + logFile);
+  }
+
+  // "java[.exe]" with additional options running the daemon main class from the daemon archive
+  private List<String> createCommand(Path archive) {
+    var command = new ArrayList<String>();
+    command.add(mojo.getJavaExecutable());
+    command.addAll(mojo.getJavaOptions().getAdditionalOptions());
+    command.add("--class-path");
+    command.add(archive.toString());
+    command.add(Daemon.class.getName());
+    return command;
+  }
+
+  // Location, size and modification time of the plugin archive, rebuilt snapshots differ
+  private static String createPluginStamp() throws IOException {
+    var location = Paths.get(ForkWorker.getLocation());
+    if (!Files.isRegularFile(location)) {
+      return location.toString();
+    }
+    var size = Files.size(location);
+    return location + "@" + size + "@" + Files.getLastModifiedTime(location).toMillis();
+  }
+
+  private static String createKey(List<String> command) {
+    var digest = Digests.sha256();
+    command.forEach(element -> digest.update(element.getBytes(StandardCharsets.UTF_8)));
+    return Digests.toHex(digest.digest()).substring(0, 16);
+  }
+
+  private void debug(String format, Object... args) {
+    mojo.debug(String.format(format, args));
+  }
+
+  /** Content of a daemon state file. */
+  static class State {
+
+    final int port;
+    final String token;
+    final long pid;
+
+    State(int port, String token, long pid) {
+      this.port = port;
+      this.token = token;
+      this.pid = pid;
+    }
+
+    boolean isAlive() {
+      return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+    }
+
+    static State read(Path file) throws IOException {
+      if (Files.notExists(file)) {
+        return null;
+      }
+      var lines = Files.readAllLines(file);
+      if (lines.size() < 3) {
+        return null;
+      }
+      return new State(Integer.parseInt(lines.get(0)), lines.get(1), Long.parseLong(lines.get(2)));
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Watches directory trees for changed files.
+ *
+ * <p>A {@link WatchService} only reports changes of the directories registered with it, therefore
+ * all directories below the roots are registered, including those created while watching. A root
+ * that doesn't exist, because it wasn't created yet or was deleted by a {@code clean} build, is
+ * waited for by watching its nearest existing ancestor. As soon as the root is created again, its
+ * tree is registered and all of its files are reported as changed.
+ */
+class DirectoryWatcher implements AutoCloseable {
+
+  private final WatchService service;
+  private final List<Path> roots;
+
+  DirectoryWatcher(List<Path> roots) throws IOException {
+    this.service = roots.get(0).getFileSystem().newWatchService();
+    this.roots =
+        roots.stream().map(root -> root.toAbsolutePath().normalize()).collect(Collectors.toList());
+    for (var root : this.roots) {
+      watch(root);
+    }
+  }
+
+  // Register the tree of an existing root, else its nearest existing ancestor
+  private void watch(Path root) throws IOException {
+    if (Files.isDirectory(root)) {
+      register(root);
+      return;
+    }
+    var ancestor = root.getParent();
+    while (ancestor != null && !Files.isDirectory(ancestor)) {
+      ancestor = ancestor.getParent();
+    }
+    if (ancestor != null) {
+      ancestor.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+    }
+  }
+
+  private void register(Path root) throws IOException {
+    try (var paths = Files.walk(root)) {
+      for (var directory : paths.filter(Files::isDirectory).collect(Collectors.toList())) {
+        directory.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+      }
+    }
+  }
+
+  /**
+   * Wait for changes.
+   *
+   * <p>Compilers write many files in a row: after the first change this method keeps collecting
+   * until no further change was reported for the quiet period.
+   *
+   * @param quietPeriod time without changes that ends a batch of changes
+   * @return changed, created and deleted files and directories, sorted
+   */
+  Set<Path> await(Duration quietPeriod) throws IOException, InterruptedException {
+    var changes = new TreeSet<Path>();
+    while (changes.isEmpty()) {
+      var key = service.take();
+      while (key != null) {
+        collect(key, changes);
+        key = service.poll(quietPeriod.toMillis(), TimeUnit.MILLISECONDS);
+      }
+    }
+    return changes;
+  }
+
+  private void collect(WatchKey key, Set<Path> changes) throws IOException {
+    var directory = (Path) key.watchable();
+    var watched = roots.stream().anyMatch(directory::startsWith);
+    for (var event : key.pollEvents()) {
+      if (event.kind() == OVERFLOW) {
+        // events were lost, report the directory itself and look for missing roots
+        if (watched) {
+          changes.add(directory);
+        }
+        appear(directory, changes);
+        continue;
+      }
+      var path = directory.resolve((Path) event.context());
+      if (!watched) {
+        // an ancestor of a missing root, only the creation of the root is of interest
+        if (event.kind() == ENTRY_CREATE) {
+          appear(path, changes);
+        }
+        continue;
+      }
+      changes.add(path);
+      if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+        register(path);
+        // files created before the registration went unnoticed
+        try (var paths = Files.walk(path)) {
+          paths.filter(Files::isRegularFile).forEach(changes::add);
+        }
+      }
+    }
+    if (!key.reset()) {
+      // the directory is gone: wait for roots at or below it to be created again
+      for (var root : roots) {
+        if (root.startsWith(directory)) {
+          watch(root);
+        }
+      }
+    }
+  }
+
+  // Watch missing roots at or below the created path, report files of roots that exist now
+  private void appear(Path path, Set<Path> changes) throws IOException {
+    for (var root : roots) {
+      if (!root.startsWith(path)) {
+        continue;
+      }
+      watch(root);
+      if (Files.isDirectory(root)) {
+        try (var paths = Files.walk(root)) {
+          paths.filter(Files::isRegularFile).forEach(changes::add);
+        }
+        changes.add(root);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    service.close();
+  }
+}
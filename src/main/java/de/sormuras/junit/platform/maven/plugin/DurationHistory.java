@@ -0,0 +1,321 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Append-only store of test durations recorded by previous runs.
+ *
+ * <p>Each line of the history file holds a tab-separated record: {@code C} for a top-level class or
+ * {@code M} for a test method, followed by the class name, the method name (methods only) and the
+ * duration in milliseconds. Only the last {@value #SAMPLES} samples per class and per method are
+ * kept in memory; the file is compacted when it grows beyond twice that size.
+ *
+ * <p>Every run also appends an {@code R} record holding its start time in milliseconds, followed by
+ * one {@code F} record per top-level class that failed and didn't pass since. The last {@code R}
+ * record and its {@code F} records win.
+ */
+class DurationHistory {
+
+  /** Number of samples kept per class and per method. */
+  static final int SAMPLES = 10;
+
+  private final Path file;
+  private final Map<String, Deque<Long>> classes = new LinkedHashMap<>();
+  private final Map<String, Deque<Long>> methods = new LinkedHashMap<>();
+  private final List<String> appended = new ArrayList<>();
+  private final Set<String> failed = new TreeSet<>();
+  private long lastRun;
+  private int lines;
+
+  DurationHistory(Path file) {
+    this.file = file;
+  }
+
+  /** Load the history file, if it exists. */
+  DurationHistory load() throws IOException {
+    if (Files.notExists(file)) {
+      return this;
+    }
+    try (var reader = Files.newBufferedReader(file)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines++;
+        var record = line.split("\t");
+        try {
+          if (record.length == 3 && record[0].equals("C")) {
+            add(classes, record[1], Long.parseLong(record[2]));
+          }
+          if (record.length == 4 && record[0].equals("M")) {
+            add(methods, record[1] + '\t' + record[2], Long.parseLong(record[3]));
+          }
+          if (record.length == 2 && record[0].equals("R")) {
+            lastRun = Long.parseLong(record[1]);
+            failed.clear();
+          }
+          if (record.length == 2 && record[0].equals("F")) {
+            failed.add(record[1]);
+          }
+        } catch (NumberFormatException e) {
+          // skip corrupt line, maybe a partial write
+        }
+      }
+    }
+    return this;
+  }
+
+  private static void add(Map<String, Deque<Long>> map, String key, long millis) {
+    var samples = map.computeIfAbsent(key, k -> new ArrayDeque<>());
+    if (samples.size() == SAMPLES) {
+      samples.removeFirst();
+    }
+    samples.addLast(millis);
+  }
+
+  /** Record the durations of a method and add them to the total of its top-level class. */
+  void record(Map<String, Long> classTotals, String className, String method, long millis) {
+    add(methods, className + '\t' + method, millis);
+    appended.add("M\t" + className + '\t' + method + '\t' + millis);
+    classTotals.merge(getTopLevelClassName(className), millis, Long::sum);
+  }
+
+  /**
+   * Record all test cases found in JUnit XML reports written since the start of the run.
+   *
+   * <p>Test classes with failures are remembered until they pass again.
+   *
+   * @return number of recorded test cases
+   */
+  int recordReports(Path reports, Instant start) throws IOException {
+    if (Files.notExists(reports)) {
+      return 0;
+    }
+    // File systems with coarse timestamps may round the modification time down
+    var since = FileTime.from(start.minusSeconds(1));
+    var totals = new LinkedHashMap<String, Long>();
+    var failures = new TreeSet<String>();
+    var count = 0;
+    try (var paths = Files.list(reports)) {
+      var files =
+          paths
+              .filter(path -> path.getFileName().toString().startsWith("TEST-"))
+              .filter(path -> path.getFileName().toString().endsWith(".xml"))
+              .sorted()
+              .collect(Collectors.toList());
+      for (var report : files) {
+        if (Files.getLastModifiedTime(report).compareTo(since) < 0) {
+          continue;
+        }
+        try (var stream = Files.newInputStream(report)) {
+          count += recordReport(stream, totals, failures);
+        }
+      }
+    }
+    totals.forEach(
+        (name, millis) -> {
+          add(classes, name, millis);
+          appended.add("C\t" + name + '\t' + millis);
+        });
+    failed.removeAll(totals.keySet());
+    failed.addAll(failures);
+    lastRun = start.toEpochMilli();
+    appended.add("R\t" + lastRun);
+    failed.forEach(name -> appended.add("F\t" + name));
+    return count;
+  }
+
+  // Stream "testcase" elements: <testcase name="test()" classname="a.b.C" time="0.123">
+  int recordReport(InputStream stream, Map<String, Long> totals, Set<String> failures)
+      throws IOException {
+    var factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    var count = 0;
+    try {
+      var reader = factory.createXMLStreamReader(stream);
+      String className = null;
+      while (reader.hasNext()) {
+        if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+          continue;
+        }
+        var element = reader.getLocalName();
+        if (className != null && (element.equals("failure") || element.equals("error"))) {
+          failures.add(getTopLevelClassName(className));
+          continue;
+        }
+        if (!element.equals("testcase")) {
+          continue;
+        }
+        var name = reader.getAttributeValue(null, "name");
+        className = reader.getAttributeValue(null, "classname");
+        var time = reader.getAttributeValue(null, "time");
+        if (name == null || className == null || time == null) {
+          continue;
+        }
+        var millis = Math.round(Double.parseDouble(time.replace(",", "")) * 1000);
+        record(totals, className, name.replace('\t', ' '), millis);
+        count++;
+      }
+      reader.close();
+    } catch (XMLStreamException | NumberFormatException e) {
+      throw new IOException("Parsing test report failed", e);
+    }
+    return count;
+  }
+
+  /** Append new records to the history file, compact it if it grew too large. */
+  void save() throws IOException {
+    if (appended.isEmpty()) {
+      return;
+    }
+    Files.createDirectories(file.getParent());
+    var retained = classes.values().stream().mapToInt(Deque::size).sum();
+    retained += methods.values().stream().mapToInt(Deque::size).sum();
+    retained += 1 + failed.size();
+    if (lines + appended.size() > 2 * retained) {
+      var temp = file.resolveSibling(file.getFileName() + ".tmp");
+      var records = new ArrayList<String>();
+      classes.forEach(
+          (name, samples) -> samples.forEach(s -> records.add("C\t" + name + '\t' + s)));
+      methods.forEach((key, samples) -> samples.forEach(s -> records.add("M\t" + key + '\t' + s)));
+      records.add("R\t" + lastRun);
+      failed.forEach(name -> records.add("F\t" + name));
+      Files.write(temp, records);
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      lines = records.size();
+    } else {
+      Files.write(file, appended, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      lines += appended.size();
+    }
+    appended.clear();
+  }
+
+  /** Return {@code true} if no durations are known. */
+  boolean isEmpty() {
+    return classes.isEmpty();
+  }
+
+  /**
+   * Percentile of the recorded durations of a top-level class.
+   *
+   * @param className binary name of the top-level class
+   * @param percentile value between 1 and 100, like 50 for the median
+   * @return the duration, empty if no durations were recorded for that class
+   */
+  Optional<Duration> getPercentile(String className, int percentile) {
+    var samples = classes.get(className);
+    if (samples == null || samples.isEmpty()) {
+      return Optional.empty();
+    }
+    var sorted = samples.stream().sorted().collect(Collectors.toList());
+    var index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+    var millis = sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    return Optional.of(Duration.ofMillis(millis));
+  }
+
+  /** Return the names of top-level classes that failed and didn't pass since. */
+  Set<String> getFailedClassNames() {
+    return failed;
+  }
+
+  /**
+   * Scan the directory for class files modified since the start of the last recorded run.
+   *
+   * @param directory root of a class file tree, usually the test output directory
+   * @return names of top-level classes, empty if no run was recorded
+   */
+  Set<String> getChangedClassNames(Path directory) throws IOException {
+    var changed = new TreeSet<String>();
+    if (lastRun == 0 || Files.notExists(directory)) {
+      return changed;
+    }
+    try (var paths = Files.walk(directory)) {
+      for (var path : paths.collect(Collectors.toList())) {
+        if (!path.getFileName().toString().endsWith(".class")) {
+          continue;
+        }
+        if (Files.getLastModifiedTime(path).toMillis() > lastRun) {
+          var name = TestClassScanner.toClassName(directory.relativize(path));
+          changed.add(getTopLevelClassName(name));
+        }
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Sort class names for fast feedback.
+   *
+   * <p>Previously failed classes come first, followed by the given changed classes. The rest is
+   * sorted {@link #sortLongestFirst(List) longest first}.
+   */
+  List<String> sortFailuresFirst(List<String> classNames, Set<String> changed) {
+    var sorted = new ArrayList<>(sortLongestFirst(classNames));
+    sorted.sort(
+        Comparator.comparingInt(
+            name -> failed.contains(name) ? 0 : changed.contains(name) ? 1 : 2));
+    return sorted;
+  }
+
+  /** Return the names of all recorded top-level classes. */
+  List<String> getClassNames() {
+    return new ArrayList<>(classes.keySet());
+  }
+
+  /**
+   * Sort class names by descending median duration.
+   *
+   * <p>Classes without history are put first, they may be slow and new tests should fail fast. Ties
+   * keep the given order.
+   */
+  List<String> sortLongestFirst(List<String> classNames) {
+    var medians = new HashMap<String, Long>();
+    for (var name : classNames) {
+      var median = getPercentile(name, 50).map(Duration::toMillis).orElse(Long.MAX_VALUE);
+      medians.put(name, median);
+    }
+    var sorted = new ArrayList<>(classNames);
+    sorted.sort(Comparator.comparing(medians::get, Comparator.reverseOrder()));
+    return sorted;
+  }
+
+  static String getTopLevelClassName(String className) {
+    var dollar = className.indexOf('$');
+    return dollar < 0 ? className : className.substring(0, dollar);
+  }
+}
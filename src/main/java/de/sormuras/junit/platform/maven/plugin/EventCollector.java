@@ -0,0 +1,498 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Receives the binary event streams written by {@link EventStreamListener} instances.
+ *
+ * <p>Every forked JVM, and every launcher execution within a fork, connects to the same loopback
+ * server socket. Counts are updated live and failures are logged as soon as they are received.
+ * Forks also report their heap and CPU usage, which are published with the counts by {@link
+ * TestMetrics} if enabled.
+ *
+ * <p>Connections must present a per-run access token first, passed to the forks via the {@value
+ * EventStreamListener#TOKEN} environment variable. Other local processes can't inject events that
+ * trigger a fail-fast stop or fake the metrics.
+ */
+class EventCollector implements AutoCloseable {
+
+  /** Outcome of a single test or container. */
+  static class Result {
+
+    /** Test execution status, matches the order of {@code TestExecutionResult.Status}. */
+    enum Status {
+      SUCCESSFUL,
+      ABORTED,
+      FAILED,
+      SKIPPED
+    }
+
+    private final boolean test;
+    private final String className;
+    private final String displayName;
+    private Status status;
+    private Duration duration = Duration.ZERO;
+    private String details = "";
+
+    Result(boolean test, String className, String displayName) {
+      this.test = test;
+      this.className = className;
+      this.displayName = displayName;
+    }
+
+    boolean isTest() {
+      return test;
+    }
+
+    /** Name of the class the test or container was declared in, may be empty. */
+    String getClassName() {
+      return className;
+    }
+
+    String getDisplayName() {
+      return displayName;
+    }
+
+    /** Status, {@code null} if the execution did not finish. */
+    Status getStatus() {
+      return status;
+    }
+
+    Duration getDuration() {
+      return duration;
+    }
+
+    /** Stack trace of a failure or reason for skipping, may be empty. */
+    String getDetails() {
+      return details;
+    }
+
+    @Override
+    public String toString() {
+      return className.isEmpty() ? displayName : className + " > " + displayName;
+    }
+  }
+
+  private final JUnitPlatformMojo mojo;
+  private final ServerSocket server;
+  private final String token = new BigInteger(130, new SecureRandom()).toString(32);
+  private final Queue<Thread> readers = new ConcurrentLinkedQueue<>();
+  private final Queue<Result> results = new ConcurrentLinkedQueue<>();
+  private final AtomicLong started = new AtomicLong();
+  private final AtomicLong successful = new AtomicLong();
+  private final AtomicLong aborted = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong skipped = new AtomicLong();
+  private final AtomicLong containersFailed = new AtomicLong();
+  private final Set<Result> running = ConcurrentHashMap.newKeySet();
+  private final Map<Long, long[]> resources = new ConcurrentHashMap<>();
+  private final long startNanos = System.nanoTime();
+  private volatile long lastEventMillis = System.currentTimeMillis();
+  private final AtomicBoolean stopped = new AtomicBoolean();
+  private final Queue<Runnable> stopActions = new ConcurrentLinkedQueue<>();
+  private final int failFastThreshold;
+  private final TestMetrics metrics;
+
+  EventCollector(JUnitPlatformMojo mojo) throws IOException {
+    this(mojo, mojo.isFailFast() ? mojo.getFailFastThreshold() : 0);
+  }
+
+  /**
+   * Open the server socket and start accepting connections.
+   *
+   * @param mojo the mojo to log to and to read the metrics configuration from
+   * @param failFastThreshold number of failures stopping the run, {@code 0} to never stop it
+   */
+  EventCollector(JUnitPlatformMojo mojo, int failFastThreshold) throws IOException {
+    this.mojo = mojo;
+    this.failFastThreshold = failFastThreshold;
+    this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    var acceptor = new Thread(this::accept, "junit-platform-event-acceptor");
+    acceptor.setDaemon(true);
+    acceptor.start();
+    this.metrics = mojo.isMetrics() ? new TestMetrics(mojo, this).start() : null;
+  }
+
+  /** Java option activating the event stream listener in a forked JVM. */
+  String getJavaOption() {
+    return "-D" + EventStreamListener.PROPERTY + "=" + server.getLocalPort();
+  }
+
+  /** Put the access token into the environment of a forked JVM. */
+  void addEnvironment(Map<String, String> environment) {
+    environment.put(EventStreamListener.TOKEN, token);
+  }
+
+  private void accept() {
+    while (!server.isClosed()) {
+      try {
+        var socket = server.accept();
+        var reader = new Thread(() -> read(socket), "junit-platform-event-reader");
+        reader.setDaemon(true);
+        readers.add(reader);
+        reader.start();
+      } catch (IOException e) {
+        // server socket closed
+      }
+    }
+  }
+
+  private void read(Socket socket) {
+    var results = new HashMap<Integer, Result>();
+    var pid = -1L;
+    try (socket) {
+      var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      if (!token.equals(in.readUTF())) {
+        mojo.getLog().warn("Rejected event stream connection without a valid token");
+        return;
+      }
+      while (true) {
+        var type = in.readByte();
+        if (type == EventStreamListener.END) {
+          break;
+        }
+        if (type == EventStreamListener.RESOURCES) {
+          pid = in.readLong();
+          resources.put(pid, new long[] {in.readLong(), in.readLong()});
+          continue;
+        }
+        lastEventMillis = System.currentTimeMillis();
+        var id = in.readInt();
+        if (type == EventStreamListener.FINISHED) {
+          var status = Result.Status.values()[in.readByte()];
+          var nanos = in.readLong();
+          var details = readString(in);
+          var result = results.get(id);
+          if (result != null) {
+            finished(result, status, Duration.ofNanos(nanos), details);
+          }
+          continue;
+        }
+        var result = new Result(in.readBoolean(), readString(in), readString(in));
+        results.put(id, result);
+        if (type == EventStreamListener.SKIPPED) {
+          finished(result, Result.Status.SKIPPED, Duration.ZERO, readString(in));
+          continue;
+        }
+        if (result.isTest()) {
+          started.incrementAndGet();
+          running.add(result);
+        }
+      }
+    } catch (EOFException e) {
+      if (!isStopped()) {
+        mojo.getLog().warn("Event stream ended unexpectedly, the forked JVM is gone");
+      }
+    } catch (IOException e) {
+      if (!isStopped()) {
+        mojo.getLog().warn("Reading event stream failed", e);
+      }
+    }
+    // Keep tests that were started, but didn't finish: their status remains null
+    for (var result : results.values()) {
+      if (result.isTest() && result.getStatus() == null) {
+        this.results.add(result);
+        running.remove(result);
+      }
+    }
+    // The heap of a launcher execution that ended is no longer in use, its CPU time was spent
+    resources.computeIfPresent(pid, (key, values) -> new long[] {0, values[1]});
+  }
+
+  private void finished(Result result, Result.Status status, Duration duration, String details) {
+    result.status = status;
+    result.duration = duration;
+    result.details = details;
+    results.add(result);
+    running.remove(result);
+    if (!result.isTest()) {
+      if (status == Result.Status.FAILED) {
+        containersFailed.incrementAndGet();
+        mojo.getLog().error("Container failed: " + result);
+        checkFailFastThreshold();
+      }
+      return;
+    }
+    switch (status) {
+      case SUCCESSFUL:
+        successful.incrementAndGet();
+        break;
+      case ABORTED:
+        aborted.incrementAndGet();
+        break;
+      case FAILED:
+        failed.incrementAndGet();
+        mojo.getLog().error("Test failed: " + result);
+        break;
+      case SKIPPED:
+        skipped.incrementAndGet();
+        break;
+    }
+    checkFailFastThreshold();
+  }
+
+  private void checkFailFastThreshold() {
+    if (failFastThreshold <= 0) {
+      return;
+    }
+    if (getTestsFailed() + getContainersFailed() < failFastThreshold) {
+      return;
+    }
+    if (stopped.compareAndSet(false, true)) {
+      var s = failFastThreshold == 1 ? "" : "s";
+      mojo.getLog()
+          .error("Fail-fast threshold of " + failFastThreshold + " failure" + s + " reached");
+      Runnable action;
+      while ((action = stopActions.poll()) != null) {
+        action.run();
+      }
+    }
+  }
+
+  /**
+   * Register an action to run when the fail-fast threshold is reached.
+   *
+   * <p>If the threshold was already reached, the action is run immediately.
+   */
+  void onFailFast(Runnable action) {
+    stopActions.add(action);
+    if (isStopped() && stopActions.remove(action)) {
+      action.run();
+    }
+  }
+
+  /** Return {@code true} if the fail-fast threshold was reached. */
+  boolean isStopped() {
+    return stopped.get();
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    var bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Stop accepting connections and wait for all streams to end. */
+  @Override
+  public void close() throws IOException {
+    server.close();
+    for (var reader : readers) {
+      try {
+        reader.join(TimeUnit.SECONDS.toMillis(10));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    if (metrics != null) {
+      metrics.close();
+    }
+  }
+
+  long getTestsStarted() {
+    return started.get();
+  }
+
+  long getTestsSuccessful() {
+    return successful.get();
+  }
+
+  long getTestsAborted() {
+    return aborted.get();
+  }
+
+  long getTestsFailed() {
+    return failed.get();
+  }
+
+  long getTestsSkipped() {
+    return skipped.get();
+  }
+
+  long getContainersFailed() {
+    return containersFailed.get();
+  }
+
+  /** Time elapsed since this collector was created. */
+  Duration getElapsed() {
+    return Duration.ofNanos(System.nanoTime() - startNanos);
+  }
+
+  /** Time of the last test execution event received, in milliseconds since the epoch. */
+  long getLastEventMillis() {
+    return lastEventMillis;
+  }
+
+  /** Tests started, but not finished yet, sorted by name. */
+  List<String> getRunningTests() {
+    return running.stream().map(Result::toString).sorted().collect(Collectors.toList());
+  }
+
+  /** Heap in use by all forked JVMs running tests, in bytes. */
+  long getForkHeapUsed() {
+    return resources.values().stream().mapToLong(values -> values[0]).sum();
+  }
+
+  /** CPU time consumed by all forked JVMs, as last reported by them. */
+  Duration getForkCpuTime() {
+    return Duration.ofNanos(resources.values().stream().mapToLong(values -> values[1]).sum());
+  }
+
+  /** Snapshot of all finished tests and containers. */
+  List<Result> getResults() {
+    return new ArrayList<>(results);
+  }
+
+  /** Print failures with their first line, a summary and, in debug mode, the slowest tests. */
+  void report() {
+    var log = mojo.getLog();
+    var failures =
+        getResults()
+            .stream()
+            .filter(result -> result.getStatus() == Result.Status.FAILED)
+            .collect(Collectors.toList());
+    for (var failure : failures) {
+      log.error(failure + " => " + failure.getDetails().split("\\R", 2)[0]);
+    }
+    var summary =
+        String.format(
+            "Tests run: %d, Failures: %d, Aborted: %d, Skipped: %d, Container failures: %d",
+            getTestsStarted(),
+            getTestsFailed(),
+            getTestsAborted(),
+            getTestsSkipped(),
+            getContainersFailed());
+    var interrupted =
+        getResults()
+            .stream()
+            .filter(result -> result.getStatus() == null)
+            .map(Result::toString)
+            .collect(Collectors.toList());
+    if (!interrupted.isEmpty()) {
+      log.warn(interrupted.size() + " tests did not finish: " + interrupted);
+    }
+    if (failures.isEmpty()) {
+      log.info(summary);
+    } else {
+      log.error(summary);
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Slowest tests");
+      getResults()
+          .stream()
+          .filter(result -> result.isTest() && result.getStatus() != null)
+          .filter(result -> result.getStatus() != Result.Status.SKIPPED)
+          .sorted(Comparator.comparing(Result::getDuration).reversed())
+          .limit(10)
+          .forEach(r -> log.debug(String.format("  %6d ms %s", r.getDuration().toMillis(), r)));
+    }
+  }
+
+  /**
+   * Write a report in the legacy XML format containing the selected tests and failed containers.
+   *
+   * <p>Tests that did not finish are reported as skipped.
+   */
+  void writeReport(Path file, Predicate<Result> filter) throws IOException {
+    var selected =
+        getResults()
+            .stream()
+            .filter(result -> result.isTest() || result.getStatus() == Result.Status.FAILED)
+            .filter(filter)
+            .collect(Collectors.toList());
+    var failures = selected.stream().filter(r -> r.getStatus() == Result.Status.FAILED).count();
+    var skips =
+        selected
+            .stream()
+            .filter(r -> r.getStatus() == null || r.getStatus() == Result.Status.SKIPPED)
+            .count();
+    var time = selected.stream().map(Result::getDuration).reduce(Duration.ZERO, Duration::plus);
+    var name = file.getFileName().toString().replaceAll("^TEST-|\\.xml$", "");
+    try (var stream = Files.newOutputStream(file)) {
+      var xml = XMLOutputFactory.newFactory().createXMLStreamWriter(stream, "UTF-8");
+      xml.writeStartDocument("UTF-8", "1.0");
+      xml.writeStartElement("testsuite");
+      xml.writeAttribute("name", name);
+      xml.writeAttribute("tests", String.valueOf(selected.size()));
+      xml.writeAttribute("skipped", String.valueOf(skips));
+      xml.writeAttribute("failures", String.valueOf(failures));
+      xml.writeAttribute("errors", "0");
+      xml.writeAttribute("time", toSeconds(time));
+      for (var result : selected) {
+        xml.writeStartElement("testcase");
+        xml.writeAttribute("name", result.getDisplayName());
+        xml.writeAttribute("classname", result.getClassName());
+        xml.writeAttribute("time", toSeconds(result.getDuration()));
+        var status = result.getStatus();
+        if (status == null) {
+          xml.writeEmptyElement("skipped");
+          xml.writeAttribute("message", "did not finish");
+        } else if (status == Result.Status.SKIPPED || status == Result.Status.ABORTED) {
+          xml.writeStartElement("skipped");
+          xml.writeCharacters(result.getDetails());
+          xml.writeEndElement();
+        } else if (status == Result.Status.FAILED) {
+          var message = result.getDetails().split("\\R", 2)[0];
+          xml.writeStartElement("failure");
+          xml.writeAttribute("message", message);
+          xml.writeAttribute("type", message.split(":", 2)[0]);
+          xml.writeCharacters(result.getDetails());
+          xml.writeEndElement();
+        }
+        xml.writeEndElement();
+      }
+      xml.writeEndElement();
+      xml.writeEndDocument();
+      xml.close();
+    } catch (XMLStreamException e) {
+      throw new IOException("Writing report failed: " + file, e);
+    }
+  }
+
+  private static String toSeconds(Duration duration) {
+    return String.format(Locale.ROOT, "%.3f", duration.toNanos() / 1e9);
+  }
+}
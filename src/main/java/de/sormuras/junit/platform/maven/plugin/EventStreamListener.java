@@ -0,0 +1,233 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.engine.support.descriptor.MethodSource;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+
+/**
+ * Streams compact binary test execution events from a forked JVM to the mojo.
+ *
+ * <p>This listener is registered via the {@link java.util.ServiceLoader} mechanism and becomes
+ * active only if the system property {@value #PROPERTY} holds the port of the mojo's loopback
+ * server socket. The listener first sends the access token found in the {@value #TOKEN} environment
+ * variable. Each event starts with a type byte followed by the numeric id of the test or container:
+ *
+ * <ul>
+ *   <li>{@code 'S'} started: id, is-test flag, class name, display name
+ *   <li>{@code 'K'} skipped: id, is-test flag, class name, display name, reason
+ *   <li>{@code 'F'} finished: id, status ordinal, duration in nanoseconds, stack trace or empty
+ *   <li>{@code 'R'} resources, every second: process id, used heap and CPU time in nanoseconds
+ *   <li>{@code 'X'} end of test plan execution
+ * </ul>
+ *
+ * <p>This class is loaded by the forked JVM only. It must not be touched by the mojo, which runs
+ * without the JUnit Platform Launcher API on its class path.
+ */
+public class EventStreamListener implements TestExecutionListener {
+
+  static final String PROPERTY = "junit.platform.maven.plugin.events";
+
+  static final String TOKEN = "JUNIT_PLATFORM_EVENTS_TOKEN";
+
+  static final int STARTED = 'S';
+  static final int SKIPPED = 'K';
+  static final int FINISHED = 'F';
+  static final int RESOURCES = 'R';
+  static final int END = 'X';
+
+  private static final long FLUSH_INTERVAL_MILLIS = 100;
+
+  private static final int RESOURCES_INTERVAL_FLUSHES = 10;
+
+  private final Map<String, Integer> ids = new HashMap<>();
+  private final Map<Integer, Long> starts = new HashMap<>();
+  private DataOutputStream out;
+  private Socket socket;
+
+  public EventStreamListener() {}
+
+  EventStreamListener(DataOutputStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public synchronized void testPlanExecutionStarted(TestPlan testPlan) {
+    var port = System.getProperty(PROPERTY);
+    if (out != null || port == null) {
+      return;
+    }
+    try {
+      socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(port));
+      out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      out.writeUTF(String.valueOf(System.getenv(TOKEN)));
+      var flusher = new Thread(this::flushPeriodically, "junit-platform-event-stream");
+      flusher.setDaemon(true);
+      flusher.start();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Connecting to event stream port " + port + " failed", e);
+    }
+  }
+
+  @Override
+  public synchronized void testPlanExecutionFinished(TestPlan testPlan) {
+    if (out == null) {
+      return;
+    }
+    try {
+      out.writeByte(END);
+      out.flush();
+      if (socket != null) {
+        socket.close();
+        out = null;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Closing event stream failed", e);
+    }
+  }
+
+  @Override
+  public synchronized void executionSkipped(TestIdentifier identifier, String reason) {
+    if (out == null) {
+      return;
+    }
+    try {
+      out.writeByte(SKIPPED);
+      writeIdentifier(identifier);
+      writeString(reason == null ? "" : reason);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Writing event failed", e);
+    }
+  }
+
+  @Override
+  public synchronized void executionStarted(TestIdentifier identifier) {
+    if (out == null) {
+      return;
+    }
+    try {
+      out.writeByte(STARTED);
+      var id = writeIdentifier(identifier);
+      starts.put(id, System.nanoTime());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Writing event failed", e);
+    }
+  }
+
+  @Override
+  public synchronized void executionFinished(
+      TestIdentifier identifier, TestExecutionResult result) {
+    if (out == null) {
+      return;
+    }
+    var id = ids.get(identifier.getUniqueId());
+    if (id == null) {
+      return;
+    }
+    var start = starts.remove(id);
+    try {
+      out.writeByte(FINISHED);
+      out.writeInt(id);
+      out.writeByte(result.getStatus().ordinal());
+      out.writeLong(start == null ? 0 : System.nanoTime() - start);
+      writeString(result.getThrowable().map(EventStreamListener::toString).orElse(""));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Writing event failed", e);
+    }
+  }
+
+  // Assign a numeric id and write it followed by the static details
+  private int writeIdentifier(TestIdentifier identifier) throws IOException {
+    var id = ids.size();
+    ids.put(identifier.getUniqueId(), id);
+    var className = "";
+    var source = identifier.getSource().orElse(null);
+    if (source instanceof MethodSource) {
+      className = ((MethodSource) source).getClassName();
+    }
+    if (source instanceof ClassSource) {
+      className = ((ClassSource) source).getClassName();
+    }
+    out.writeInt(id);
+    out.writeBoolean(identifier.isTest());
+    writeString(className);
+    writeString(identifier.getDisplayName());
+    return id;
+  }
+
+  // Used heap and CPU time of this JVM
+  private void writeResources() throws IOException {
+    var runtime = Runtime.getRuntime();
+    var process = ProcessHandle.current();
+    var cpu = process.info().totalCpuDuration().map(Duration::toNanos).orElse(0L);
+    out.writeByte(RESOURCES);
+    out.writeLong(process.pid());
+    out.writeLong(runtime.totalMemory() - runtime.freeMemory());
+    out.writeLong(cpu);
+  }
+
+  // Unlike writeUTF(), strings of any length are supported
+  private void writeString(String string) throws IOException {
+    var bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  // Events are buffered, push them to the mojo every 100 milliseconds
+  private void flushPeriodically() {
+    for (long flushes = 0; ; flushes++) {
+      try {
+        Thread.sleep(FLUSH_INTERVAL_MILLIS);
+      } catch (InterruptedException e) {
+        return;
+      }
+      synchronized (this) {
+        if (out == null) {
+          return;
+        }
+        try {
+          if (flushes % RESOURCES_INTERVAL_FLUSHES == 0) {
+            writeResources();
+          }
+          out.flush();
+        } catch (IOException e) {
+          return;
+        }
+      }
+    }
+  }
+
+  private static String toString(Throwable throwable) {
+    var writer = new StringWriter();
+    throwable.printStackTrace(new PrintWriter(writer));
+    return writer.toString();
+  }
+}
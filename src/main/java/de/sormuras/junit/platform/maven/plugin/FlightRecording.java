@@ -0,0 +1,265 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Records forked JVMs with the Java Flight Recorder and summarizes the recordings.
+ *
+ * <p>Recordings are started with the low-overhead {@code default} settings and dumped to {@code
+ * .jfr} files when the forked JVM exits. The summary lists the methods most often seen on top of
+ * the stack by execution samples, the top allocation sites, garbage collection pauses, contended
+ * monitors and the slowest test classes of the run.
+ *
+ * <p>The {@code jdk.jfr.consumer} API is accessed reflectively, as it is only available on Java 11
+ * and later.
+ */
+class FlightRecording {
+
+  /** Number of entries listed per table. */
+  static final int TOP = 10;
+
+  private final JUnitPlatformMojo mojo;
+  private final Path directory;
+  private final List<Path> files = new ArrayList<>();
+  private final Map<String, Method> methods = new HashMap<>();
+
+  private final Map<String, Long> samples = new HashMap<>();
+  private final Map<String, Long> allocations = new HashMap<>();
+  private final Map<String, Long> contentions = new HashMap<>();
+  private final Map<String, Long> contentionNanos = new HashMap<>();
+  private long sampleCount;
+  private long collections;
+  private long pauseNanos;
+  private long longestPauseNanos;
+
+  FlightRecording(JUnitPlatformMojo mojo, Path directory) {
+    this.mojo = mojo;
+    this.directory = directory;
+  }
+
+  /** Java Flight Recorder is open-sourced and available since Java 11. */
+  static boolean isSupported(List<String> command) {
+    var feature = ClassDataSharing.getFeatureVersion(command.get(0));
+    return feature.isPresent() && feature.get() >= 11;
+  }
+
+  /** Delete recordings of previous runs. */
+  void prepare() throws IOException {
+    if (Files.exists(directory)) {
+      try (var paths = Files.list(directory)) {
+        for (var path : paths.collect(Collectors.toList())) {
+          Files.deleteIfExists(path);
+        }
+      }
+    }
+    Files.createDirectories(directory);
+  }
+
+  /**
+   * Create the Java option starting a recording when the JVM starts.
+   *
+   * @param name file name of the recording, without extension
+   * @return the {@code -XX:StartFlightRecording} option
+   */
+  String createJavaOption(String name) {
+    var file = directory.resolve(name + ".jfr");
+    files.add(file);
+    return "-XX:StartFlightRecording=settings=default,dumponexit=true,filename=" + file;
+  }
+
+  /** Read all recordings and log the summary. */
+  void summarize(Optional<Path> reports, Instant start) {
+    var log = mojo.getLog();
+    var recordings = files.stream().filter(Files::isRegularFile).collect(Collectors.toList());
+    if (recordings.isEmpty()) {
+      log.warn("No flight recording found in " + directory);
+      return;
+    }
+    try {
+      for (var recording : recordings) {
+        read(recording);
+      }
+    } catch (ReflectiveOperationException e) {
+      log.warn("Reading flight recordings requires Java 11 or later: " + e);
+      return;
+    } catch (IOException e) {
+      log.warn("Reading flight recording failed: " + e);
+      return;
+    }
+    log.info("");
+    log.info(String.format("Profile of %d recording(s) in %s", recordings.size(), directory));
+    log.info(String.format("Top CPU methods (%d execution samples)", sampleCount));
+    top(samples).forEach(e -> log.info(String.format("  %5.1f%% %s", percent(e), e.getKey())));
+    log.info("Top allocation sites");
+    top(allocations)
+        .forEach(e -> log.info(String.format("  %,12d KB %s", e.getValue() / 1024, e.getKey())));
+    log.info(
+        String.format(
+            "Garbage collection: %d collections, total pause %d ms, longest pause %d ms",
+            collections, pauseNanos / 1_000_000, longestPauseNanos / 1_000_000));
+    log.info("Lock contention");
+    top(contentionNanos)
+        .forEach(
+            e ->
+                log.info(
+                    String.format(
+                        "  %,8d ms %,6dx %s",
+                        e.getValue() / 1_000_000, contentions.get(e.getKey()), e.getKey())));
+    if (!reports.isPresent()) {
+      return;
+    }
+    log.info("Slowest test classes");
+    try {
+      // Only used to parse the reports of this run, never saved
+      var history = new DurationHistory(directory.resolve("durations.tsv"));
+      history.recordReports(reports.get(), start);
+      var names = history.sortLongestFirst(history.getClassNames());
+      for (var name : names.subList(0, Math.min(TOP, names.size()))) {
+        var millis = history.getPercentile(name, 50).orElse(Duration.ZERO).toMillis();
+        log.info(String.format("  %,8d ms %s", millis, name));
+      }
+    } catch (IOException e) {
+      log.warn("Reading test reports failed: " + e);
+    }
+  }
+
+  private double percent(Map.Entry<String, Long> entry) {
+    return entry.getValue() * 100.0 / Math.max(1, sampleCount);
+  }
+
+  private static List<Map.Entry<String, Long>> top(Map<String, Long> map) {
+    return map.entrySet()
+        .stream()
+        .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+        .limit(TOP)
+        .collect(Collectors.toList());
+  }
+
+  // new RecordingFile(path) and iterate its events, see jdk.jfr.consumer.RecordingFile
+  private void read(Path recording) throws ReflectiveOperationException, IOException {
+    var type = Class.forName("jdk.jfr.consumer.RecordingFile");
+    var file = (AutoCloseable) type.getConstructor(Path.class).newInstance(recording);
+    try {
+      while ((Boolean) call(file, "hasMoreEvents")) {
+        accept(call(file, "readEvent"));
+      }
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw e;
+    } finally {
+      try {
+        file.close();
+      } catch (Exception e) {
+        // ignore
+      }
+    }
+  }
+
+  private void accept(Object event) throws ReflectiveOperationException {
+    var name = (String) call(call(event, "getEventType"), "getName");
+    switch (name) {
+      case "jdk.ExecutionSample":
+        sampleCount++;
+        samples.merge(getTopFrame(event), 1L, Long::sum);
+        break;
+      case "jdk.ObjectAllocationSample":
+        allocations.merge(getTopFrame(event), getLong(event, "weight"), Long::sum);
+        break;
+      case "jdk.ObjectAllocationInNewTLAB":
+        allocations.merge(getTopFrame(event), getLong(event, "tlabSize"), Long::sum);
+        break;
+      case "jdk.ObjectAllocationOutsideTLAB":
+        allocations.merge(getTopFrame(event), getLong(event, "allocationSize"), Long::sum);
+        break;
+      case "jdk.GarbageCollection":
+        collections++;
+        pauseNanos += getDuration(event, "sumOfPauses").toNanos();
+        longestPauseNanos =
+            Math.max(longestPauseNanos, getDuration(event, "longestPause").toNanos());
+        break;
+      case "jdk.JavaMonitorEnter":
+        var monitor = call(event, "getClass", "monitorClass");
+        var key = monitor == null ? "<unknown>" : (String) call(monitor, "getName");
+        contentions.merge(key, 1L, Long::sum);
+        contentionNanos.merge(key, ((Duration) call(event, "getDuration")).toNanos(), Long::sum);
+        break;
+      default:
+    }
+  }
+
+  // "type.method" of the top-most Java frame
+  private String getTopFrame(Object event) throws ReflectiveOperationException {
+    var trace = call(event, "getStackTrace");
+    if (trace == null) {
+      return "<unknown>";
+    }
+    for (var frame : (List<?>) call(trace, "getFrames")) {
+      if (!(Boolean) call(frame, "isJavaFrame")) {
+        continue;
+      }
+      var method = call(frame, "getMethod");
+      var type = (String) call(call(method, "getType"), "getName");
+      return type + '.' + call(method, "getName");
+    }
+    return "<unknown>";
+  }
+
+  private long getLong(Object event, String field) throws ReflectiveOperationException {
+    return (Boolean) call(event, "hasField", field) ? (Long) call(event, "getLong", field) : 0;
+  }
+
+  private Duration getDuration(Object event, String field) throws ReflectiveOperationException {
+    return (Boolean) call(event, "hasField", field)
+        ? (Duration) call(event, "getDuration", field)
+        : Duration.ZERO;
+  }
+
+  private Object call(Object target, String name) throws ReflectiveOperationException {
+    return find(target.getClass(), name).invoke(target);
+  }
+
+  private Object call(Object target, String name, String argument)
+      throws ReflectiveOperationException {
+    return find(target.getClass(), name, String.class).invoke(target, argument);
+  }
+
+  private Method find(Class<?> type, String name, Class<?>... parameterTypes)
+      throws NoSuchMethodException {
+    var key = type.getName() + '#' + name + '#' + parameterTypes.length;
+    var method = methods.get(key);
+    if (method == null) {
+      method = type.getMethod(name, parameterTypes);
+      methods.put(key, method);
+    }
+    return method;
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.zip.ZipFile;
+
+/**
+ * Small jar files holding the fork-side classes of this plugin.
+ *
+ * <p>Forked JVMs must not see the entire plugin archive: it contains classes depending on the Maven
+ * API and would register its service files with the tests. Instead, only the classes needed by the
+ * fork, including their nested classes, are copied from the plugin archive into a jar file below
+ * the build directory. The file is rewritten only if its content changed.
+ */
+class ForkArchive {
+
+  /** Archive running the {@link ForkWorker}. */
+  static Path worker(Path directory) throws IOException {
+    var classes = List.of(ForkWorker.class.getName());
+    return create(directory.resolve("fork-worker.jar"), classes, Map.of());
+  }
+
+  /**
+   * Archive running the {@link Daemon}, which launches tests via the {@link IsolatedLauncher}.
+   *
+   * @param jar the jar file to write, daemons are shared across builds and need their own one
+   */
+  static Path daemon(Path jar) throws IOException {
+    var classes =
+        List.of(
+            Daemon.class.getName(),
+            IsolatedLauncher.class.getName(),
+            LaunchRequest.class.getName(),
+            ForkWorker.class.getName());
+    return create(jar, classes, Map.of());
+  }
+
+  /**
+   * Archive registering the {@link EventStreamListener} as a test execution listener.
+   *
+   * <p>The listener is referenced by name only: the plugin realm can't load it without the JUnit
+   * Platform Launcher API.
+   */
+  static Path eventStream(Path directory) throws IOException {
+    var service = "META-INF/services/org.junit.platform.launcher.TestExecutionListener";
+    var listener = "de.sormuras.junit.platform.maven.plugin.EventStreamListener";
+    return create(
+        directory.resolve("event-stream.jar"), List.of(listener), Map.of(service, listener + "\n"));
+  }
+
+  /**
+   * Create the jar file holding the given classes and text resources.
+   *
+   * @param jar the jar file to write
+   * @param classes names of top-level classes to copy from the plugin archive, with their nested
+   *     classes
+   * @param resources names and contents of additional text resources
+   * @return the jar file
+   */
+  static Path create(Path jar, List<String> classes, Map<String, String> resources)
+      throws IOException {
+    var entries = new TreeMap<String, byte[]>();
+    resources.forEach((name, text) -> entries.put(name, text.getBytes(StandardCharsets.UTF_8)));
+    var location = Paths.get(ForkWorker.getLocation());
+    for (var type : classes) {
+      var prefix = type.replace('.', '/');
+      if (Files.isDirectory(location)) {
+        try (var paths = Files.walk(location)) {
+          for (var path : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+            var name = location.relativize(path).toString().replace('\\', '/');
+            if (isClassOf(name, prefix)) {
+              entries.put(name, Files.readAllBytes(path));
+            }
+          }
+        }
+        continue;
+      }
+      try (var zip = new ZipFile(location.toFile())) {
+        for (var entry : zip.stream().collect(Collectors.toList())) {
+          if (isClassOf(entry.getName(), prefix)) {
+            try (var stream = zip.getInputStream(entry)) {
+              entries.put(entry.getName(), stream.readAllBytes());
+            }
+          }
+        }
+      }
+    }
+    var bytes = new ByteArrayOutputStream();
+    try (var out = new JarOutputStream(bytes)) {
+      for (var entry : entries.entrySet()) {
+        var jarEntry = new JarEntry(entry.getKey());
+        jarEntry.setTime(0); // same content, same bytes
+        out.putNextEntry(jarEntry);
+        out.write(entry.getValue());
+        out.closeEntry();
+      }
+    }
+    var content = bytes.toByteArray();
+    if (Files.isRegularFile(jar) && Arrays.equals(content, Files.readAllBytes(jar))) {
+      return jar;
+    }
+    Files.createDirectories(jar.getParent());
+    Files.write(jar, content);
+    return jar;
+  }
+
+  // The class file of the top-level class itself or of one of its nested classes
+  private static boolean isClassOf(String name, String prefix) {
+    return name.equals(prefix + ".class")
+        || name.startsWith(prefix + "$") && name.endsWith(".class");
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.WeakHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps the number of forked JVMs running concurrently within a Maven session.
+ *
+ * <p>With a parallel reactor build every module launches its own forks. The governor is shared by
+ * all modules, it hands out a fixed number of fork slots in request order and assigns every fork an
+ * equal share of the processors and memory of the machine or, if limited, the control group the
+ * build runs in. A quarter of the memory not taken by the Maven JVM's heap is left for non-heap
+ * memory of the forks.
+ *
+ * <p>Governors are kept per Maven session, keyed by an object all modules of the session share, and
+ * are dropped with the session. Thus a later build in the same JVM, for example in an embedded
+ * Maven or a Maven daemon, starts with a fresh governor. The first module requesting the governor
+ * of a session determines its limits.
+ */
+class ForkGovernor {
+
+  /** Smallest heap a fork is assigned when deriving the number of slots from memory. */
+  static final long MINIMUM_HEAP = 512L << 20;
+
+  private static final Map<Object, ForkGovernor> GOVERNORS = new WeakHashMap<>();
+
+  /**
+   * Get the governor of the session, creating it with the given limits on first use.
+   *
+   * @param session key of the session, shared by all of its modules
+   * @param maxForks maximum number of concurrent forks, {@code 0} derives it from the budgets
+   */
+  static synchronized ForkGovernor of(Object session, int maxForks) {
+    return GOVERNORS.computeIfAbsent(
+        session,
+        key -> {
+          var processors = Runtime.getRuntime().availableProcessors();
+          var memory = readTotalMemory();
+          var reserved = Runtime.getRuntime().maxMemory();
+          var quota = ControlGroup.readCpuQuota();
+          return new ForkGovernor(processors, quota, memory, reserved, maxForks);
+        });
+  }
+
+  private final int maxForks;
+  private final int slots;
+  private final int processors;
+  private final long heap;
+  private final Semaphore semaphore;
+
+  /**
+   * Create a governor.
+   *
+   * @param processors number of available processors
+   * @param quota CPU quota in processors, if any
+   * @param memory total memory in bytes
+   * @param reserved memory in bytes not to hand out to forks
+   * @param maxForks maximum number of concurrent forks, {@code 0} derives it from the budgets
+   */
+  ForkGovernor(int processors, OptionalDouble quota, long memory, long reserved, int maxForks) {
+    var cpus = processors;
+    if (quota.isPresent()) {
+      cpus = Math.max(1, Math.min(processors, (int) Math.ceil(quota.getAsDouble())));
+    }
+    var heaps = Math.max(0, memory - reserved) / 4 * 3;
+    this.maxForks = maxForks;
+    this.slots = maxForks > 0 ? maxForks : (int) Math.max(1, Math.min(cpus, heaps / MINIMUM_HEAP));
+    this.processors = Math.max(1, cpus / slots);
+    this.heap = Math.max(64L << 20, heaps / slots) >> 20 << 20;
+    this.semaphore = new Semaphore(slots, true);
+  }
+
+  /** Maximum number of concurrent forks requested when creating this governor. */
+  int getMaxForks() {
+    return maxForks;
+  }
+
+  /** Number of forks running concurrently. */
+  int getSlots() {
+    return slots;
+  }
+
+  /** Number of processors per fork. */
+  int getProcessors() {
+    return processors;
+  }
+
+  /** Maximum heap size per fork in bytes. */
+  long getHeap() {
+    return heap;
+  }
+
+  /** Number of slots not taken by a running fork. */
+  int getAvailableSlots() {
+    return semaphore.availablePermits();
+  }
+
+  /**
+   * Create Java options applying the budget of a fork.
+   *
+   * @param options additional Java options configured by the user, they take precedence
+   * @return options setting the maximum heap size and the number of active processors
+   */
+  List<String> createJavaOptions(List<String> options) {
+    var heapOption = "-Xmx" + (heap >> 20) + "m";
+    var processorOption = "-XX:ActiveProcessorCount=" + processors;
+    var heapConfigured = startsWithAny(options, "-Xmx", "-XX:MaxHeapSize", "-XX:MaxRAM");
+    var processorConfigured = startsWithAny(options, "-XX:ActiveProcessorCount");
+    if (heapConfigured) {
+      return processorConfigured ? List.of() : List.of(processorOption);
+    }
+    return processorConfigured ? List.of(heapOption) : List.of(heapOption, processorOption);
+  }
+
+  /**
+   * Start a process as soon as a slot is free, the slot is freed when the process exits.
+   *
+   * <p>Waiting callers are served in request order, thus forks of all modules are queued fairly.
+   */
+  Process start(ProcessBuilder builder) throws IOException, InterruptedException {
+    semaphore.acquire();
+    try {
+      var process = builder.start();
+      process.onExit().thenRun(semaphore::release);
+      return process;
+    } catch (IOException | RuntimeException e) {
+      semaphore.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%d concurrent forks, %d MB heap and %d processors each", slots, heap >> 20, processors);
+  }
+
+  private static boolean startsWithAny(List<String> options, String... prefixes) {
+    for (var option : options) {
+      for (var prefix : prefixes) {
+        if (option.startsWith(prefix)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  // Physical memory of the machine, limited by the control group
+  static long readTotalMemory() {
+    var physical = Long.MAX_VALUE;
+    var bean = ManagementFactory.getOperatingSystemMXBean();
+    if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+      physical = ((com.sun.management.OperatingSystemMXBean) bean).getTotalPhysicalMemorySize();
+    }
+    var limit = ControlGroup.readMemoryLimit();
+    var total = limit.isPresent() ? Math.min(physical, limit.getAsLong()) : physical;
+    if (total == Long.MAX_VALUE) {
+      // unknown, assume four times the heap of this JVM
+      return Runtime.getRuntime().maxMemory() * 4;
+    }
+    return total;
+  }
+}
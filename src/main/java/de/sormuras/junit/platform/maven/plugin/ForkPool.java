@@ -0,0 +1,339 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Runs test classes in parallel forked JVMs.
+ *
+ * <p>The pool owns a queue of test class names. Each forked JVM runs a {@link ForkWorker} that
+ * pulls the next class whenever it finished the previous one. Slow classes therefore don't leave
+ * other forks idle.
+ *
+ * <p>Each fork writes its reports into a directory of its own. When all forks exited, the reports
+ * are moved into the reports directory and prefixed with the name of the test class they belong to.
+ * They are not merged into one suite summary: there is one report set per test class run.
+ *
+ * <p>Forks must present a per-run access token, passed via the {@value #TOKEN} environment
+ * variable, before they are handed out any test class.
+ */
+class ForkPool implements IntSupplier {
+
+  static final String TOKEN = "JUNIT_PLATFORM_FORK_TOKEN";
+
+  private final JUnitPlatformStarter starter;
+  private final JUnitPlatformMojo mojo;
+  private final Path target;
+  private final Path forks;
+  private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+  private final Queue<String> failed = new ConcurrentLinkedQueue<>();
+  private final Queue<Thread> handlers = new ConcurrentLinkedQueue<>();
+  private final Set<String> completed = ConcurrentHashMap.newKeySet();
+  private final List<String> cancelled = new ArrayList<>();
+  private volatile boolean stopped;
+  private final List<String> launcherOptions = new ArrayList<>();
+  private final String token = new BigInteger(130, new SecureRandom()).toString(32);
+
+  ForkPool(JUnitPlatformStarter starter, Path target) {
+    this.starter = starter;
+    this.mojo = starter.getMojo();
+    this.target = target;
+    this.forks = target.resolve("forks");
+  }
+
+  @Override
+  public int getAsInt() {
+    var log = mojo.getLog();
+    var build = mojo.getMavenProject().getBuild();
+    var classes = starter.selectTestClasses(mojo.getTestClasses());
+    if (classes.isEmpty()) {
+      log.warn("No test classes found in " + build.getTestOutputDirectory());
+      return 0;
+    }
+    var count = Math.min(mojo.getForkCount(), classes.size());
+    var governor = mojo.getForkGovernor();
+    if (governor.isPresent()) {
+      count = Math.min(count, governor.get().getSlots());
+    }
+    var cmd = new ArrayList<String>();
+    cmd.add(mojo.getJavaExecutable());
+    starter.addWorkerJavaOptions(cmd);
+    var classDataSharing = starter.addClassDataSharingOptions(cmd, target.resolve("cds"));
+    var events = starter.addEventStreamOptions(cmd);
+    starter.addForkGovernorOptions(cmd);
+    starter.addCommonLauncherOptions(launcherOptions);
+
+    // In dry-run mode, we're done here.
+    if (mojo.isDryRun()) {
+      log.info("Dry-run mode is active -- only printing command line and test classes");
+      cmd.forEach(log::info);
+      launcherOptions.forEach(log::info);
+      classes.forEach(log::info);
+      return 0;
+    }
+
+    log.info(String.format("Running %d test classes in %d forks...", classes.size(), count));
+    queue.addAll(classes);
+    ServerSocket server;
+    try {
+      server = new ServerSocket(0, count, InetAddress.getLoopbackAddress());
+    } catch (IOException e) {
+      log.error("Opening fork server socket failed", e);
+      return -1;
+    }
+    try {
+      deleteTree(forks);
+      Files.createDirectories(forks);
+      Files.write(target.resolve("console-launcher.cmd.log"), cmd);
+      var acceptor = new Thread(() -> accept(server), "junit-platform-fork-acceptor");
+      acceptor.setDaemon(true);
+      acceptor.start();
+      var processes = new ArrayList<Process>();
+      var pumps = new ArrayList<StreamPump>();
+      var threads = new ArrayList<Thread>();
+      var start = System.nanoTime();
+      for (int fork = 0; fork < count; fork++) {
+        var builder = new ProcessBuilder(new ArrayList<>(cmd));
+        builder.command().add(String.valueOf(server.getLocalPort()));
+        builder.command().add(String.valueOf(fork));
+        starter.addFlightRecordingOptions(builder.command(), "profile-" + fork);
+        builder.redirectInput(ProcessBuilder.Redirect.INHERIT);
+        builder.environment().put(TOKEN, token);
+        events.ifPresent(collector -> collector.addEnvironment(builder.environment()));
+        var process = starter.start(builder);
+        mojo.debug("Fork %d started: #%d", fork, process.pid());
+        var prefix = "[fork-" + fork + "] ";
+        var tail = mojo.getOutputTail();
+        var outputPath = target.resolve("console-launcher-" + fork + ".out.log");
+        var errorPath = target.resolve("console-launcher-" + fork + ".err.log");
+        var out =
+            new StreamPump(
+                process.getInputStream(), outputPath, l -> log.info(prefix + l), tail, log::warn);
+        var err =
+            new StreamPump(
+                process.getErrorStream(), errorPath, l -> log.warn(prefix + l), tail, log::warn);
+        threads.add(out.start("junit-platform-out-" + fork));
+        threads.add(err.start("junit-platform-err-" + fork));
+        processes.add(process);
+        pumps.add(out);
+        pumps.add(err);
+      }
+      if (events.isPresent()) {
+        events.get().onFailFast(() -> stop(processes));
+      }
+      var exitValue = waitFor(processes);
+      close(server); // stop accepting before waiting for the handlers
+      starter.join(threads);
+      starter.join(List.copyOf(handlers));
+      for (int i = 0; i < pumps.size(); i += 2) {
+        starter.printTail(stopped ? 1 : exitValue, pumps.get(i), pumps.get(i + 1));
+      }
+      moveReports();
+      starter.report(events);
+      if (stopped) {
+        synchronized (cancelled) {
+          if (!cancelled.isEmpty()) {
+            log.warn(cancelled.size() + " test classes were not executed: " + cancelled);
+          }
+        }
+        starter.writeFailFastReport(
+            events.get(),
+            result ->
+                !completed.contains(DurationHistory.getTopLevelClassName(result.getClassName())));
+        return 1;
+      }
+      if (classDataSharing.isPresent() && exitValue != -2) {
+        classDataSharing
+            .get()
+            .complete(JUnitPlatformStarter.getStartupDuration(start, pumps.get(0)));
+      }
+      if (exitValue != 0) {
+        return exitValue;
+      }
+      if (!queue.isEmpty()) {
+        log.error(queue.size() + " test classes were not executed, all forks are gone");
+        return -1;
+      }
+      if (!failed.isEmpty()) {
+        log.error(failed.size() + " test classes failed: " + failed);
+        return 1;
+      }
+      return 0;
+    } catch (IOException | InterruptedException e) {
+      log.error("Executing forks failed", e);
+      return -1;
+    } finally {
+      close(server);
+    }
+  }
+
+  private static void close(ServerSocket server) {
+    try {
+      server.close();
+    } catch (IOException e) {
+      // nothing left to release
+    }
+  }
+
+  // Fail-fast: hand out no more test classes and stop all forks
+  private void stop(List<Process> processes) {
+    stopped = true;
+    synchronized (cancelled) {
+      String name;
+      while ((name = queue.poll()) != null) {
+        cancelled.add(name);
+      }
+    }
+    processes.forEach(process -> JUnitPlatformStarter.stop(process.toHandle()));
+  }
+
+  // Wait for all forks to exit and combine their exit values
+  private int waitFor(List<Process> processes) throws InterruptedException {
+    var log = mojo.getLog();
+    var timeout = mojo.getTimeout().toMillis();
+    var deadline = System.currentTimeMillis() + timeout;
+    var exitValue = 0;
+    for (var process : processes) {
+      var remaining = Math.max(0, deadline - System.currentTimeMillis());
+      if (!process.waitFor(remaining, TimeUnit.MILLISECONDS)) {
+        log.error("Global timeout of " + mojo.getTimeout().toSeconds() + " seconds reached.");
+        var alive = processes.stream().filter(Process::isAlive).map(Process::toHandle);
+        new ProcessTerminator(mojo, target).terminate(alive.collect(Collectors.toList()));
+        return -2;
+      }
+      if (process.exitValue() != 0) {
+        exitValue = process.exitValue();
+      }
+    }
+    return exitValue;
+  }
+
+  private void accept(ServerSocket server) {
+    while (!server.isClosed()) {
+      try {
+        var socket = server.accept();
+        var handler = new Thread(() -> serve(socket), "junit-platform-fork-handler");
+        handler.setDaemon(true);
+        handlers.add(handler);
+        handler.start();
+      } catch (IOException e) {
+        // server socket closed
+      }
+    }
+  }
+
+  // Hand out test classes one by one until the queue is drained
+  private void serve(Socket socket) {
+    String name = null;
+    try (socket) {
+      var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      if (!token.equals(in.readUTF())) {
+        mojo.getLog().warn("Rejected fork connection without a valid token");
+        return;
+      }
+      var fork = in.readInt();
+      while ((name = queue.poll()) != null) {
+        var arguments = new ArrayList<>(launcherOptions);
+        arguments.add("--reports-dir");
+        arguments.add(forks.resolve(name).toString());
+        arguments.add("--select-class");
+        arguments.add(name);
+        mojo.debug("Fork %d executes %s", fork, name);
+        out.writeInt(arguments.size());
+        for (var argument : arguments) {
+          out.writeUTF(argument);
+        }
+        out.flush();
+        if (in.readInt() != 0) {
+          failed.add(name);
+        }
+        completed.add(name);
+        name = null;
+      }
+      out.writeInt(-1);
+      out.flush();
+    } catch (IOException e) {
+      if (name != null && !stopped) {
+        mojo.getLog().error("Fork crashed while executing " + name, e);
+        failed.add(name);
+      }
+    }
+  }
+
+  // Move per-class reports into the reports directory, prefixing each with its class name
+  private void moveReports() throws IOException {
+    var reportsPath = mojo.getReportsPath();
+    if (!reportsPath.isPresent()) {
+      return;
+    }
+    var reports = reportsPath.get();
+    Files.createDirectories(reports);
+    try (var directories = Files.list(forks)) {
+      for (var directory : directories.collect(Collectors.toList())) {
+        var name = directory.getFileName().toString();
+        if (stopped && !completed.contains(name)) {
+          continue; // stopped while running, reports may be incomplete
+        }
+        try (var files = Files.list(directory)) {
+          for (var file : files.collect(Collectors.toList())) {
+            var fileName = file.getFileName().toString();
+            var suffix = fileName.startsWith("TEST-") ? fileName.substring(5) : fileName;
+            var destination = reports.resolve("TEST-" + name + "-" + suffix);
+            Files.move(file, destination, StandardCopyOption.REPLACE_EXISTING);
+          }
+        }
+      }
+    }
+    deleteTree(forks);
+  }
+
+  static void deleteTree(Path root) throws IOException {
+    if (Files.notExists(root)) {
+      return;
+    }
+    try (var paths = Files.walk(root)) {
+      for (var path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(path);
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+}
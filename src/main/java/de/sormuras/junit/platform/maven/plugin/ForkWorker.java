@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+
+/**
+ * Fork-side entry point executing console launcher invocations sent by the plugin.
+ *
+ * <p>The worker connects to the plugin's loopback server socket, presents the access token found in
+ * the {@code JUNIT_PLATFORM_FORK_TOKEN} environment variable and announces its fork number. Then it
+ * repeatedly reads a list of console launcher arguments, executes them in this JVM and replies with
+ * the exit code. A negative argument count ends the loop.
+ *
+ * <p>This class is loaded by the forked JVM and must only depend on the Java SE API.
+ */
+class ForkWorker {
+
+  public static void main(String... args) throws Exception {
+    var port = Integer.parseInt(args[0]);
+    var fork = Integer.parseInt(args[1]);
+    try (var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      out.writeUTF(String.valueOf(System.getenv("JUNIT_PLATFORM_FORK_TOKEN")));
+      out.writeInt(fork);
+      out.flush();
+      while (true) {
+        var size = in.readInt();
+        if (size < 0) {
+          break;
+        }
+        var arguments = new String[size];
+        for (int i = 0; i < size; i++) {
+          arguments[i] = in.readUTF();
+        }
+        var loader = ForkWorker.class.getClassLoader();
+        var standardOut = uncloseable(System.out);
+        var standardErr = uncloseable(System.err);
+        out.writeInt(execute(loader, standardOut, standardErr, arguments));
+        out.flush();
+      }
+    }
+    // Don't wait for non-daemon threads started by tests
+    System.exit(0);
+  }
+
+  /** Execute the console launcher loaded by the given class loader and return its exit code. */
+  static int execute(ClassLoader loader, PrintStream out, PrintStream err, String... arguments) {
+    try {
+      var launcher = loader.loadClass("org.junit.platform.console.ConsoleLauncher");
+      var execute =
+          launcher.getMethod("execute", PrintStream.class, PrintStream.class, String[].class);
+      var result = execute.invoke(null, out, err, arguments);
+      return (int) result.getClass().getMethod("getExitCode").invoke(result);
+    } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+      e.printStackTrace(err);
+      return -1;
+    }
+  }
+
+  /**
+   * Wrap the stream into one that is flushed, but not closed, by the console launcher.
+   *
+   * <p>The console launcher closes its output streams when it is done. The returned stream must
+   * therefore be used for a single invocation only.
+   */
+  static PrintStream uncloseable(OutputStream stream) {
+    return new PrintStream(
+        new FilterOutputStream(stream) {
+          @Override
+          public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+          }
+
+          @Override
+          public void close() throws IOException {
+            flush();
+          }
+        },
+        true);
+  }
+
+  /** Return the location of the archive or directory containing this class. */
+  static String getLocation() {
+    try {
+      var location = ForkWorker.class.getProtectionDomain().getCodeSource().getLocation();
+      return Paths.get(location.toURI()).toString();
+    } catch (URISyntaxException e) {
+      throw new IllegalStateException("Locating fork worker failed", e);
+    }
+  }
+}
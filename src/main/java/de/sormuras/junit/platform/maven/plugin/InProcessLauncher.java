@@ -0,0 +1,129 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Executes the console launcher within the Maven JVM using the {@link IsolatedLauncher}.
+ *
+ * <p>Every execution uses its own class loader or module layer, its own output streams and its own
+ * thread. Test code still shares the Maven JVM with the build: it sees and may change global state
+ * like {@code System.out} or system properties. That's why the starter uses this launcher only if
+ * the session doesn't build modules in parallel via {@code -T}.
+ *
+ * <p>The global timeout can't be enforced: a Java thread can only be interrupted, not stopped. If
+ * the tests didn't end when the timeout is reached, the execution fails and the thread is left
+ * behind, still holding its class loader.
+ */
+class InProcessLauncher implements IntSupplier {
+
+  private static final AtomicInteger COUNTER = new AtomicInteger();
+
+  private final JUnitPlatformStarter starter;
+  private final JUnitPlatformMojo mojo;
+  private final Path target;
+
+  InProcessLauncher(JUnitPlatformStarter starter, Path target) {
+    this.starter = starter;
+    this.mojo = starter.getMojo();
+    this.target = target;
+  }
+
+  @Override
+  public int getAsInt() {
+    var log = mojo.getLog();
+    if (mojo.getOverrideJavaOptions().isPresent()) {
+      log.warn("Overridden Java options are not supported with fork=false, ignoring them");
+    }
+    var request = starter.createLaunchRequest();
+    if (request.getArguments().isEmpty()) {
+      log.warn(
+          "No test classes found in " + mojo.getMavenProject().getBuild().getTestOutputDirectory());
+      return 0;
+    }
+
+    // In dry-run mode, we're done here.
+    if (mojo.isDryRun()) {
+      log.info("Dry-run mode is active -- only printing launch request");
+      log.info(request.toString());
+      return 0;
+    }
+
+    try {
+      Files.write(target.resolve("console-launcher.cmd.log"), List.of(request.toString()));
+      return launch(request);
+    } catch (IOException | InterruptedException e) {
+      log.error("Executing console launcher in-process failed", e);
+      return -1;
+    }
+  }
+
+  private int launch(LaunchRequest request) throws IOException, InterruptedException {
+    var log = mojo.getLog();
+    var tail = mojo.getOutputTail();
+    var outputPath = target.resolve("console-launcher.out.log");
+    var errorPath = target.resolve("console-launcher.err.log");
+    // Lines are handed over in the writing thread: pipes break once their writer thread ended
+    var out = new StreamPump(outputPath, log::info, tail, log::warn);
+    var err = new StreamPump(errorPath, log::warn, tail, log::warn);
+    var exitValue = new AtomicInteger(-1);
+    var encoding = StandardCharsets.UTF_8.name();
+    var standardOut = new PrintStream(out.openOutputStream(), true, encoding);
+    var standardErr = new PrintStream(err.openOutputStream(), true, encoding);
+    var name = "junit-platform-in-process-" + COUNTER.incrementAndGet();
+    var thread =
+        new Thread(() -> exitValue.set(IsolatedLauncher.launch(request, standardOut, standardErr)));
+    thread.setName(name);
+    thread.setDaemon(true);
+    mojo.debug("Launching console launcher in thread " + name);
+    mojo.debug(request.toString());
+    thread.start();
+    try {
+      var timeout = mojo.getTimeout();
+      thread.join(timeout.toMillis());
+      if (thread.isAlive()) {
+        var seconds = timeout.toSeconds();
+        var s = seconds == 1 ? "" : "s";
+        log.error("Global timeout of " + seconds + " second" + s + " reached.");
+        log.error("Stack trace of thread " + name + ":");
+        for (var element : thread.getStackTrace()) {
+          log.error("  at " + element);
+        }
+        log.error("Interrupting thread " + name);
+        thread.interrupt();
+        thread.join(TimeUnit.SECONDS.toMillis(1));
+        if (thread.isAlive()) {
+          log.error("Thread " + name + " ignored the interrupt and keeps running in this JVM.");
+          log.error("Use a forked JVM to enforce timeouts, the default fork=true terminates it.");
+        }
+        return -2;
+      }
+    } finally {
+      standardOut.close();
+      standardErr.close();
+    }
+    starter.printTail(exitValue.get(), out, err);
+    return exitValue.get();
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.module.ModuleDescriptor;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReader;
+import java.lang.module.ModuleReference;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Executes the console launcher within the current JVM, isolated by a fresh class loader.
+ *
+ * <p>In class path mode a {@link URLClassLoader} with the platform class loader as its parent is
+ * used. In module path mode a new {@link ModuleLayer} is defined on top of the boot layer. Its
+ * configuration mirrors the {@code --add-modules}, {@code --patch-module}, {@code --add-reads} and
+ * {@code --add-opens} options a forked JVM would be launched with.
+ *
+ * <p>This class is loaded by the daemon JVM and must only depend on the Java SE API.
+ */
+class IsolatedLauncher {
+
+  static final String CONSOLE_MODULE = "org.junit.platform.console";
+
+  /** Launch the console launcher as described by the request and return its exit code. */
+  static int launch(LaunchRequest request, PrintStream out, PrintStream err) {
+    var thread = Thread.currentThread();
+    var context = thread.getContextClassLoader();
+    ClassLoader loader;
+    try {
+      loader = createClassLoader(request);
+    } catch (RuntimeException e) {
+      e.printStackTrace(err);
+      return -1;
+    }
+    try {
+      thread.setContextClassLoader(loader);
+      var arguments = request.getArguments().toArray(new String[0]);
+      var standardOut = ForkWorker.uncloseable(out);
+      var standardErr = ForkWorker.uncloseable(err);
+      return ForkWorker.execute(loader, standardOut, standardErr, arguments);
+    } finally {
+      thread.setContextClassLoader(context);
+      if (loader instanceof URLClassLoader) {
+        try {
+          ((URLClassLoader) loader).close();
+        } catch (IOException e) {
+          e.printStackTrace(err);
+        }
+      }
+    }
+  }
+
+  static ClassLoader createClassLoader(LaunchRequest request) {
+    if (request.isModular()) {
+      return createModuleLayer(request).findLoader(CONSOLE_MODULE);
+    }
+    var urls = request.getPaths().stream().map(IsolatedLauncher::toURL).toArray(URL[]::new);
+    return new URLClassLoader("junit-platform", urls, ClassLoader.getPlatformClassLoader());
+  }
+
+  static ModuleLayer createModuleLayer(LaunchRequest request) {
+    var paths = request.getPaths().stream().map(Paths::get).toArray(Path[]::new);
+    var finder = ModuleFinder.of(paths);
+    if (request.isPatched()) {
+      finder = patch(finder, request.getPatchModule(), Paths.get(request.getPatchPath()));
+    }
+    var roots = new HashSet<>(request.getAddModules());
+    roots.add(CONSOLE_MODULE);
+    var boot = ModuleLayer.boot();
+    var configuration = boot.configuration().resolveAndBind(finder, ModuleFinder.of(), roots);
+    var parent = ClassLoader.getPlatformClassLoader();
+    var controller = ModuleLayer.defineModulesWithOneLoader(configuration, List.of(boot), parent);
+    if (request.isPatched()) {
+      var layer = controller.layer();
+      var module = layer.findModule(request.getPatchModule()).orElseThrow();
+      for (var name : request.getAddReads()) {
+        layer.findModule(name).ifPresent(other -> controller.addReads(module, other));
+      }
+      for (var name : request.getAddOpens()) {
+        var other = layer.findModule(name);
+        if (other.isPresent()) {
+          module.getPackages().forEach(pack -> controller.addOpens(module, pack, other.get()));
+        }
+      }
+    }
+    return controller.layer();
+  }
+
+  // Emulate "--patch-module name=path" by replacing the module's reference
+  private static ModuleFinder patch(ModuleFinder finder, String name, Path path) {
+    var original =
+        finder
+            .find(name)
+            .orElseThrow(() -> new IllegalArgumentException("module not found: " + name));
+    var patched = new PatchedModuleReference(original, path);
+    return new ModuleFinder() {
+      @Override
+      public Optional<ModuleReference> find(String other) {
+        return name.equals(other) ? Optional.of(patched) : finder.find(other);
+      }
+
+      @Override
+      public Set<ModuleReference> findAll() {
+        return finder
+            .findAll()
+            .stream()
+            .map(reference -> reference == original ? patched : reference)
+            .collect(Collectors.toSet());
+      }
+    };
+  }
+
+  private static URL toURL(String path) {
+    try {
+      return Paths.get(path).toUri().toURL();
+    } catch (MalformedURLException e) {
+      throw new IllegalArgumentException("Malformed path: " + path, e);
+    }
+  }
+
+  /** Module reference that looks up resources in a patch directory first. */
+  static class PatchedModuleReference extends ModuleReference {
+
+    private final ModuleReference original;
+    private final Path patch;
+
+    PatchedModuleReference(ModuleReference original, Path patch) {
+      super(extend(original.descriptor(), packages(patch)), original.location().orElse(null));
+      this.original = original;
+      this.patch = patch;
+    }
+
+    @Override
+    public ModuleReader open() throws IOException {
+      var reader = original.open();
+      return new ModuleReader() {
+        @Override
+        public Optional<URI> find(String name) throws IOException {
+          var file = patch.resolve(name);
+          if (Files.isRegularFile(file)) {
+            return Optional.of(file.toUri());
+          }
+          return reader.find(name);
+        }
+
+        @Override
+        public Stream<String> list() throws IOException {
+          return Stream.concat(names(patch), reader.list()).distinct();
+        }
+
+        @Override
+        public void close() throws IOException {
+          reader.close();
+        }
+      };
+    }
+
+    static ModuleDescriptor extend(ModuleDescriptor descriptor, Set<String> packages) {
+      var builder = ModuleDescriptor.newModule(descriptor.name(), descriptor.modifiers());
+      descriptor.requires().forEach(builder::requires);
+      descriptor.exports().forEach(builder::exports);
+      descriptor.opens().forEach(builder::opens);
+      descriptor.uses().forEach(builder::uses);
+      descriptor.provides().forEach(builder::provides);
+      descriptor.version().ifPresent(builder::version);
+      descriptor.mainClass().ifPresent(builder::mainClass);
+      var union = new HashSet<>(descriptor.packages());
+      union.addAll(packages);
+      builder.packages(union);
+      return builder.build();
+    }
+
+    static Set<String> packages(Path root) {
+      try (var names = names(root)) {
+        return names
+            .filter(name -> name.endsWith(".class") && name.indexOf('/') > 0)
+            .filter(name -> !name.startsWith("META-INF/"))
+            .map(name -> name.substring(0, name.lastIndexOf('/')).replace('/', '.'))
+            .collect(Collectors.toSet());
+      }
+    }
+
+    private static Stream<String> names(Path root) {
+      if (Files.notExists(root)) {
+        return Stream.empty();
+      }
+      try (var paths = Files.walk(root)) {
+        return paths
+            .filter(Files::isRegularFile)
+            .map(
+                path ->
+                    root.relativize(path)
+                        .toString()
+                        .replace(root.getFileSystem().getSeparator(), "/"))
+            .collect(Collectors.toList())
+            .stream();
+      } catch (IOException e) {
+        throw new UncheckedIOException("Listing files failed: " + root, e);
+      }
+    }
+  }
+}
@@ -14,13 +14,18 @@
 
 package de.sormuras.junit.platform.maven.plugin;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.TreeSet;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -40,22 +45,90 @@ public class JUnitPlatformMojo extends AbstractBaseMojo {
     
   // As boring as it may seem, please add JavaDoc on all parameters. This will improve goal documentation 
 
+  @Parameter(defaultValue = "false")
+  private boolean classDataSharing;
+
+  @Parameter(defaultValue = "false")
+  private boolean daemon;
+
+  @Parameter(defaultValue = "10800")
+  private long daemonIdleTimeout;
+
   @Parameter(defaultValue = "false")
   private boolean dryRun;
 
+  @Parameter(defaultValue = "false")
+  private boolean eventStream;
+
+  @Parameter(defaultValue = "false")
+  private boolean failFast;
+
+  @Parameter(defaultValue = "1")
+  private int failFastThreshold;
+
+  @Parameter(defaultValue = "true")
+  private boolean fork;
+
+  @Parameter(defaultValue = "1")
+  private int forkCount;
+
+  @Parameter(defaultValue = "false")
+  private boolean forkGovernor;
+
+  @Parameter(defaultValue = "junit-platform/history")
+  private String history;
+
+  @Parameter(defaultValue = "false")
+  private boolean impactAnalysis;
+
   @Parameter private String javaExecutable;
 
   @Parameter private JavaOptions javaOptions = new JavaOptions();
 
+  @Parameter(defaultValue = "0")
+  private int maxConcurrentForks;
+
+  @Parameter(defaultValue = "false")
+  private boolean mergeClassPath;
+
+  @Parameter(defaultValue = "false")
+  private boolean metrics;
+
+  @Parameter(defaultValue = "10")
+  private long metricsInterval;
+
   @Parameter private List<String> overrideJavaOptions; // why the override? if this is about inheritence, xpp3 has some magic attributes to control that.
 
   @Parameter private List<String> overrideLauncherOptions; // why the override?
 
+  @Parameter(defaultValue = "0")
+  private int outputTail;
+
+  @Parameter(defaultValue = "false")
+  private boolean parallel;
+
+  @Parameter(defaultValue = "0")
+  private int parallelism;
+
+  @Parameter(defaultValue = "concurrent")
+  private String parallelMode;
+
   @Parameter private Map<String, String> parameters = Map.of();
 
+  @Parameter(defaultValue = "false")
+  private boolean profile;
+
   @Parameter(defaultValue = "junit-platform/reports")
   private String reports; // I don't like a String when it represents a File, so I would use a File here. 
 
+  @Parameter(defaultValue = "1")
+  private int shardCount;
+
+  @Parameter(defaultValue = "0")
+  private int shardIndex;
+
+  @Parameter private String shardHistory;
+
   @Parameter(defaultValue = "false")
   private boolean skip;
 
@@ -64,8 +137,27 @@ public class JUnitPlatformMojo extends AbstractBaseMojo {
   @Parameter(defaultValue = "100")
   private long timeout;
 
+  @Parameter(defaultValue = "false")
+  private boolean upToDateCheck;
+
   @Parameter private Map<String, String> versions = Map.of(); // Is this intended to be unbound? If you know the 3 values, you could create a Versions POJO with 3 fields
 
+  private DurationHistory durationHistory;
+
+  private TestImpactAnalysis testImpactAnalysis;
+
+  private FlightRecording flightRecording;
+
+  private ParallelExecution parallelExecution;
+
+  private ForkGovernor governor;
+
+  private Set<String> shardTestClasses;
+
+  private List<String> testClasses;
+
+  private boolean testClassesFiltered;
+
   public void execute() throws MojoFailureException {
     Log log = getLog();
     log.info("Launching JUnit Platform...");
@@ -92,10 +184,493 @@ public class JUnitPlatformMojo extends AbstractBaseMojo {
     log.debug("  test -> " + getModules().toStringTestModule());
     log.debug("  mode -> " + getModules().getMode());
 
+    var check = createUpToDateCheck();
+    var fingerprint = check.flatMap(this::computeFingerprint);
+    if (fingerprint.isPresent() && isUpToDate(check.get(), fingerprint.get())) {
+      return;
+    }
+
+    var classes = discoverTestClasses();
+    if (classes.isEmpty() && isTestClassesFiltered()) {
+      log.info("No test classes match tags " + getTags() + ", nothing to launch");
+      return;
+    }
+    if (classes.isEmpty() && !getOverrideLauncherOptions().isPresent()) {
+      // Engines may discover tests in classes or resources not matching the name pattern
+      log.info("No test classes found by name, letting the engines scan the class path");
+    }
+
+    testImpactAnalysis = classes.isEmpty() ? null : createTestImpactAnalysis().orElse(null);
+    if (testImpactAnalysis != null && testImpactAnalysis.isSelective()) {
+      var affected = testImpactAnalysis.getAffectedTestClasses(classes);
+      var changed = testImpactAnalysis.getChangedClasses();
+      log.info(
+          String.format(
+              "%d classes changed, %d of %d test classes affected",
+              changed.size(), affected.size(), classes.size()));
+      debug("Changed classes: %s", changed);
+      debug("Affected test classes: %s", affected);
+      if (affected.isEmpty()) {
+        log.info("No test classes affected by changes since the last successful run");
+        saveTestImpactAnalysis();
+        return;
+      }
+    }
+
+    durationHistory = loadDurationHistory().orElse(null);
+    shardTestClasses = createShardTestClasses().orElse(null);
+    if (shardTestClasses != null) {
+      var shard = List.copyOf(shardTestClasses);
+      if (testImpactAnalysis != null) {
+        shard = testImpactAnalysis.getAffectedTestClasses(shard);
+      }
+      if (shard.isEmpty()) {
+        log.info("No test classes to run in shard " + getShardIndex());
+        saveTestImpactAnalysis();
+        return;
+      }
+    }
+    flightRecording = createFlightRecording().orElse(null);
+    governor = createForkGovernor().orElse(null);
+    parallelExecution = createParallelExecution().orElse(null);
+    var start = Instant.now();
     int result = new JUnitPlatformStarter(this).getAsInt();
+    saveDurationHistory(start);
+    if (flightRecording != null) {
+      flightRecording.summarize(getReportsPath(), start);
+    }
     if (result != 0) {
       throw new MojoFailureException("RED ALERT!");
     }
+    saveTestImpactAnalysis();
+    if (fingerprint.isPresent()) {
+      try {
+        check.get().markSuccessful(fingerprint.get());
+      } catch (IOException e) {
+        getLog().warn("Storing up-to-date fingerprint failed: " + e);
+      }
+    }
+  }
+
+  private Optional<UpToDateCheck> createUpToDateCheck() {
+    if (!isUpToDateCheck() || isDryRun()) {
+      return Optional.empty();
+    }
+    var target = Paths.get(getMavenProject().getBuild().getDirectory(), "junit-platform");
+    return Optional.of(new UpToDateCheck(this, target.resolve("up-to-date")));
+  }
+
+  private Optional<String> computeFingerprint(UpToDateCheck check) {
+    try {
+      return Optional.of(check.computeFingerprint());
+    } catch (IOException | RuntimeException e) {
+      getLog().warn("Computing up-to-date fingerprint failed, launching anyway: " + e);
+      return Optional.empty();
+    }
+  }
+
+  // Restore the reports of the last successful run if nothing changed, else forget about that run
+  private boolean isUpToDate(UpToDateCheck check, String fingerprint) {
+    try {
+      if (check.isUpToDate(fingerprint)) {
+        check.restoreReports();
+        getLog().info("Tests are up-to-date, nothing changed since the last successful run");
+        return true;
+      }
+      check.invalidate();
+    } catch (IOException e) {
+      getLog().warn("Up-to-date check failed, launching anyway: " + e);
+    }
+    return false;
+  }
+
+  private Optional<TestImpactAnalysis> createTestImpactAnalysis() {
+    if (!isImpactAnalysis() || isDryRun() || getOverrideLauncherOptions().isPresent()) {
+      return Optional.empty();
+    }
+    var target = Paths.get(getMavenProject().getBuild().getDirectory(), "junit-platform");
+    var analysis = new TestImpactAnalysis(this, target.resolve("impact"));
+    try {
+      analysis.update();
+      return Optional.of(analysis);
+    } catch (IOException | RuntimeException e) {
+      getLog().warn("Test impact analysis failed, running all tests: " + e);
+      return Optional.empty();
+    }
+  }
+
+  private void saveTestImpactAnalysis() {
+    if (testImpactAnalysis == null) {
+      return;
+    }
+    try {
+      testImpactAnalysis.save();
+    } catch (IOException e) {
+      getLog().warn("Saving test impact analysis index failed: " + e);
+    }
+  }
+
+  private Optional<FlightRecording> createFlightRecording() {
+    if (!isProfile() || isDryRun()) {
+      return Optional.empty();
+    }
+    if (!isFork() || isDaemon()) {
+      getLog().warn("Profiling requires a forked JVM per run, ignoring it");
+      return Optional.empty();
+    }
+    var target = Paths.get(getMavenProject().getBuild().getDirectory(), "junit-platform");
+    var recording = new FlightRecording(this, target.resolve("profile"));
+    try {
+      recording.prepare();
+      return Optional.of(recording);
+    } catch (IOException e) {
+      getLog().warn("Preparing flight recording failed, ignoring it: " + e);
+      return Optional.empty();
+    }
+  }
+
+  private Optional<ParallelExecution> createParallelExecution() {
+    if (!isParallel() || getOverrideLauncherOptions().isPresent()) {
+      return Optional.empty();
+    }
+    var version = getJUnitJupiterVersion().split("[.-]");
+    try {
+      if (Integer.parseInt(version[0]) == 5 && Integer.parseInt(version[1]) < 3) {
+        getLog().warn("Parallel execution requires JUnit Jupiter 5.3 or later, ignoring it");
+        return Optional.empty();
+      }
+    } catch (RuntimeException e) {
+      // unknown version format, try anyway
+    }
+    var forks = isFork() && !isDaemon() ? getForkCount() : 1;
+    var processors = Runtime.getRuntime().availableProcessors();
+    var quota = ControlGroup.readCpuQuota();
+    var modules = 1;
+    if (governor != null) {
+      // the governor already divided the processors among all concurrent forks of the session
+      processors = governor.getProcessors();
+      quota = OptionalDouble.empty();
+      forks = 1;
+    } else if (getMavenSession().isParallel()) {
+      // modules built concurrently via -T compete for the same processors
+      var degree = getMavenSession().getRequest().getDegreeOfConcurrency();
+      modules = Math.max(1, Math.min(degree, getMavenSession().getProjects().size()));
+      forks *= modules;
+    }
+    var execution = new ParallelExecution(processors, quota, forks, parallelism);
+    if (modules > 1) {
+      getLog()
+          .info(
+              String.format(
+                  "Parallel execution: %s, shared by %d concurrently building modules",
+                  execution, modules));
+    } else {
+      getLog().info("Parallel execution: " + execution);
+    }
+    return Optional.of(execution);
+  }
+
+  private Optional<ForkGovernor> createForkGovernor() {
+    if (!isForkGovernor() || isDryRun()) {
+      return Optional.empty();
+    }
+    if (!isFork() || isDaemon()) {
+      getLog().warn("Fork governor requires forked JVMs per run, ignoring it");
+      return Optional.empty();
+    }
+    // Parallel builders clone the session per module, the request is shared by all clones
+    var governor = ForkGovernor.of(getMavenSession().getRequest(), getMaxConcurrentForks());
+    if (governor.getMaxForks() != getMaxConcurrentForks()) {
+      getLog()
+          .warn(
+              String.format(
+                  "Ignoring maxConcurrentForks=%d, the fork governor of this session was created"
+                      + " with maxConcurrentForks=%d",
+                  getMaxConcurrentForks(), governor.getMaxForks()));
+    }
+    var forks = Math.min(getForkCount(), governor.getSlots());
+    var options = governor.createJavaOptions(getJavaOptions().getAdditionalOptions());
+    getLog()
+        .info(
+            String.format(
+                "Fork budget of %s: %d of %s, options %s",
+                getMavenProject().getArtifactId(), forks, governor, options));
+    return Optional.of(governor);
+  }
+
+  private Optional<Set<String>> createShardTestClasses() throws MojoFailureException {
+    if (getShardCount() < 1 || getShardIndex() < 0 || getShardIndex() >= getShardCount()) {
+      var message = "Shard index %d out of range for %d shards, expected 0..%d";
+      throw new MojoFailureException(
+          String.format(message, getShardIndex(), getShardCount(), getShardCount() - 1));
+    }
+    if (getShardCount() == 1) {
+      return Optional.empty();
+    }
+    var classes = getTestClasses();
+    if (classes.isEmpty()) {
+      getLog().warn("No test classes found by name to partition, running all tests in each shard");
+      return Optional.empty();
+    }
+    // Never the local history: nodes record different durations, their partitions would overlap
+    var snapshot = getShardHistoryPath();
+    Optional<DurationHistory> durations = Optional.empty();
+    if (snapshot.isPresent()) {
+      if (!Files.isRegularFile(snapshot.get())) {
+        throw new MojoFailureException("Shard history snapshot not found: " + snapshot.get());
+      }
+      try {
+        durations = Optional.of(new DurationHistory(snapshot.get()).load());
+      } catch (IOException e) {
+        throw new MojoFailureException("Loading shard history snapshot failed", e);
+      }
+    }
+    var shards = new TestShards(getShardCount(), durations);
+    var shard = shards.partition(classes).get(getShardIndex());
+    getLog()
+        .info(
+            String.format(
+                "Shard partition of %d test classes by %s, inputs digest %s",
+                classes.size(),
+                snapshot.map(path -> "durations in " + path).orElse("hash"),
+                shards.digest(classes)));
+    getLog()
+        .info(
+            String.format(
+                "Shard %d of %d: %d of %d test classes, estimated %d of %d seconds",
+                getShardIndex(),
+                getShardCount(),
+                shard.size(),
+                classes.size(),
+                shards.estimate(shard).toSeconds(),
+                shards.estimate(classes).toSeconds()));
+    debug("Test classes of shard %d: %s", getShardIndex(), shard);
+    return Optional.of(new TreeSet<>(shard));
+  }
+
+  /**
+   * Scan the test output directory for candidate test classes, dropping the ones whose tags can't
+   * match.
+   *
+   * @return sorted list of binary class names, also available via {@link #getTestClasses()}
+   */
+  List<String> discoverTestClasses() {
+    var start = System.nanoTime();
+    var build = getMavenProject().getBuild();
+    var testOutput = Paths.get(build.getTestOutputDirectory());
+    var libraries = List.of(Paths.get(build.getOutputDirectory()));
+    var pattern = TestClassScanner.DEFAULT_CLASS_NAME_PATTERN;
+    TestClassScanner scanner;
+    try {
+      scanner = new TestClassScanner(pattern, isTagFiltering() ? getTags() : List.of());
+    } catch (IllegalArgumentException e) {
+      debug("Not pre-filtering test classes by tags %s: %s", getTags(), e.getMessage());
+      scanner = new TestClassScanner(pattern);
+    }
+    testClasses = scanner.scan(testOutput, libraries);
+    testClassesFiltered = testClasses.size() < scanner.getScannedCount();
+    var millis = (System.nanoTime() - start) / 1_000_000;
+    if (testClassesFiltered) {
+      getLog()
+          .info(
+              String.format(
+                  "Tags %s match %d of %d test classes",
+                  getTags(), testClasses.size(), scanner.getScannedCount()));
+    }
+    debug("Discovered %d test classes in %d ms: %s", testClasses.size(), millis, testClasses);
+    return testClasses;
+  }
+
+  // Engines and launcher options given by the user may select tests on their own
+  private boolean isTagFiltering() {
+    return !getTags().isEmpty() && !getOverrideLauncherOptions().isPresent();
+  }
+
+  private Optional<DurationHistory> loadDurationHistory() {
+    var file = getHistoryPath();
+    if (!file.isPresent()) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(new DurationHistory(file.get()).load());
+    } catch (IOException e) {
+      getLog().warn("Loading test duration history failed: " + e);
+      return Optional.empty();
+    }
+  }
+
+  private void saveDurationHistory(Instant start) {
+    var reports = getReportsPath();
+    if (durationHistory == null || isDryRun() || !reports.isPresent()) {
+      return;
+    }
+    try {
+      var count = durationHistory.recordReports(reports.get(), start);
+      durationHistory.save();
+      debug("Recorded durations of %d tests in %s", count, getHistoryPath().orElseThrow());
+    } catch (IOException e) {
+      getLog().warn("Saving test duration history failed: " + e);
+      return;
+    }
+    if (!getLog().isDebugEnabled()) {
+      return;
+    }
+    var names = durationHistory.sortLongestFirst(durationHistory.getClassNames());
+    getLog().debug("Slowest test classes");
+    for (var name : names.subList(0, Math.min(10, names.size()))) {
+      var p50 = durationHistory.getPercentile(name, 50).orElseThrow().toMillis();
+      var p95 = durationHistory.getPercentile(name, 95).orElseThrow().toMillis();
+      getLog().debug(String.format("  %s -> p50 %d ms, p95 %d ms", name, p50, p95));
+    }
+  }
+
+  /**
+   * Durations of tests recorded by previous runs.
+   *
+   * @return history of test durations, empty if disabled
+   * @see #getHistoryPath()
+   */
+  Optional<DurationHistory> getDurationHistory() {
+    return Optional.ofNullable(durationHistory);
+  }
+
+  /**
+   * Flight recording of the forked JVMs.
+   *
+   * @return flight recording, empty if disabled
+   * @see #isProfile()
+   */
+  Optional<FlightRecording> getFlightRecording() {
+    return Optional.ofNullable(flightRecording);
+  }
+
+  /**
+   * Computed parallel execution settings.
+   *
+   * @return parallel execution, empty if disabled
+   * @see #isParallel()
+   */
+  Optional<ParallelExecution> getParallelExecution() {
+    return Optional.ofNullable(parallelExecution);
+  }
+
+  /**
+   * Classes changed since the last successful run and the test classes affected by them.
+   *
+   * @return test impact analysis, empty if disabled
+   * @see #isImpactAnalysis()
+   */
+  Optional<TestImpactAnalysis> getTestImpactAnalysis() {
+    return Optional.ofNullable(testImpactAnalysis);
+  }
+
+  /**
+   * Idle timeout of a daemon in seconds.
+   *
+   * @return duration after which an unused daemon exits
+   * @see #isDaemon()
+   */
+  Duration getDaemonIdleTimeout() {
+    return Duration.ofSeconds(daemonIdleTimeout);
+  }
+
+  /**
+   * Number of failed tests and containers that stop the execution in fail-fast mode.
+   *
+   * @return failure threshold, at least one
+   * @see #isFailFast()
+   */
+  int getFailFastThreshold() {
+    return Math.max(1, failFastThreshold);
+  }
+
+  /**
+   * Number of JVMs to fork in parallel.
+   *
+   * <p>The default value {@code 1} launches a single console launcher process. A greater value
+   * scans the test output directory for test classes and puts them into a queue. Every forked JVM
+   * pulls the next test class from that queue as soon as it finished the previous one, so a few
+   * slow classes don't leave other forks idle. Reports of all forks are moved into the {@link
+   * #getReportsPath() reports directory}, one report set per test class, not merged into a single
+   * suite summary.
+   *
+   * @return number of forks, at least one
+   */
+  int getForkCount() {
+    return Math.max(1, forkCount);
+  }
+
+  /**
+   * Fork governor switch.
+   *
+   * <p>If enabled, all modules of a Maven session share a governor that caps the number of forked
+   * JVMs running concurrently, for example in a parallel reactor build started with {@code -T 2C}.
+   * Forks are started in request order as soon as a slot is free. Each fork gets an equal share of
+   * the processors and the memory of the machine, limited by the control group the build runs in,
+   * via {@code -Xmx} and {@code -XX:ActiveProcessorCount}. Such options configured in {@link
+   * #getJavaOptions() Java options} take precedence. The effective budget is reported per module.
+   * The first module of a session determines the limits, a different {@link
+   * #getMaxConcurrentForks() maximum} configured by a later module is reported and ignored.
+   *
+   * @see #getMaxConcurrentForks()
+   */
+  boolean isForkGovernor() {
+    return forkGovernor;
+  }
+
+  /** Maximum number of forks running concurrently in a session, {@code 0} computes it. */
+  int getMaxConcurrentForks() {
+    return maxConcurrentForks;
+  }
+
+  /** Fork governor of the session, if enabled. */
+  Optional<ForkGovernor> getForkGovernor() {
+    return Optional.ofNullable(governor);
+  }
+
+  /**
+   * Directory for storing the test duration history.
+   *
+   * <p>After each run, the durations of all test methods and of all top-level test classes are
+   * taken from the reports and appended to a history file. The median durations of previous runs
+   * are used to schedule the longest test classes first, when forking multiple JVMs, in daemon mode
+   * and with {@code fork=false}.
+   *
+   * <p>The history also remembers test classes that failed until they pass again. These run first
+   * in the next run, followed by test classes that changed since the last run. The order never
+   * narrows discovery: a single forked JVM selects these classes ahead of the test module, which
+   * still finds all other tests. This is the main limitation of the ordering: in class path mode
+   * the console launcher can't combine explicit selectors with scanning the class path, thus a
+   * single fork, the default, runs tests in the engines' order and logs a notice instead. Use
+   * {@code forkCount} greater than one to order tests in class path mode.
+   *
+   * <p>A relative path is resolved below the current build directory, normally {@code target}. An
+   * absolute path allows sharing the history across clean builds and between modules, the file name
+   * contains the group and artifact id of the project. An empty path disables the history.
+   *
+   * @return path to history directory, may be empty
+   * @see #getHistoryPath()
+   */
+  String getHistory() {
+    return history;
+  }
+
+  /**
+   * Optional path to the test duration history file of the current project.
+   *
+   * @return path to history file, empty if no history is to be kept
+   * @see #getHistory()
+   */
+  Optional<Path> getHistoryPath() {
+    if (history == null || history.trim().isEmpty() || !getReportsPath().isPresent()) {
+      return Optional.empty();
+    }
+    var name = getMavenProject().getGroupId() + "_" + getMavenProject().getArtifactId() + ".tsv";
+    var path = Paths.get(history);
+    if (path.isAbsolute()) {
+      return Optional.of(path.resolve(name));
+    }
+    return Optional.of(Paths.get(getMavenProject().getBuild().getDirectory(), history, name));
   }
 
   String getJavaExecutable() {
@@ -118,6 +693,21 @@ public class JUnitPlatformMojo extends AbstractBaseMojo {
     return Optional.ofNullable(overrideLauncherOptions);
   }
 
+  /**
+   * Number of last output lines to print after a successful run.
+   *
+   * <p>Zero, the default, prints every line of the forked process to the Maven log as soon as it is
+   * emitted. A positive value activates the tail-only mode: only the given number of last lines of
+   * the standard output and error streams are kept in memory and printed after the process exited
+   * successfully. If the process fails, the complete output is printed from the log files. In both
+   * modes all lines are written to the {@code console-launcher.[out|err].log} files.
+   *
+   * @return number of tail lines, zero for live output
+   */
+  int getOutputTail() {
+    return Math.max(0, outputTail);
+  }
+
   /**
    * Launcher configuration parameters.
    *
@@ -154,7 +744,8 @@ public class JUnitPlatformMojo extends AbstractBaseMojo {
    *
    * <p>The directory will be created if it does not exist. A relative path is resolved below the
    * current build directory, normally {@code target}. An empty path disables the generation of
-   * reports.
+   * reports. If {@link #getShardCount() sharding} is enabled, reports are written to the {@code
+   * shard-<index>} subdirectory.
    *
    * @return path to reports directory, may be empty
    * @see #getReports()
@@ -165,6 +756,9 @@ public class JUnitPlatformMojo extends AbstractBaseMojo {
       return Optional.empty();
     }
     Path path = Paths.get(reports);
+    if (getShardCount() > 1) {
+      path = path.resolve("shard-" + getShardIndex());
+    }
     if (path.isAbsolute()) {
       return Optional.of(path);
     }
@@ -191,9 +785,32 @@ public class JUnitPlatformMojo extends AbstractBaseMojo {
     return tags;
   }
 
+  /**
+   * Candidate test classes found in the test output directory, filtered by tags.
+   *
+   * <p>If tags dropped candidates, the remaining test classes are selected explicitly instead of
+   * letting the forked JVM scan the class path for them. If no test class is left, no JVM is forked
+   * at all. If no candidate is found by name, the engines scan the class path on their own.
+   */
+  List<String> getTestClasses() {
+    if (testClasses == null) {
+      return discoverTestClasses();
+    }
+    return testClasses;
+  }
+
+  /** Return {@code true} if the last scan dropped candidate test classes, because of tags. */
+  boolean isTestClassesFiltered() {
+    return testClassesFiltered;
+  }
+
   /**
    * Global timeout duration in seconds.
    *
+   * <p>Forked JVMs are terminated when the timeout is reached. With {@code fork=false}, the test
+   * thread is only interrupted. In daemon mode, the timeout starts when the daemon accepts the
+   * request and only that request is cancelled, the shared daemon keeps running.
+   *
    * @return timeout duration in seconds
    */
   Duration getTimeout() {
@@ -220,8 +837,249 @@ public class JUnitPlatformMojo extends AbstractBaseMojo {
     return versions.getOrDefault(key, getDetectedVersion(key));
   }
 
+  /**
+   * Class data sharing switch.
+   *
+   * <p>If enabled, the first run of a forked JVM is accompanied by a training run that creates a
+   * dynamic AppCDS archive of the console launcher, the launcher and the engines below {@code
+   * target/junit-platform/cds}. Later runs with the same Java executable, Java options and
+   * unchanged jar files map that archive and start faster. To make that possible, all jar files are
+   * put in front of all directories on the class path. Stale archives are deleted automatically.
+   * Requires Java 13 or later, the switch is ignored for older Java executables and if the main
+   * module is patched with test classes.
+   */
+  boolean isClassDataSharing() {
+    return classDataSharing;
+  }
+
+  /**
+   * Daemon mode switch.
+   *
+   * <p>In daemon mode, the tests are not executed by a freshly forked JVM. Instead, a long-lived
+   * worker JVM is started once and reused by all subsequent executions, for other modules of the
+   * reactor and for later builds. It runs each launch request within a fresh class loader or module
+   * layer. Additional Java options are applied when the daemon is started, daemons started with
+   * different options are kept apart.
+   *
+   * @see #getDaemonIdleTimeout()
+   */
+  boolean isDaemon() {
+    return daemon;
+  }
+
   /** Dry-run mode switch. */
   boolean isDryRun() {
     return dryRun;
   }
+
+  /**
+   * Event stream switch.
+   *
+   * <p>If enabled, forked JVMs stream compact binary test execution events back to the plugin,
+   * which counts and times all tests and reports failures as soon as they happen. The console
+   * launcher no longer renders the test tree, {@code --details none} is used instead. The events
+   * are emitted by a {@code TestExecutionListener} of this plugin. Only the listener is put on the
+   * class path of the forked JVM, copied into {@code junit-platform/lib/event-stream.jar}. Not
+   * supported in daemon mode and with {@code fork=false}. Implied by {@link #isFailFast() fail-fast
+   * mode} and {@link #isMetrics() live metrics}.
+   */
+  boolean isEventStream() {
+    return eventStream || failFast || metrics;
+  }
+
+  /**
+   * Live metrics switch.
+   *
+   * <p>If enabled, metrics of the running tests are published while the forked JVMs run: tests
+   * started and finished by status, tests per second, the tests currently running, the time of the
+   * last test execution event and the heap and CPU time used by the forks. They are exposed by the
+   * {@code de.sormuras.junit.platform.maven.plugin:type=TestMetrics} MBean of the Maven JVM and by
+   * the {@code junit-platform/metrics.prom} file in the build directory, which is rewritten in the
+   * Prometheus text format every {@link #getMetricsInterval() interval} for the textfile collector
+   * of the node exporter. Implies the {@link #isEventStream() event stream}.
+   */
+  boolean isMetrics() {
+    return metrics;
+  }
+
+  /** Interval of rewriting the metrics file, in seconds. */
+  Duration getMetricsInterval() {
+    return Duration.ofSeconds(Math.max(1, metricsInterval));
+  }
+
+  /**
+   * Fail-fast mode switch.
+   *
+   * <p>If enabled, test results are watched as they arrive via the {@link #isEventStream() event
+   * stream}. As soon as the number of failed tests and containers reaches the {@link
+   * #getFailFastThreshold() threshold}, the forked JVM, or all forks, are stopped and no further
+   * test classes are handed out. The summary lists what ran, failed and was skipped. Results not
+   * covered by a report of the console launcher are written to {@code
+   * TEST-junit-platform-fail-fast.xml} in the {@link #getReportsPath() reports directory}. Not
+   * supported in daemon mode and with {@code fork=false}.
+   */
+  boolean isFailFast() {
+    return failFast;
+  }
+
+  /**
+   * Fork mode switch.
+   *
+   * <p>By default, the console launcher is executed by a forked JVM. If set to {@code false}, it is
+   * executed within the Maven JVM using a fresh class loader in class path mode or a fresh module
+   * layer in module path mode, which saves the startup costs of a JVM for fast unit tests. Java
+   * options are not applied in this mode and output that tests write directly to {@code System.out}
+   * or {@code System.err} is not captured in the log files.
+   *
+   * <p>Tests share the Maven JVM with the build, including system properties and standard streams.
+   * Therefore, this switch is ignored when modules are built in parallel via {@code -T}: a JVM is
+   * forked instead, so tests can't interfere with other modules. The {@link #getTimeout() timeout}
+   * is not enforced: when it is reached, the execution fails, but tests that ignore the interrupt
+   * keep running in the Maven JVM.
+   */
+  boolean isFork() {
+    return fork;
+  }
+
+  /**
+   * Test impact analysis switch.
+   *
+   * <p>If enabled, an index of the classes in the main and test output directories is kept below
+   * {@code target/junit-platform/impact}. It maps each class to the classes it references, read
+   * from the constant pools of the class files without loading them. After a successful run, later
+   * runs only execute test classes that transitively reference a class whose content changed, by
+   * selecting them explicitly instead of scanning the class path or selecting the module. Changed
+   * resources or other class path elements cause all tests to run. Ignored if launcher options are
+   * overridden.
+   */
+  boolean isImpactAnalysis() {
+    return impactAnalysis;
+  }
+
+  /**
+   * Merge class path switch.
+   *
+   * <p>If enabled, consecutive jar files of the class path of a forked JVM are merged into single,
+   * uncompressed jar files below {@code target/junit-platform/classpath}. Class loading then looks
+   * up an entry in one central directory instead of probing each jar file in turn, which reduces
+   * the start-up time of test runs with many dependencies. Merged jar files are only rebuilt if the
+   * paths, sizes or modification times of their source jar files change. Signed and multi-release
+   * jar files, jar files whose manifest declares a {@code Class-Path} or package attributes, and
+   * jar files with resources also found in other jar files of a merge are kept as they are, so
+   * merging doesn't change which classes and resources are found. Ignored in module path mode. Pass
+   * {@code -Xlog:class+load} via Java options to compare class loading with and without merging.
+   */
+  boolean isMergeClassPath() {
+    return mergeClassPath;
+  }
+
+  /**
+   * Parallel execution switch.
+   *
+   * <p>If enabled, JUnit Jupiter's parallel execution is configured with a fixed parallelism. It is
+   * computed from the available processors, limited by the CPU quota of the control group the build
+   * runs in, and divided by the number of forks running concurrently. In a parallel build via
+   * {@code -T}, without the fork governor, forks of all concurrently building modules count. The
+   * effective value is reported in the log. Entries of {@link #getParameters() parameters} starting
+   * with {@code junit.jupiter.execution.parallel.} take precedence. Requires JUnit Jupiter 5.3 or
+   * later.
+   *
+   * @see #getParallelism()
+   * @see #getParallelMode()
+   */
+  boolean isParallel() {
+    return parallel;
+  }
+
+  /** Fixed parallelism per forked JVM, {@code 0} computes it. */
+  int getParallelism() {
+    return parallelism;
+  }
+
+  /** Default execution mode of tests, {@code concurrent} or {@code same_thread}. */
+  String getParallelMode() {
+    return parallelMode;
+  }
+
+  /**
+   * Profile switch.
+   *
+   * <p>If enabled, each forked JVM is started with a Java Flight Recorder recording using the
+   * low-overhead {@code default} settings. When the run ends, the recordings are read and a summary
+   * is printed: top CPU methods, top allocation sites, garbage collection pauses, lock contention
+   * and the slowest test classes. The {@code .jfr} files are kept in {@code
+   * target/junit-platform/profile} for deeper analysis, for example with JDK Mission Control.
+   * Requires Java 11 or later for both the forked JVM and the JVM running Maven. Ignored if not
+   * forking or in daemon mode.
+   */
+  boolean isProfile() {
+    return profile;
+  }
+
+  /**
+   * Number of shards the test classes are partitioned into, for example one per CI node.
+   *
+   * <p>Every node runs the same build with a different {@link #getShardIndex() shard index}. By
+   * default test classes are assigned by a stable hash of their name. If a {@link
+   * #getShardHistoryPath() shard history snapshot} is configured, the partition is balanced by its
+   * recorded durations. The local history is never used, because it differs between nodes. Each
+   * node logs a digest of the partition inputs, equal digests mean equal partitions. Reports are
+   * written per shard.
+   *
+   * @return number of shards, {@code 1} disables sharding
+   */
+  int getShardCount() {
+    return shardCount;
+  }
+
+  /**
+   * Zero-based index of the shard to run.
+   *
+   * @see #getShardCount()
+   */
+  int getShardIndex() {
+    return shardIndex;
+  }
+
+  /**
+   * Optional path to a test duration history file used to balance the shards.
+   *
+   * <p>The file is only read, never written: all nodes must use the same snapshot, for example a
+   * history file recorded by a previous build and restored from a shared cache. A relative path is
+   * resolved against the project's base directory. A configured but missing file fails the build.
+   *
+   * @return path to history file, empty if shards are assigned by hash only
+   * @see #getShardCount()
+   */
+  Optional<Path> getShardHistoryPath() {
+    if (shardHistory == null || shardHistory.trim().isEmpty()) {
+      return Optional.empty();
+    }
+    return Optional.of(getMavenProject().getBasedir().toPath().resolve(shardHistory));
+  }
+
+  /** Test classes of the current shard, empty if sharding is disabled. */
+  Optional<Set<String>> getShardTestClasses() {
+    return Optional.ofNullable(shardTestClasses);
+  }
+
+  /** Skip execution of this goal. */
+  boolean isSkip() {
+    return skip;
+  }
+
+  /**
+   * Up-to-date check switch.
+   *
+   * <p>If enabled, all inputs of the test run are fingerprinted before launching: the contents of
+   * the main and test output directories and of all other test class path elements, the plugin
+   * archive, the Java executable, Java and launcher options, parameters, tags and the JUnit
+   * versions. If the fingerprint matches the one of the last successful run, launching is skipped
+   * and the reports of that run are restored into the {@link #getReportsPath() reports directory}.
+   * File hashes are cached below {@code target/junit-platform/up-to-date}, so only changed files
+   * are read again.
+   */
+  boolean isUpToDateCheck() {
+    return upToDateCheck;
+  }
 }
@@ -16,18 +16,31 @@ package de.sormuras.junit.platform.maven.plugin;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.module.ModuleDescriptor;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import org.apache.maven.project.MavenProject;
 
 class JUnitPlatformStarter implements IntSupplier {
 
   private final JUnitPlatformMojo mojo;
   private final MavenProject project;
+  private Set<String> changedTestClasses;
 
   JUnitPlatformStarter(JUnitPlatformMojo mojo) {
     this.mojo = mojo;
@@ -46,18 +59,58 @@ class JUnitPlatformStarter implements IntSupplier {
     var errorPath = target.resolve("console-launcher.err.log");
     var outputPath = target.resolve("console-launcher.out.log");
 
+    // Launch within this JVM?
+    if (!mojo.isFork()) {
+      if (mojo.getMavenSession().isParallel()) {
+        log.warn("fork=false is not supported when building modules in parallel, forking a JVM");
+      } else {
+        if (mojo.isDaemon() || mojo.getForkCount() > 1) {
+          var message = "Daemon mode and forkCount > 1 are not supported with fork=false";
+          log.warn(message + ", ignoring them");
+        }
+        if (mojo.isFailFast()) {
+          log.warn("Fail-fast mode is not supported with fork=false, ignoring it");
+        }
+        return new InProcessLauncher(this, createTarget(target)).getAsInt();
+      }
+    }
+
+    // Launch requests to a warm daemon JVM?
+    if (mojo.isDaemon()) {
+      if (mojo.getForkCount() > 1) {
+        log.warn("forkCount > 1 is not supported in daemon mode, ignoring it");
+      }
+      if (mojo.isFailFast()) {
+        log.warn("Fail-fast mode is not supported in daemon mode, ignoring it");
+      }
+      return new DaemonClient(this, createTarget(target)).getAsInt();
+    }
+
+    // Parallel forks pulling test classes from a shared queue?
+    if (mojo.getForkCount() > 1) {
+      if (mojo.getOverrideJavaOptions().isPresent()) {
+        log.warn("Overridden Java options are not supported by forkCount > 1, using single fork");
+      } else if (mojo.getTestClasses().isEmpty()) {
+        log.info("No test classes to distribute, scanning the class path in a single fork");
+      } else {
+        return new ForkPool(this, createTarget(target)).getAsInt();
+      }
+    }
+
     // Prepare the process builder
     var builder = new ProcessBuilder();
     var cmd = builder.command();
     // builder.directory(program.getParent().toFile());
-    builder.redirectError(errorPath.toFile());
-    builder.redirectOutput(outputPath.toFile());
     builder.redirectInput(ProcessBuilder.Redirect.INHERIT);
 
     // "java[.exe]"
     cmd.add(mojo.getJavaExecutable());
 
     mojo.getOverrideJavaOptions().ifPresentOrElse(cmd::addAll, () -> addJavaOptions(cmd));
+    var classDataSharing = addClassDataSharingOptions(cmd, target.resolve("cds"));
+    var events = addEventStreamOptions(cmd);
+    addFlightRecordingOptions(cmd, "profile");
+    addForkGovernorOptions(cmd);
     mojo.getOverrideLauncherOptions().ifPresentOrElse(cmd::addAll, () -> addLauncherOptions(cmd));
 
     // Prepare target directory...
@@ -87,19 +140,38 @@ class JUnitPlatformStarter implements IntSupplier {
     cmd.forEach(mojo::debug);
     try {
       var timeout = mojo.getTimeout().toSeconds();
-      var process = builder.start();
+      var start = System.nanoTime();
+      events.ifPresent(collector -> collector.addEnvironment(builder.environment()));
+      var process = start(builder);
       debug("Process started: #%d %s", process.pid(), process.info());
+      var tail = mojo.getOutputTail();
+      var out = new StreamPump(process.getInputStream(), outputPath, log::info, tail, log::warn);
+      var err = new StreamPump(process.getErrorStream(), errorPath, log::warn, tail, log::warn);
+      var pumps = List.of(out.start("junit-platform-out"), err.start("junit-platform-err"));
+      events.ifPresent(collector -> collector.onFailFast(() -> stop(process.toHandle())));
       var ok = process.waitFor(timeout, TimeUnit.SECONDS);
       if (!ok) {
         var s = timeout == 1 ? "" : "s";
         log.error("Global timeout of " + timeout + " second" + s + " reached.");
-        log.error("Killing process #" + process.pid());
-        process.destroy();
+        new ProcessTerminator(mojo, target).terminate(process.toHandle());
+        join(pumps);
+        report(events);
         return -2;
       }
       var exitValue = process.exitValue();
-      Files.readAllLines(outputPath).forEach(exitValue == 0 ? log::info : log::error);
-      Files.readAllLines(errorPath).forEach(exitValue == 0 ? log::warn : log::error);
+      join(pumps);
+      if (events.isPresent() && events.get().isStopped()) {
+        // A fail-fast stop is a failure: print the entire output needed to diagnose it
+        printTail(exitValue == 0 ? 1 : exitValue, out, err);
+        report(events);
+        writeFailFastReport(events.get(), result -> true);
+        return 1;
+      }
+      printTail(exitValue, out, err);
+      report(events);
+      if (classDataSharing.isPresent()) {
+        classDataSharing.get().complete(getStartupDuration(start, out));
+      }
       return exitValue;
     } catch (IOException | InterruptedException e) {
       log.error("Executing process failed", e);
@@ -107,54 +179,384 @@ class JUnitPlatformStarter implements IntSupplier {
     }
   }
 
+  private Path createTarget(Path target) {
+    try {
+      return Files.createDirectories(target);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Creating target path failed: " + target, e);
+    }
+  }
+
+  // Reorder path elements and map or create a class data sharing archive, if enabled and supported
+  Optional<ClassDataSharing> addClassDataSharingOptions(List<String> cmd, Path directory) {
+    if (!mojo.isClassDataSharing()) {
+      return Optional.empty();
+    }
+    if (!ClassDataSharing.isSupported(cmd)) {
+      debug("Class data sharing is not supported by this Java command, ignoring it");
+      return Optional.empty();
+    }
+    try {
+      if (!ClassDataSharing.reorderPaths(cmd, directory)) {
+        mojo.getLog()
+            .info(
+                "Class data sharing disabled, moving jar files before directories of the class"
+                    + " path would shadow classes or resources");
+        return Optional.empty();
+      }
+    } catch (IOException e) {
+      mojo.getLog().warn("Reordering class path failed, ignoring class data sharing", e);
+      return Optional.empty();
+    }
+    if (mojo.isDryRun()) {
+      return Optional.empty();
+    }
+    var classDataSharing = new ClassDataSharing(this, directory, List.copyOf(cmd));
+    try {
+      cmd.addAll(1, classDataSharing.createOptions());
+      return Optional.of(classDataSharing);
+    } catch (IOException e) {
+      mojo.getLog().warn("Preparing class data sharing failed, ignoring it", e);
+      return Optional.empty();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Optional.empty();
+    }
+  }
+
+  // Start collecting events and insert the option activating the listener in the fork
+  Optional<EventCollector> addEventStreamOptions(List<String> cmd) {
+    if (!mojo.isEventStream() || mojo.isDryRun()) {
+      return Optional.empty();
+    }
+    try {
+      var events = new EventCollector(mojo);
+      cmd.add(1, events.getJavaOption());
+      return Optional.of(events);
+    } catch (IOException e) {
+      mojo.getLog().warn("Opening event stream failed, ignoring it", e);
+      return Optional.empty();
+    }
+  }
+
+  // Insert the option starting a flight recording, if profiling is enabled and supported
+  void addFlightRecordingOptions(List<String> cmd, String name) {
+    var recording = mojo.getFlightRecording();
+    if (!recording.isPresent()) {
+      return;
+    }
+    if (!FlightRecording.isSupported(cmd)) {
+      mojo.getLog().warn("Profiling is not supported by this Java command, ignoring it");
+      return;
+    }
+    cmd.add(1, recording.get().createJavaOption(name));
+  }
+
+  // Insert the heap and processor budget of a fork, if the fork governor is enabled
+  void addForkGovernorOptions(List<String> cmd) {
+    var governor = mojo.getForkGovernor();
+    if (governor.isPresent()) {
+      var options = mojo.getJavaOptions().getAdditionalOptions();
+      cmd.addAll(1, governor.get().createJavaOptions(options));
+    }
+  }
+
+  // Start the process, waiting for a free slot if the fork governor is enabled
+  Process start(ProcessBuilder builder) throws IOException, InterruptedException {
+    var governor = mojo.getForkGovernor();
+    if (governor.isPresent()) {
+      if (governor.get().getAvailableSlots() == 0) {
+        mojo.getLog().info("Waiting for a free fork slot...");
+      }
+      return governor.get().start(builder);
+    }
+    return builder.start();
+  }
+
+  // Fail-fast: ask the process tree to terminate, the launcher won't get to write its reports
+  static void stop(ProcessHandle process) {
+    process.descendants().forEach(ProcessHandle::destroy);
+    process.destroy();
+  }
+
+  // Write the results of a run stopped in fail-fast mode
+  void writeFailFastReport(EventCollector events, Predicate<EventCollector.Result> filter) {
+    var reports = mojo.getReportsPath();
+    if (!reports.isPresent()) {
+      return;
+    }
+    var file = reports.get().resolve("TEST-junit-platform-fail-fast.xml");
+    try {
+      Files.createDirectories(reports.get());
+      events.writeReport(file, filter);
+      mojo.getLog().info("Partial report written to " + file);
+    } catch (IOException e) {
+      mojo.getLog().warn("Writing partial report failed: " + file, e);
+    }
+  }
+
+  // Wait for all event streams to end and print the results
+  void report(Optional<EventCollector> events) throws IOException {
+    if (events.isPresent()) {
+      events.get().close();
+      events.get().report();
+    }
+  }
+
+  // Time from process start to its first line of output, a proxy for the startup costs
+  static Duration getStartupDuration(long start, StreamPump pump) {
+    var first = pump.getFirstLineNanos();
+    return first == 0 ? null : Duration.ofNanos(first - start);
+  }
+
+  JUnitPlatformMojo getMojo() {
+    return mojo;
+  }
+
+  // Wait for pumps and handlers to finish, a grand-child process may keep streams open
+  void join(List<Thread> threads) throws InterruptedException {
+    for (var thread : threads) {
+      thread.join(TimeUnit.SECONDS.toMillis(10));
+      if (thread.isAlive()) {
+        mojo.getLog().warn("Thread " + thread.getName() + " still alive, results may be partial");
+      }
+    }
+  }
+
+  // In tail-only mode, print the buffered lines or the entire log files
+  void printTail(int exitValue, StreamPump out, StreamPump err) throws IOException {
+    var log = mojo.getLog();
+    if (out.isLive()) {
+      return;
+    }
+    if (exitValue == 0) {
+      out.getTail().forEach(log::info);
+      err.getTail().forEach(log::warn);
+      return;
+    }
+    try (var lines = Files.lines(out.getFile())) {
+      lines.forEach(log::error);
+    }
+    try (var lines = Files.lines(err.getFile())) {
+      lines.forEach(log::error);
+    }
+  }
+
   // Supply standard options for Java
   // https://docs.oracle.com/javase/10/tools/java.htm
   private void addJavaOptions(List<String> cmd) {
+    addJavaOptions(cmd, false);
+  }
+
+  // Supply standard options for Java launching the fork worker instead of the console launcher
+  void addWorkerJavaOptions(List<String> cmd) {
+    addJavaOptions(cmd, true);
+  }
+
+  private void addJavaOptions(List<String> cmd, boolean worker) {
+    cmd.addAll(mojo.getJavaOptions().getAdditionalOptions());
+    // Only the fork-side classes of the plugin, not the entire plugin archive
+    var classPath = new ArrayList<String>();
+    var lib = Paths.get(project.getBuild().getDirectory(), "junit-platform", "lib");
+    try {
+      if (worker) {
+        classPath.add(ForkArchive.worker(lib).toString());
+      }
+      if (mojo.isEventStream()) {
+        classPath.add(ForkArchive.eventStream(lib).toString());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Creating fork archive failed: " + lib, e);
+    }
+    var name = worker ? "fork-worker" : "console-launcher";
+    var root = IsolatedLauncher.CONSOLE_MODULE;
+    var modular = addPathOptions(cmd, name, root, worker, classPath);
+    if (worker) {
+      cmd.add(ForkWorker.class.getName());
+      return;
+    }
+    if (modular) {
+      cmd.add("--module");
+      cmd.add(root);
+      return;
+    }
+    cmd.add("org.junit.platform.console.ConsoleLauncher");
+  }
+
+  // Supply standard options for Java launching the JMH runner instead of the console launcher
+  void addBenchmarkJavaOptions(List<String> cmd) {
+    cmd.addAll(mojo.getJavaOptions().getAdditionalOptions());
+    addPathOptions(cmd, "benchmark", BenchmarkRunner.JMH_MODULE, true, List.of());
+    cmd.add(BenchmarkRunner.JMH_MAIN_CLASS);
+  }
+
+  /**
+   * Add module path and patch options, or the class path.
+   *
+   * @param cmd command to extend
+   * @param name name of the argument file holding the module options
+   * @param root module containing the main class
+   * @param addRoot add the root module, if the main class isn't launched via {@code --module}
+   * @param classPath additional class path elements
+   * @return {@code true} in module path mode
+   */
+  private boolean addPathOptions(
+      List<String> cmd, String name, String root, boolean addRoot, List<String> classPath) {
     var testOutput = project.getBuild().getTestOutputDirectory();
     var mainModule = mojo.getModules().getMainModuleReference();
     var testModule = mojo.getModules().getTestModuleReference();
-    cmd.addAll(mojo.getJavaOptions().getAdditionalOptions());
-    if (mainModule.isPresent() || testModule.isPresent()) {
-      cmd.add("--module-path");
-      cmd.add(createPathArgument());
-      cmd.add("--add-modules");
-      cmd.add(createAddModulesArgument());
-      if (mainModule.isPresent() && !testModule.isPresent()) {
-        var name = mainModule.get().descriptor().name();
-        cmd.add("--patch-module");
-        cmd.add(name + "=" + testOutput);
-        var addReads = createAddReadsModules();
-        addReads.forEach(
-            module -> {
-              cmd.add("--add-reads");
-              cmd.add(name + "=" + module);
-            });
-        for (var module : createAddOpensModules()) {
-          // iterate all packages, "name/*" is not possible due to
-          // http://mail.openjdk.java.net/pipermail/jigsaw-dev/2017-January/010749.html
-          for (var pack : mainModule.get().descriptor().packages()) {
-            cmd.add("--add-opens");
-            cmd.add(name + "/" + pack + "=" + module);
-          }
+    if (!mainModule.isPresent() && !testModule.isPresent()) {
+      var elements = new ArrayList<String>();
+      elements.add(createClassPathArgument());
+      elements.addAll(classPath);
+      addClassPathOption(cmd, elements);
+      return false;
+    }
+    var options = new ArrayList<String>();
+    var paths = createPathElements();
+    var addModules = new LinkedHashSet<>(List.of(createAddModulesArgument().split(",")));
+    if (addRoot) {
+      addModules.add(root);
+    }
+    var patchOptions = new ArrayList<String>();
+    if (mainModule.isPresent() && !testModule.isPresent()) {
+      var descriptor = mainModule.get().descriptor();
+      patchOptions.add("--patch-module");
+      patchOptions.add(descriptor.name() + "=" + testOutput);
+      var roots = new LinkedHashSet<>(addModules);
+      roots.add(root);
+      if (!ModuleGraph.isCurrentRuntime(mojo.getJavaExecutable())) {
+        debug("Java executable differs from this JVM, adding options for all packages");
+        addPatchOptions(patchOptions, descriptor);
+      } else {
+        var graph = ModuleGraph.resolve(paths, roots);
+        if (graph.isPresent()) {
+          addMinimalPatchOptions(patchOptions, descriptor, graph.get(), addModules);
+        } else {
+          debug("Resolving module graph failed, adding options for all packages");
+          addPatchOptions(patchOptions, descriptor);
         }
       }
-      cmd.add("--module");
-      cmd.add("org.junit.platform.console");
-    } else {
-      cmd.add("--class-path");
-      cmd.add(createPathArgument());
-      cmd.add("org.junit.platform.console.ConsoleLauncher");
     }
+    options.add("--module-path");
+    options.add(String.join(File.pathSeparator, paths));
+    options.add("--add-modules");
+    options.add(String.join(",", addModules));
+    options.addAll(patchOptions);
+    cmd.addAll(createArgumentFileOption(options, name));
+    if (!classPath.isEmpty()) {
+      addClassPathOption(cmd, classPath);
+    }
+    return true;
+  }
+
+  /** Append the class path option joining the elements. */
+  static void addClassPathOption(List<String> cmd, Collection<String> elements) {
+    cmd.add("--class-path");
+    cmd.add(String.join(File.pathSeparator, elements));
+  }
+
+  // Read and open all packages of the main module, used if the module graph can't be resolved
+  private void addPatchOptions(List<String> options, ModuleDescriptor descriptor) {
+    var name = descriptor.name();
+    for (var module : createAddReadsModules()) {
+      options.add("--add-reads");
+      options.add(name + "=" + module);
+    }
+    for (var module : createAddOpensModules()) {
+      // iterate all packages, "name/*" is not possible due to
+      // http://mail.openjdk.java.net/pipermail/jigsaw-dev/2017-January/010749.html
+      for (var pack : descriptor.packages()) {
+        options.add("--add-opens");
+        options.add(name + "/" + pack + "=" + module);
+      }
+    }
+  }
+
+  // Only add edges missing in the resolved module graph, open only packages containing tests,
+  // unless the user configured the modules to open packages to: they may reflect into any package
+  private void addMinimalPatchOptions(
+      List<String> options, ModuleDescriptor descriptor, ModuleGraph graph, Set<String> roots) {
+    var name = descriptor.name();
+    var testOutput = Paths.get(project.getBuild().getTestOutputDirectory());
+    var packages = new TreeSet<>(IsolatedLauncher.PatchedModuleReference.packages(testOutput));
+    if (mojo.getJavaOptions().getAddOpens() != null) {
+      packages.addAll(descriptor.packages());
+    }
+    var reads = 0;
+    var opens = 0;
+    for (var module : createAddReadsModules()) {
+      if (graph.reads(name, module)) {
+        continue;
+      }
+      if (graph.isResolvable(module)) {
+        roots.add(module);
+      }
+      options.add("--add-reads");
+      options.add(name + "=" + module);
+      reads++;
+    }
+    for (var module : createAddOpensModules()) {
+      if (graph.isResolvable(module)) {
+        roots.add(module);
+      }
+      for (var pack : ModuleGraph.opens(descriptor, packages, module)) {
+        options.add("--add-opens");
+        options.add(name + "/" + pack + "=" + module);
+        opens++;
+      }
+    }
+    debug("Module %s needs %d --add-reads and %d --add-opens options", name, reads, opens);
+  }
+
+  // Write the options to an argument file, read by the Java launcher and by the console launcher
+  // since JUnit Platform 1.3, inline them if that fails
+  private List<String> createArgumentFileOption(List<String> options, String name) {
+    var target = Paths.get(project.getBuild().getDirectory(), "junit-platform");
+    var file = target.resolve(name + ".args");
+    try {
+      Files.createDirectories(target);
+      Files.write(file, createArgumentFileLines(options));
+      return List.of("@" + file);
+    } catch (IOException e) {
+      mojo.getLog().warn("Writing argument file failed: " + file, e);
+      return options;
+    }
+  }
+
+  // The console launcher reads argument files since JUnit Platform 1.3, inline selectors before
+  private List<String> createSelectorOptions(List<String> selectors) {
+    var version = mojo.getJUnitPlatformVersion().split("[.-]");
+    try {
+      if (Integer.parseInt(version[0]) == 1 && Integer.parseInt(version[1]) < 3) {
+        return selectors;
+      }
+    } catch (RuntimeException e) {
+      // unknown version format, assume a recent one
+    }
+    return createArgumentFileOption(selectors, "console-launcher-selectors");
+  }
+
+  /** Return the lines of an argument file holding the options, one quoted option per line. */
+  static List<String> createArgumentFileLines(List<String> options) {
+    var lines = new ArrayList<String>(options.size());
+    options.forEach(option -> lines.add(quoteArgument(option)));
+    return lines;
+  }
+
+  // Quote an argument as described in "java Command-Line Argument Files"
+  static String quoteArgument(String argument) {
+    if (!argument.isEmpty()
+        && argument.chars().noneMatch(c -> c <= ' ' || "\"'#\\".indexOf(c) >= 0)) {
+      return argument;
+    }
+    return '"' + argument.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
   }
 
   // Append console launcher options
   // See https://junit.org/junit5/docs/snapshot/user-guide/#running-tests-console-launcher-options
   private void addLauncherOptions(List<String> cmd) {
-    cmd.add("--disable-ansi-colors");
-    cmd.add("--details");
-    cmd.add("tree");
-    mojo.getTags().forEach(tag -> cmd.add(createTagArgument(tag)));
-    mojo.getParameters().forEach((key, value) -> cmd.add(createConfigArgument(key, value)));
+    addDefaultLauncherOptions(cmd);
     mojo.getReportsPath()
         .ifPresent(
             path -> {
@@ -162,18 +564,65 @@ class JUnitPlatformStarter implements IntSupplier {
               cmd.add(path.toString());
             });
 
+    // Select a subset of the discovered test classes explicitly, via an argument file: there may be
+    // more of them than the operating system allows on a command line
+    var discovered = mojo.getTestClasses();
+    var impact = mojo.getTestImpactAnalysis().filter(TestImpactAnalysis::isSelective);
+    var shard = mojo.getShardTestClasses();
+    if (shard.isPresent() || impact.isPresent() || mojo.isTestClassesFiltered()) {
+      var selectors = new ArrayList<String>();
+      selectTestClasses(discovered).forEach(name -> selectors.add("--select-class=" + name));
+      cmd.addAll(createSelectorOptions(selectors));
+      return;
+    }
+
+    // Else select the module or the class path roots: engines find all of their tests on their own
+    var priority = getPriorityTestClasses(discovered);
     var mainModule = mojo.getModules().getMainModuleReference();
     var testModule = mojo.getModules().getTestModuleReference();
+    if (!mainModule.isPresent() && !testModule.isPresent()) {
+      // The console launcher doesn't combine class path scanning with explicit selectors
+      if (!priority.isEmpty()) {
+        var message =
+            "Not running %d previously failed or recently changed test classes first: a single"
+                + " fork in class path mode can't order them, use forkCount > 1 to do so";
+        mojo.getLog().info(String.format(message, priority.size()));
+      }
+      cmd.add("--scan-class-path");
+      return;
+    }
+    // Selectors are resolved in order: prioritized classes run first, the module finds the rest
+    if (!priority.isEmpty()) {
+      var selectors = new ArrayList<String>();
+      selectTestClasses(List.copyOf(priority))
+          .forEach(name -> selectors.add("--select-class=" + name));
+      cmd.addAll(createSelectorOptions(selectors));
+    }
+    cmd.add("--select-module");
     if (testModule.isPresent()) {
-      cmd.add("--select-module");
       cmd.add(testModule.get().descriptor().name());
     } else {
-      if (mainModule.isPresent()) {
-        cmd.add("--select-module");
-        cmd.add(mainModule.get().descriptor().name());
-      } else {
-        cmd.add("--scan-class-path");
-      }
+      cmd.add(mainModule.get().descriptor().name());
+    }
+  }
+
+  // Append console launcher options that neither select tests nor configure reports
+  void addCommonLauncherOptions(List<String> cmd) {
+    mojo.getOverrideLauncherOptions()
+        .ifPresentOrElse(cmd::addAll, () -> addDefaultLauncherOptions(cmd));
+  }
+
+  private void addDefaultLauncherOptions(List<String> cmd) {
+    cmd.add("--disable-ansi-colors");
+    cmd.add("--details");
+    cmd.add(mojo.isEventStream() ? "none" : "tree");
+    mojo.getTags().forEach(tag -> cmd.add(createTagArgument(tag)));
+    mojo.getParameters().forEach((key, value) -> cmd.add(createConfigArgument(key, value)));
+    if (mojo.getParallelExecution().isPresent()) {
+      var configuration =
+          mojo.getParallelExecution().get().createConfiguration(mojo.getParallelMode());
+      configuration.keySet().removeAll(mojo.getParameters().keySet());
+      configuration.forEach((key, value) -> cmd.add(createConfigArgument(key, value)));
     }
   }
 
@@ -201,6 +650,9 @@ class JUnitPlatformStarter implements IntSupplier {
     if (map.containsKey("org.junit.platform:junit-platform-commons")) {
       modules.add("org.junit.platform.commons");
     }
+    if (map.containsKey("org.openjdk.jmh:jmh-core")) {
+      modules.add(BenchmarkRunner.JMH_MODULE);
+    }
     return modules;
   }
 
@@ -225,6 +677,10 @@ class JUnitPlatformStarter implements IntSupplier {
     if (map.containsKey("junit:junit")) {
       modules.add("junit");
     }
+    // JMH, generated benchmark code refers to it
+    if (map.containsKey("org.openjdk.jmh:jmh-core")) {
+      modules.add(BenchmarkRunner.JMH_MODULE);
+    }
 
     return modules;
   }
@@ -234,47 +690,178 @@ class JUnitPlatformStarter implements IntSupplier {
   }
 
   private String createTagArgument(String tag) {
-    return "--include-tag=\"" + tag + "\"";
+    return "--include-tag=" + tag;
+  }
+
+  // Affected test classes only, previous failures and recently changed classes first, then
+  // known slow classes: the longest one must not be the last one to start
+  List<String> selectTestClasses(List<String> classes) {
+    var shard = mojo.getShardTestClasses();
+    var sharded =
+        shard.isPresent()
+            ? classes.stream().filter(shard.get()::contains).collect(Collectors.toList())
+            : classes;
+    var selected =
+        mojo.getTestImpactAnalysis()
+            .map(analysis -> analysis.getAffectedTestClasses(sharded))
+            .orElse(sharded);
+    if (!mojo.getDurationHistory().isPresent()) {
+      return selected;
+    }
+    var history = mojo.getDurationHistory().get();
+    var failed = history.getFailedClassNames().stream().filter(selected::contains).count();
+    var changed = getChangedTestClasses();
+    if (failed > 0 || !changed.isEmpty()) {
+      var message = "Running %d previously failed and %d recently changed test classes first";
+      mojo.getLog().info(String.format(message, failed, changed.size()));
+    }
+    return history.sortFailuresFirst(selected, changed);
+  }
+
+  // Previously failed and recently changed test classes, empty if there is no history
+  private Set<String> getPriorityTestClasses(List<String> classes) {
+    if (!mojo.getDurationHistory().isPresent()) {
+      return Set.of();
+    }
+    var priority = new TreeSet<>(mojo.getDurationHistory().get().getFailedClassNames());
+    priority.addAll(getChangedTestClasses());
+    priority.retainAll(classes);
+    return priority;
   }
 
-  private String createPathArgument() {
+  // Compare contents if the impact analysis is enabled, else modification times
+  private Set<String> getChangedTestClasses() {
+    if (changedTestClasses == null) {
+      var testOutput = Paths.get(project.getBuild().getTestOutputDirectory());
+      var impact = mojo.getTestImpactAnalysis().filter(TestImpactAnalysis::isSelective);
+      try {
+        if (impact.isPresent()) {
+          changedTestClasses = new TreeSet<String>();
+          impact
+              .get()
+              .getChangedClasses()
+              .forEach(name -> changedTestClasses.add(DurationHistory.getTopLevelClassName(name)));
+        } else {
+          changedTestClasses = mojo.getDurationHistory().get().getChangedClassNames(testOutput);
+        }
+        changedTestClasses.retainAll(mojo.getTestClasses());
+      } catch (IOException e) {
+        mojo.getLog().warn("Scanning for recently changed test classes failed: " + e);
+        changedTestClasses = Set.of();
+      }
+    }
+    return changedTestClasses;
+  }
+
+  // Describe the launch for an isolated runtime, selecting all test classes explicitly
+  LaunchRequest createLaunchRequest() {
+    var arguments = new ArrayList<String>();
+    if (mojo.getOverrideLauncherOptions().isPresent()) {
+      arguments.addAll(mojo.getOverrideLauncherOptions().get());
+    } else {
+      var classes = selectTestClasses(mojo.getTestClasses());
+      // Nothing found by name: let the engines scan the test output directory on their own
+      var scan = mojo.getTestClasses().isEmpty() && !mojo.isTestClassesFiltered();
+      if (!classes.isEmpty() || scan) {
+        addDefaultLauncherOptions(arguments);
+        mojo.getReportsPath()
+            .ifPresent(
+                path -> {
+                  arguments.add("--reports-dir");
+                  arguments.add(path.toString());
+                });
+        classes.forEach(name -> arguments.add("--select-class=" + name));
+        if (scan) {
+          arguments.add("--scan-class-path=" + project.getBuild().getTestOutputDirectory());
+        }
+      }
+    }
+    var mainModule = mojo.getModules().getMainModuleReference();
+    var testModule = mojo.getModules().getTestModuleReference();
+    var paths = createPathElements();
+    if (!mainModule.isPresent() && !testModule.isPresent()) {
+      return new LaunchRequest(paths, List.of(), "", "", List.of(), List.of(), arguments);
+    }
+    var addModules = List.of(createAddModulesArgument().split(","));
+    if (mainModule.isPresent() && !testModule.isPresent()) {
+      var name = mainModule.get().descriptor().name();
+      var patch = project.getBuild().getTestOutputDirectory();
+      var reads = createAddReadsModules();
+      var opens = createAddOpensModules();
+      return new LaunchRequest(paths, addModules, name, patch, reads, opens, arguments);
+    }
+    return new LaunchRequest(paths, addModules, "", "", List.of(), List.of(), arguments);
+  }
+
+  // Path elements joined, with runs of jar files merged if requested
+  private String createClassPathArgument() {
+    var elements = createPathElements();
+    if (mojo.isMergeClassPath()) {
+      var target = Paths.get(project.getBuild().getDirectory(), "junit-platform", "classpath");
+      try {
+        elements = new MergedClassPath(mojo, target).merge(elements);
+      } catch (IOException e) {
+        mojo.getLog().warn("Merging class path failed, using original elements: " + e);
+      }
+    }
+    return String.join(File.pathSeparator, elements);
+  }
+
+  /** Test class path elements and the resolved launcher and engine artifacts. */
+  List<String> createPathElements() {
     debug("");
     debug("Creating path argument");
 
-    var elements = new ArrayList<String>();
     try {
-      for (var element : project.getTestClasspathElements()) {
-        var path = Paths.get(element).toAbsolutePath().normalize();
-        if (Files.notExists(path)) {
-          debug("  X %s // doesn't exist", path);
-          continue;
-        }
-        debug(" -> %s", path);
-        elements.add(path.toString());
-      }
+      var elements =
+          createPathElements(
+              project.getTestClasspathElements(), path -> debug("  X %s // doesn't exist", path));
+      elements.forEach(element -> debug(" -> %s", element));
       var map = project.getArtifactMap();
+      var coordinates = new ArrayList<String>();
       // junit-jupiter-engine
       var jupiterApi = map.get("org.junit.jupiter:junit-jupiter-api");
       var jupiterEngine = "org.junit.jupiter:junit-jupiter-engine";
       if (jupiterApi != null && !map.containsKey(jupiterEngine)) {
-        mojo.resolve(elements, jupiterEngine, mojo.getJUnitJupiterVersion());
+        coordinates.add(jupiterEngine + ':' + mojo.getJUnitJupiterVersion());
       }
       // junit-vintage-engine
       var vintageApi = map.get("junit:junit");
       var vintageEngine = "org.junit.vintage:junit-vintage-engine";
       if (vintageApi != null && !map.containsKey(vintageEngine)) {
         if (vintageApi.getVersion().equals("4.12")) {
-          mojo.resolve(elements, vintageEngine, mojo.getJUnitVintageVersion());
+          coordinates.add(vintageEngine + ':' + mojo.getJUnitVintageVersion());
         }
       }
       // junit-platform-console
       var platformConsole = "org.junit.platform:junit-platform-console";
       if (!map.containsKey(platformConsole)) {
-        mojo.resolve(elements, platformConsole, mojo.getJUnitPlatformVersion());
+        coordinates.add(platformConsole + ':' + mojo.getJUnitPlatformVersion());
       }
+      mojo.resolve(elements, coordinates);
+      return new ArrayList<>(elements);
     } catch (Exception e) {
       throw new IllegalStateException("Resolving test class-path elements failed", e);
     }
-    return String.join(File.pathSeparator, elements);
+  }
+
+  /**
+   * Normalize the path elements, dropping missing ones and keeping the first of duplicates.
+   *
+   * @param elements path elements, usually the project's test class path elements
+   * @param missing consumer of paths that don't exist
+   * @return ordered set of absolute and normalized path elements
+   */
+  static Set<String> createPathElements(Collection<String> elements, Consumer<Path> missing) {
+    var result = new LinkedHashSet<String>();
+    for (var element : elements) {
+      var path = Paths.get(element).toAbsolutePath().normalize();
+      if (Files.notExists(path)) {
+        missing.accept(path);
+        continue;
+      }
+      result.add(path.toString());
+    }
+    return result;
   }
 }
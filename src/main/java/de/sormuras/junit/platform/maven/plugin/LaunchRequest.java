@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes a console launcher invocation within an isolated runtime.
+ *
+ * <p>A request carries the same information as the Java options of a forked JVM: the class path or
+ * module path elements, the root modules to resolve and, if test classes are patched into the main
+ * module, the patch directory together with the modules to read and to open to.
+ *
+ * <p>This class is loaded by the daemon JVM and must only depend on the Java SE API.
+ */
+class LaunchRequest {
+
+  private final List<String> paths;
+  private final List<String> addModules;
+  private final String patchModule;
+  private final String patchPath;
+  private final List<String> addReads;
+  private final List<String> addOpens;
+  private final List<String> arguments;
+
+  LaunchRequest(
+      List<String> paths,
+      List<String> addModules,
+      String patchModule,
+      String patchPath,
+      List<String> addReads,
+      List<String> addOpens,
+      List<String> arguments) {
+    this.paths = List.copyOf(paths);
+    this.addModules = List.copyOf(addModules);
+    this.patchModule = patchModule;
+    this.patchPath = patchPath;
+    this.addReads = List.copyOf(addReads);
+    this.addOpens = List.copyOf(addOpens);
+    this.arguments = List.copyOf(arguments);
+  }
+
+  /** Class path elements or module path elements, if any root module is to be added. */
+  List<String> getPaths() {
+    return paths;
+  }
+
+  /** Root modules to resolve, empty for class path mode. */
+  List<String> getAddModules() {
+    return addModules;
+  }
+
+  /** Name of the module to patch, empty for no patching. */
+  String getPatchModule() {
+    return patchModule;
+  }
+
+  /** Directory with the classes to patch into the module. */
+  String getPatchPath() {
+    return patchPath;
+  }
+
+  /** Modules the patched module reads. */
+  List<String> getAddReads() {
+    return addReads;
+  }
+
+  /** Modules to which all packages of the patched module are opened. */
+  List<String> getAddOpens() {
+    return addOpens;
+  }
+
+  /** Console launcher arguments. */
+  List<String> getArguments() {
+    return arguments;
+  }
+
+  boolean isModular() {
+    return !addModules.isEmpty();
+  }
+
+  boolean isPatched() {
+    return !patchModule.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "LaunchRequest [paths=%s, addModules=%s, patch=%s=%s, addReads=%s, addOpens=%s, arguments=%s]",
+        paths, addModules, patchModule, patchPath, addReads, addOpens, arguments);
+  }
+
+  void write(DataOutputStream out) throws IOException {
+    writeStrings(out, paths);
+    writeStrings(out, addModules);
+    out.writeUTF(patchModule);
+    out.writeUTF(patchPath);
+    writeStrings(out, addReads);
+    writeStrings(out, addOpens);
+    writeStrings(out, arguments);
+  }
+
+  static LaunchRequest read(DataInputStream in) throws IOException {
+    var paths = readStrings(in);
+    var addModules = readStrings(in);
+    var patchModule = in.readUTF();
+    var patchPath = in.readUTF();
+    var addReads = readStrings(in);
+    var addOpens = readStrings(in);
+    var arguments = readStrings(in);
+    return new LaunchRequest(
+        paths, addModules, patchModule, patchPath, addReads, addOpens, arguments);
+  }
+
+  private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+    out.writeInt(strings.size());
+    for (var string : strings) {
+      out.writeUTF(string);
+    }
+  }
+
+  private static List<String> readStrings(DataInputStream in) throws IOException {
+    var size = in.readInt();
+    var strings = new ArrayList<String>(size);
+    for (int i = 0; i < size; i++) {
+      strings.add(in.readUTF());
+    }
+    return strings;
+  }
+}
@@ -0,0 +1,324 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Merges consecutive jar files of a class path into single, uncompressed jar files.
+ *
+ * <p>A class loader searches the elements of a class path one after another. With hundreds of jar
+ * files, most lookups open and probe many central directories before the entry is found. A merged
+ * jar is found with a single hash lookup in its central directory and its entries are stored, not
+ * deflated. The first occurrence of a class wins, like it does on the original class path. Service
+ * provider configuration files are concatenated.
+ *
+ * <p>Merging must not change which classes and resources a class loader finds. Therefore a jar file
+ * is kept as its own class path element, ending the current group, if it:
+ *
+ * <ul>
+ *   <li>is signed or a multi-release jar file,
+ *   <li>has a manifest with a {@code Class-Path} attribute, package attributes like {@code
+ *       Implementation-Version} or {@code Sealed}, or per-entry sections, all of which would be
+ *       lost with its manifest,
+ *   <li>contains a resource other than a class or service provider configuration file that is also
+ *       contained in a jar file of the current group, like {@code reference.conf}, which would hide
+ *       all but the first copy from {@link ClassLoader#getResources(String)}.
+ * </ul>
+ *
+ * <p>Merged jar files are cached below the given directory, keyed by the paths, sizes and
+ * modification times of their source jar files. They are only rebuilt if that set changes. The
+ * result of inspecting a jar file is cached there as well, using the same key.
+ */
+class MergedClassPath {
+
+  private static final String SERVICES = "META-INF/services/";
+
+  private static final String MERGEABLE = "mergeable";
+
+  private final JUnitPlatformMojo mojo;
+  private final Path directory;
+
+  MergedClassPath(JUnitPlatformMojo mojo, Path directory) {
+    this.mojo = mojo;
+    this.directory = directory;
+  }
+
+  /**
+   * Replace runs of mergeable jar files with merged jar files.
+   *
+   * @param elements class path elements
+   * @return class path elements with merged jar files
+   */
+  List<String> merge(List<String> elements) throws IOException {
+    var result = new ArrayList<String>();
+    var group = new ArrayList<Path>();
+    var resources = new HashSet<String>();
+    var keep = new HashSet<String>();
+    for (var element : elements) {
+      var path = Paths.get(element);
+      var inspection = inspect(path, keep);
+      if (inspection.isMergeable() && Collections.disjoint(resources, inspection.resources)) {
+        group.add(path);
+        resources.addAll(inspection.resources);
+        continue;
+      }
+      if (inspection.isMergeable()) {
+        mojo.debug("Keeping %s as its own class path element: duplicate resources", path);
+      }
+      result.addAll(flush(group, keep));
+      resources.clear();
+      result.add(element);
+    }
+    result.addAll(flush(group, keep));
+    deleteStale(keep);
+    return result;
+  }
+
+  private List<String> flush(List<Path> group, Set<String> keep) throws IOException {
+    var elements = new ArrayList<String>();
+    if (group.size() < 2) {
+      group.forEach(path -> elements.add(path.toString()));
+    } else {
+      var merged = directory.resolve("merged-" + createKey(group) + ".jar");
+      keep.add(merged.getFileName().toString());
+      if (Files.notExists(merged)) {
+        write(group, merged);
+      }
+      elements.add(merged.toString());
+    }
+    group.clear();
+    return elements;
+  }
+
+  // Look up the cached inspection of the jar file or inspect it and store the result
+  private Inspection inspect(Path path, Set<String> keep) throws IOException {
+    if (!Files.isRegularFile(path) || !path.getFileName().toString().endsWith(".jar")) {
+      return new Inspection("not a jar file", Set.of());
+    }
+    var file = directory.resolve("jar-" + createKey(List.of(path)) + ".txt");
+    keep.add(file.getFileName().toString());
+    if (Files.isRegularFile(file)) {
+      var lines = Files.readAllLines(file);
+      var reason = lines.get(0);
+      return new Inspection(reason, new HashSet<>(lines.subList(1, lines.size())));
+    }
+    var inspection = inspect(path);
+    var lines = new ArrayList<String>();
+    lines.add(inspection.reason);
+    lines.addAll(inspection.resources);
+    Files.createDirectories(directory);
+    var temp = Files.createTempFile(directory, "jar-", ".tmp");
+    Files.write(temp, lines);
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    if (!inspection.isMergeable()) {
+      mojo.debug("Keeping %s as its own class path element: %s", path, inspection.reason);
+    }
+    return inspection;
+  }
+
+  private static Inspection inspect(Path path) throws IOException {
+    try (var jar = new JarFile(path.toFile(), false)) {
+      var manifest = jar.getManifest();
+      if (manifest != null) {
+        var reason = getManifestReason(manifest);
+        if (reason != null) {
+          return new Inspection(reason, Set.of());
+        }
+      }
+      var resources = new HashSet<String>();
+      for (var entry : jar.stream().collect(Collectors.toList())) {
+        var name = entry.getName();
+        if (isSignature(name)) {
+          return new Inspection("signed", Set.of());
+        }
+        if (entry.isDirectory()
+            || isSkipped(name)
+            || name.endsWith(".class")
+            || name.startsWith(SERVICES)) {
+          continue;
+        }
+        resources.add(name);
+      }
+      return new Inspection(MERGEABLE, resources);
+    }
+  }
+
+  // Return why the manifest prevents merging, or null if its loss changes nothing
+  private static String getManifestReason(Manifest manifest) {
+    var attributes = manifest.getMainAttributes();
+    if ("true".equalsIgnoreCase(attributes.getValue(Attributes.Name.MULTI_RELEASE))) {
+      return "multi-release";
+    }
+    if (attributes.containsKey(Attributes.Name.CLASS_PATH)) {
+      return "Class-Path attribute";
+    }
+    for (var key : attributes.keySet()) {
+      var name = key.toString();
+      if (name.startsWith("Specification-")
+          || name.startsWith("Implementation-")
+          || name.equalsIgnoreCase("Sealed")) {
+        return "package attribute " + name;
+      }
+    }
+    if (!manifest.getEntries().isEmpty()) {
+      return "per-entry manifest sections";
+    }
+    return null;
+  }
+
+  private static boolean isSignature(String name) {
+    if (!name.startsWith("META-INF/") || name.indexOf('/', 9) >= 0) {
+      return false;
+    }
+    return name.endsWith(".SF")
+        || name.endsWith(".RSA")
+        || name.endsWith(".DSA")
+        || name.endsWith(".EC");
+  }
+
+  private static boolean isSkipped(String name) {
+    return name.equals(JarFile.MANIFEST_NAME)
+        || name.equals("META-INF/INDEX.LIST")
+        || name.endsWith("module-info.class");
+  }
+
+  private void write(List<Path> jars, Path merged) throws IOException {
+    var start = System.nanoTime();
+    Files.createDirectories(directory);
+    var temp = Files.createTempFile(directory, "merged-", ".tmp");
+    var names = new HashSet<String>();
+    var services = new LinkedHashMap<String, StringBuilder>();
+    try (var out = new ZipOutputStream(Files.newOutputStream(temp))) {
+      out.setMethod(ZipOutputStream.STORED);
+      var manifest = new Manifest();
+      manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+      manifest.getMainAttributes().putValue("Created-By", "junit-platform-maven-plugin");
+      var bytes = new ByteArrayOutputStream();
+      manifest.write(bytes);
+      names.add(JarFile.MANIFEST_NAME);
+      put(out, JarFile.MANIFEST_NAME, bytes.toByteArray());
+      for (var jar : jars) {
+        try (var zip = new ZipFile(jar.toFile())) {
+          for (var entry : zip.stream().collect(Collectors.toList())) {
+            var name = entry.getName();
+            if (isSkipped(name)) {
+              continue;
+            }
+            if (name.startsWith(SERVICES) && !entry.isDirectory()) {
+              try (var in = zip.getInputStream(entry)) {
+                var content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                services
+                    .computeIfAbsent(name, k -> new StringBuilder())
+                    .append(content)
+                    .append('\n');
+              }
+              continue;
+            }
+            if (!names.add(name)) {
+              continue;
+            }
+            try (var in = zip.getInputStream(entry)) {
+              put(out, name, in.readAllBytes());
+            }
+          }
+        }
+      }
+      for (var service : services.entrySet()) {
+        put(out, service.getKey(), service.getValue().toString().getBytes(StandardCharsets.UTF_8));
+      }
+    } catch (IOException | UncheckedIOException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+    Files.move(temp, merged, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    var millis = (System.nanoTime() - start) / 1_000_000;
+    mojo.debug("Merged %d jar files into %s in %d ms", jars.size(), merged, millis);
+  }
+
+  private static void put(ZipOutputStream out, String name, byte[] bytes) throws IOException {
+    var entry = new ZipEntry(name);
+    var crc = new CRC32();
+    crc.update(bytes);
+    entry.setSize(bytes.length);
+    entry.setCompressedSize(bytes.length);
+    entry.setCrc(crc.getValue());
+    out.putNextEntry(entry);
+    out.write(bytes);
+    out.closeEntry();
+  }
+
+  private void deleteStale(Set<String> keep) throws IOException {
+    if (Files.notExists(directory)) {
+      return;
+    }
+    try (var paths = Files.list(directory)) {
+      for (var path : paths.collect(Collectors.toList())) {
+        if (!keep.contains(path.getFileName().toString())) {
+          Files.deleteIfExists(path);
+        }
+      }
+    }
+  }
+
+  private static String createKey(List<Path> jars) throws IOException {
+    var digest = Digests.sha256();
+    for (var jar : jars) {
+      var line = jar + "\t" + Files.size(jar) + "\t" + Files.getLastModifiedTime(jar).toMillis();
+      digest.update(line.getBytes(StandardCharsets.UTF_8));
+    }
+    return Digests.toHex(digest.digest()).substring(0, 16);
+  }
+
+  /** Result of inspecting a class path element. */
+  private static class Inspection {
+
+    /** {@code "mergeable"} or the reason why the element is kept as it is. */
+    final String reason;
+
+    /** Names of resources other than classes and service provider configuration files. */
+    final Set<String> resources;
+
+    Inspection(String reason, Set<String> resources) {
+      this.reason = reason;
+      this.resources = resources;
+    }
+
+    boolean isMergeable() {
+      return MERGEABLE.equals(reason);
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.lang.module.Configuration;
+import java.lang.module.ModuleDescriptor;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ResolvedModule;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Resolved module graph of a test run, used to compute the minimal set of module options.
+ *
+ * <p>The graph is resolved and bound on top of the boot layer of the current JVM, the same way the
+ * launched JVM resolves its boot layer from the module path and the root modules. That is only
+ * accurate if the launched JVM uses the same Java runtime, see {@link #isCurrentRuntime(String)}.
+ */
+class ModuleGraph {
+
+  /** Resolve the module graph, or return an empty optional if resolution fails. */
+  static Optional<ModuleGraph> resolve(List<String> paths, Collection<String> roots) {
+    var finder = ModuleFinder.of(paths.stream().map(Paths::get).toArray(Path[]::new));
+    try {
+      var boot = ModuleLayer.boot().configuration();
+      var configuration = boot.resolveAndBind(finder, ModuleFinder.of(), roots);
+      return Optional.of(new ModuleGraph(finder, configuration));
+    } catch (RuntimeException e) {
+      return Optional.empty();
+    }
+  }
+
+  /** Return {@code true} if the Java executable is the one running the current JVM. */
+  static boolean isCurrentRuntime(String javaExecutable) {
+    var current = ProcessHandle.current().info().command();
+    if (!current.isPresent()) {
+      return false;
+    }
+    try {
+      var expected = Paths.get(current.get()).toRealPath();
+      return expected.equals(Paths.get(javaExecutable).toRealPath());
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private final ModuleFinder finder;
+  private final Configuration configuration;
+
+  ModuleGraph(ModuleFinder finder, Configuration configuration) {
+    this.finder = finder;
+    this.configuration = configuration;
+  }
+
+  /** Return {@code true} if the named module is part of the graph. */
+  boolean contains(String name) {
+    return configuration.findModule(name).isPresent();
+  }
+
+  /** Return {@code true} if the named module is not part of the graph, but on the module path. */
+  boolean isResolvable(String name) {
+    return !contains(name) && finder.find(name).isPresent();
+  }
+
+  /** Return {@code true} if the source module already reads the target module. */
+  boolean reads(String source, String target) {
+    return configuration
+        .findModule(source)
+        .map(ResolvedModule::reads)
+        .map(reads -> reads.stream().anyMatch(module -> module.name().equals(target)))
+        .orElse(false);
+  }
+
+  /**
+   * Compute the packages of a module that need to be opened to the target module.
+   *
+   * @param descriptor the module containing the packages
+   * @param packages candidate packages, usually the ones containing test classes
+   * @param target name of the module to open the packages to
+   * @return sorted set of packages not already opened to the target module
+   */
+  static Set<String> opens(ModuleDescriptor descriptor, Set<String> packages, String target) {
+    if (descriptor.isOpen()) {
+      return Set.of();
+    }
+    var opened =
+        descriptor
+            .opens()
+            .stream()
+            .filter(opens -> !opens.isQualified() || opens.targets().contains(target))
+            .map(ModuleDescriptor.Opens::source)
+            .collect(Collectors.toSet());
+    var result = new TreeSet<>(packages);
+    result.removeAll(opened);
+    return result;
+  }
+}
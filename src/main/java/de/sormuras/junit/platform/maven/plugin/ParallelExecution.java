@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+/**
+ * Sizes JUnit Jupiter's parallel execution for the forked JVMs.
+ *
+ * <p>The number of usable processors is the minimum of the available processors and the CPU quota
+ * of the control group this JVM runs in. It is shared by all forks running concurrently, so each
+ * fork gets its fraction, but at least one thread.
+ */
+class ParallelExecution {
+
+  static final String PREFIX = "junit.jupiter.execution.parallel.";
+
+  private final int processors;
+  private final OptionalDouble quota;
+  private final int forks;
+  private final int parallelism;
+
+  ParallelExecution(int processors, OptionalDouble quota, int forks, int explicit) {
+    this.processors = processors;
+    this.quota = quota;
+    this.forks = Math.max(1, forks);
+    var usable = processors;
+    if (quota.isPresent()) {
+      usable = Math.min(usable, (int) Math.ceil(quota.getAsDouble()));
+    }
+    this.parallelism = explicit > 0 ? explicit : Math.max(1, usable / this.forks);
+  }
+
+  /** Create the configuration parameters for a fixed parallelism. */
+  Map<String, String> createConfiguration(String mode) {
+    var map = new LinkedHashMap<String, String>();
+    map.put(PREFIX + "enabled", "true");
+    map.put(PREFIX + "mode.default", mode);
+    map.put(PREFIX + "config.strategy", "fixed");
+    map.put(PREFIX + "config.fixed.parallelism", String.valueOf(parallelism));
+    return map;
+  }
+
+  int getParallelism() {
+    return parallelism;
+  }
+
+  @Override
+  public String toString() {
+    var limit = quota.isPresent() ? String.format("%.2f", quota.getAsDouble()) : "none";
+    return String.format(
+        "parallelism %d (%d processors, CPU quota %s, %d concurrent forks)",
+        parallelism, processors, limit, forks);
+  }
+}
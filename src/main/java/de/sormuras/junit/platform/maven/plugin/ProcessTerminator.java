@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Diagnoses and terminates a hanging process together with all of its descendants.
+ *
+ * <p>Before anything is killed, the consumed CPU time is reported next to the elapsed wall time and
+ * a thread dump is captured via {@code jcmd <pid> Thread.print}. Then the whole process tree is
+ * asked to terminate. Processes still alive after a grace period are killed forcibly.
+ */
+class ProcessTerminator {
+
+  /** Time granted to the process tree to terminate normally. */
+  static final Duration GRACE_PERIOD = Duration.ofSeconds(10);
+
+  /** Time granted to {@code jcmd} to print the threads. */
+  static final Duration THREAD_DUMP_TIMEOUT = Duration.ofSeconds(30);
+
+  private final JUnitPlatformMojo mojo;
+  private final Path target;
+
+  ProcessTerminator(JUnitPlatformMojo mojo, Path target) {
+    this.mojo = mojo;
+    this.target = target;
+  }
+
+  /** Report and dump the process without terminating it. */
+  void diagnose(ProcessHandle process) {
+    report(process);
+    dump(process);
+  }
+
+  /** Report, dump and terminate the process and all of its descendants. */
+  void terminate(ProcessHandle process) {
+    terminate(List.of(process));
+  }
+
+  /** Report, dump and terminate the processes and all of their descendants. */
+  void terminate(List<ProcessHandle> processes) {
+    var log = mojo.getLog();
+    var tree = new ArrayList<ProcessHandle>();
+    for (var process : processes) {
+      var descendants = process.descendants().collect(Collectors.toList());
+      report(process);
+      descendants.forEach(this::report);
+      dump(process);
+      log.error(
+          String.format(
+              "Terminating process #%d and %d descendants", process.pid(), descendants.size()));
+      tree.add(process);
+      tree.addAll(descendants);
+    }
+    tree.forEach(ProcessHandle::destroy);
+    var alive = await(tree, GRACE_PERIOD);
+    if (!alive.isEmpty()) {
+      var pids = alive.stream().map(p -> "#" + p.pid()).collect(Collectors.joining(", "));
+      log.error("Killing processes forcibly after " + GRACE_PERIOD.toSeconds() + "s: " + pids);
+      alive.forEach(ProcessHandle::destroyForcibly);
+      await(alive, GRACE_PERIOD);
+    }
+  }
+
+  // Log consumed CPU time next to wall time: a busy process looks different than a blocked one
+  private void report(ProcessHandle process) {
+    var info = process.info();
+    var command = info.command().orElse("?");
+    var cpu = info.totalCpuDuration().map(ProcessTerminator::format).orElse("?");
+    var wall =
+        info.startInstant()
+            .map(start -> format(Duration.between(start, Instant.now())))
+            .orElse("?");
+    var message = "Process #%d (%s) consumed %s CPU time in %s wall time";
+    mojo.getLog().error(String.format(message, process.pid(), command, cpu, wall));
+  }
+
+  // Capture a thread dump using the "jcmd" tool next to the Java executable
+  private void dump(ProcessHandle process) {
+    var log = mojo.getLog();
+    var java = Paths.get(mojo.getJavaExecutable());
+    var jcmd = java.resolveSibling(java.getFileName().toString().replace("java", "jcmd"));
+    if (!Files.isExecutable(jcmd)) {
+      log.warn("Can't capture thread dump, executable not found: " + jcmd);
+      return;
+    }
+    var file = target.resolve("thread-dump-" + process.pid() + ".txt");
+    var builder =
+        new ProcessBuilder(jcmd.toString(), String.valueOf(process.pid()), "Thread.print");
+    builder.redirectErrorStream(true);
+    builder.redirectOutput(file.toFile());
+    try {
+      var dumper = builder.start();
+      if (!dumper.waitFor(THREAD_DUMP_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+        dumper.destroyForcibly();
+        log.warn("Capturing thread dump timed out, see partial dump: " + file);
+        return;
+      }
+      if (dumper.exitValue() != 0) {
+        log.warn("Capturing thread dump failed with exit code " + dumper.exitValue() + ": " + file);
+        return;
+      }
+      log.error("Thread dump of process #" + process.pid() + " written to " + file);
+    } catch (IOException e) {
+      log.warn("Capturing thread dump failed", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // Wait for all processes to exit and return those still alive
+  private static List<ProcessHandle> await(List<ProcessHandle> processes, Duration timeout) {
+    var exits = processes.stream().map(ProcessHandle::onExit).toArray(CompletableFuture[]::new);
+    try {
+      CompletableFuture.allOf(exits).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException | TimeoutException e) {
+      // some processes are still alive
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return processes.stream().filter(ProcessHandle::isAlive).collect(Collectors.toList());
+  }
+
+  private static String format(Duration duration) {
+    return String.format("%.3fs", duration.toMillis() / 1000.0);
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Merges the JUnit XML reports of many modules into a single report.
+ *
+ * <p>Reports are streamed: every {@code testsuite} element is copied event by event while its test
+ * cases are counted, no document is held in memory. Modules are processed in parallel, each one
+ * into a fragment file. The fragments are then concatenated below a {@code testsuites} root element
+ * carrying the totals. The name of each suite is prefixed with the name of its module.
+ */
+class ReportAggregator {
+
+  /** Counts of a module or of all modules. */
+  static class Totals {
+
+    final String name;
+    long suites;
+    long tests;
+    long failures;
+    long errors;
+    long skipped;
+    double time;
+
+    Totals(String name) {
+      this.name = name;
+    }
+
+    void add(Totals other) {
+      suites += other.suites;
+      tests += other.tests;
+      failures += other.failures;
+      errors += other.errors;
+      skipped += other.skipped;
+      time += other.time;
+    }
+
+    boolean isFailed() {
+      return failures + errors > 0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          Locale.ROOT,
+          "%s: %d tests, %d failures, %d errors, %d skipped, %.3f s",
+          name,
+          tests,
+          failures,
+          errors,
+          skipped,
+          time);
+    }
+  }
+
+  private final Path directory;
+  private final XMLInputFactory inputFactory;
+  private final XMLOutputFactory outputFactory = XMLOutputFactory.newFactory();
+
+  ReportAggregator(Path directory) {
+    this.directory = directory;
+    this.inputFactory = XMLInputFactory.newFactory();
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+  }
+
+  /**
+   * Merge the reports of all modules.
+   *
+   * @param modules unique name of each module mapped to its reports directory, in reactor order
+   * @param file the report to write
+   * @param name name of the root element
+   * @return totals of each module with at least one report, in the given order
+   */
+  List<Totals> aggregate(Map<String, Path> modules, Path file, String name) throws IOException {
+    Files.createDirectories(directory);
+    var names = new ArrayList<>(modules.keySet());
+    var fragments = new ArrayList<Path>();
+    for (int i = 0; i < names.size(); i++) {
+      fragments.add(directory.resolve("fragment-" + i + ".xml"));
+    }
+    List<Totals> totals;
+    try {
+      totals =
+          IntStream.range(0, names.size())
+              .parallel()
+              .mapToObj(i -> merge(names.get(i), modules.get(names.get(i)), fragments.get(i)))
+              .collect(Collectors.toList());
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    var all = new Totals(name);
+    totals.forEach(all::add);
+    try (var out = new BufferedOutputStream(Files.newOutputStream(file))) {
+      out.write(createHeader(all));
+      for (var fragment : fragments) {
+        Files.copy(fragment, out);
+        Files.delete(fragment);
+      }
+      out.write("</testsuites>\n".getBytes(StandardCharsets.UTF_8));
+    }
+    return totals.stream().filter(module -> module.suites > 0).collect(Collectors.toList());
+  }
+
+  // XML declaration and the start tag of the root element
+  private byte[] createHeader(Totals totals) throws IOException {
+    var bytes = new ByteArrayOutputStream();
+    try {
+      var xml = outputFactory.createXMLStreamWriter(bytes, "UTF-8");
+      xml.writeStartDocument("UTF-8", "1.0");
+      xml.writeCharacters("\n");
+      xml.writeStartElement("testsuites");
+      xml.writeAttribute("name", totals.name);
+      xml.writeAttribute("tests", String.valueOf(totals.tests));
+      xml.writeAttribute("failures", String.valueOf(totals.failures));
+      xml.writeAttribute("errors", String.valueOf(totals.errors));
+      xml.writeAttribute("skipped", String.valueOf(totals.skipped));
+      xml.writeAttribute("time", String.format(Locale.ROOT, "%.3f", totals.time));
+      // close the start tag
+      xml.writeCharacters("\n");
+      xml.flush();
+    } catch (XMLStreamException e) {
+      throw new IOException("Writing report header failed", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  // Copy the test suites of all reports of a module into the fragment file
+  private Totals merge(String module, Path reports, Path fragment) {
+    var totals = new Totals(module);
+    try (var out = new BufferedOutputStream(Files.newOutputStream(fragment))) {
+      if (Files.notExists(reports)) {
+        return totals;
+      }
+      var xml = outputFactory.createXMLStreamWriter(out, "UTF-8");
+      for (var report : findReports(reports)) {
+        try (var stream = Files.newInputStream(report)) {
+          var reader = inputFactory.createXMLStreamReader(stream);
+          copy(reader, xml, totals);
+          reader.close();
+        } catch (XMLStreamException e) {
+          throw new IOException("Parsing test report failed: " + report, e);
+        }
+      }
+      xml.flush();
+      xml.close();
+      return totals;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (XMLStreamException e) {
+      throw new UncheckedIOException(new IOException("Writing report fragment failed", e));
+    }
+  }
+
+  // Legacy reports of all shards: TEST-*.xml files in the directory and its subdirectories
+  static List<Path> findReports(Path reports) throws IOException {
+    try (var paths = Files.walk(reports)) {
+      return paths
+          .filter(path -> path.getFileName().toString().startsWith("TEST-"))
+          .filter(path -> path.getFileName().toString().endsWith(".xml"))
+          .filter(Files::isRegularFile)
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static void copy(XMLStreamReader reader, XMLStreamWriter xml, Totals totals)
+      throws XMLStreamException {
+    var depth = 0; // depth within the test suite being copied, 0 outside of any suite
+    var suiteTime = 0d;
+    var caseTime = 0d;
+    while (reader.hasNext()) {
+      var event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        var element = reader.getLocalName();
+        if (depth == 0 && !element.equals("testsuite")) {
+          continue;
+        }
+        depth++;
+        xml.writeStartElement(element);
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+          var attribute = reader.getAttributeLocalName(i);
+          var value = reader.getAttributeValue(i);
+          if (depth == 1 && attribute.equals("name")) {
+            value = totals.name + "/" + value;
+          }
+          xml.writeAttribute(attribute, value);
+        }
+        switch (element) {
+          case "testsuite":
+            if (depth == 1) {
+              totals.suites++;
+              suiteTime = parseTime(reader.getAttributeValue(null, "time"));
+              caseTime = 0;
+            }
+            break;
+          case "testcase":
+            totals.tests++;
+            caseTime += parseTime(reader.getAttributeValue(null, "time"));
+            break;
+          case "failure":
+            totals.failures++;
+            break;
+          case "error":
+            totals.errors++;
+            break;
+          case "skipped":
+            totals.skipped++;
+            break;
+          default:
+        }
+        continue;
+      }
+      if (depth == 0) {
+        continue;
+      }
+      switch (event) {
+        case XMLStreamConstants.END_ELEMENT:
+          xml.writeEndElement();
+          depth--;
+          if (depth == 0) {
+            // prefer the time of the suite, fall back to the sum of its test cases
+            totals.time += suiteTime > 0 ? suiteTime : caseTime;
+            xml.writeCharacters("\n");
+          }
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.SPACE:
+          xml.writeCharacters(
+              reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+          break;
+        case XMLStreamConstants.CDATA:
+          xml.writeCData(reader.getText());
+          break;
+        default:
+          // comments and processing instructions are dropped
+      }
+    }
+  }
+
+  private static double parseTime(String time) {
+    if (time == null) {
+      return 0;
+    }
+    try {
+      return Double.parseDouble(time.replace(",", ""));
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+}
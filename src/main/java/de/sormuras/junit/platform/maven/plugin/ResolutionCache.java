@@ -0,0 +1,129 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches resolved artifacts and their dependencies, keyed by coordinates and repositories.
+ *
+ * <p>Entries are shared by all modules of a reactor and persisted to a file between builds. A
+ * persisted entry is only used if all of its files still exist. Resolutions of snapshot versions,
+ * or depending on one, are never cached: the cache outlives the session in embedded and daemon
+ * Maven, and a snapshot may be re-resolved to a different file at any time.
+ */
+class ResolutionCache {
+
+  /** Resolved artifact: {@code groupId:artifactId} and path to its file. */
+  static class Entry {
+
+    final String key;
+    final String path;
+
+    Entry(String key, String path) {
+      this.key = key;
+      this.path = path;
+    }
+  }
+
+  private static final Map<Path, ResolutionCache> CACHES = new ConcurrentHashMap<>();
+
+  /** Return the cache persisted to the given file, shared by all mojo executions of this JVM. */
+  static ResolutionCache of(Path file) {
+    return CACHES.computeIfAbsent(file.toAbsolutePath().normalize(), ResolutionCache::new);
+  }
+
+  private final Path file;
+  private final Map<String, List<Entry>> entries = new ConcurrentHashMap<>();
+
+  private ResolutionCache(Path file) {
+    this.file = file;
+    try {
+      load();
+    } catch (IOException | RuntimeException e) {
+      entries.clear(); // start over
+    }
+  }
+
+  /** Return the cached entries, if present and all files exist. */
+  List<Entry> get(String key) {
+    var list = entries.get(key);
+    if (list == null) {
+      return null;
+    }
+    if (list.stream().allMatch(entry -> Files.exists(Paths.get(entry.path)))) {
+      return list;
+    }
+    entries.remove(key);
+    return null;
+  }
+
+  /** Cache the entries and store them on disk, unless a snapshot is involved. */
+  void put(String key, List<Entry> list) throws IOException {
+    if (isSnapshot(key, list)) {
+      return;
+    }
+    entries.put(key, List.copyOf(list));
+    save();
+  }
+
+  // Snapshot coordinates, or a snapshot file among the resolved dependencies
+  private static boolean isSnapshot(String key, List<Entry> list) {
+    return key.contains("-SNAPSHOT") || list.stream().anyMatch(e -> e.path.contains("-SNAPSHOT"));
+  }
+
+  // Line format: key TAB groupId:artifactId TAB path
+  private void load() throws IOException {
+    if (Files.notExists(file)) {
+      return;
+    }
+    var map = new LinkedHashMap<String, List<Entry>>();
+    for (var line : Files.readAllLines(file)) {
+      var columns = line.split("\t");
+      if (columns.length == 3) {
+        map.computeIfAbsent(columns[0], k -> new ArrayList<>())
+            .add(new Entry(columns[1], columns[2]));
+      }
+    }
+    // Files written by earlier versions may hold snapshots
+    map.forEach(
+        (key, list) -> {
+          if (!isSnapshot(key, list)) {
+            entries.put(key, list);
+          }
+        });
+  }
+
+  // Rewrite the file, other JVMs may write concurrently: last one wins, no entry is corrupted
+  private synchronized void save() throws IOException {
+    var lines = new ArrayList<String>();
+    entries.forEach(
+        (key, list) ->
+            list.forEach(entry -> lines.add(key + "\t" + entry.key + "\t" + entry.path)));
+    Files.createDirectories(file.getParent());
+    var temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+    Files.write(temp, lines);
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Copies lines of a process stream into a file while the process is running.
+ *
+ * <p>Output written within this JVM is handed over via an {@link #openOutputStream() output stream}
+ * instead: it splits the bytes into lines and copies them in the writing thread.
+ *
+ * <p>Each line is either passed to a live consumer immediately or, in tail-only mode, kept in a
+ * bounded buffer holding the last lines seen. The memory used by a pump does not grow with the
+ * amount of output.
+ *
+ * <p>A failure writing the file, for example a full disk, stops only the copy into the file: the
+ * pump reports it once and keeps draining the stream, so the process never blocks on a full pipe.
+ */
+class StreamPump implements Runnable {
+
+  private final InputStream stream;
+  private final Path file;
+  private final Consumer<String> consumer;
+  private final Consumer<String> warning;
+  private final int capacity;
+  private final Deque<String> tail;
+  private volatile long firstLineNanos;
+  private BufferedWriter writer;
+  private boolean closed;
+
+  /**
+   * Create a pump.
+   *
+   * @param stream the stream to read lines from
+   * @param file the file to write all lines to
+   * @param consumer the live consumer, used only if {@code capacity} is zero
+   * @param capacity number of last lines to buffer, zero for live mode
+   * @param warning the consumer of the message reporting a failure writing the file
+   */
+  StreamPump(
+      InputStream stream,
+      Path file,
+      Consumer<String> consumer,
+      int capacity,
+      Consumer<String> warning) {
+    this.stream = stream;
+    this.file = file;
+    this.consumer = consumer;
+    this.warning = warning;
+    this.capacity = capacity;
+    this.tail = new ArrayDeque<>(Math.max(capacity, 1));
+  }
+
+  /**
+   * Create a pump for output written within this JVM.
+   *
+   * @see #openOutputStream()
+   */
+  StreamPump(Path file, Consumer<String> consumer, int capacity, Consumer<String> warning) {
+    this(new ByteArrayInputStream(new byte[0]), file, consumer, capacity, warning);
+  }
+
+  @Override
+  public void run() {
+    var reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+    open();
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        handle(line, !reader.ready());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Reading stream for " + file + " failed", e);
+    } finally {
+      close();
+    }
+  }
+
+  /**
+   * Open the file and return a stream splitting all bytes written to it into lines.
+   *
+   * <p>Lines are handled in the writing thread, no thread is started. Closing the stream handles an
+   * unterminated last line and closes the file, bytes written later are dropped.
+   */
+  OutputStream openOutputStream() {
+    open();
+    return new LineStream();
+  }
+
+  private synchronized void open() {
+    try {
+      writer = Files.newBufferedWriter(file);
+    } catch (IOException e) {
+      writer = abandon(null, e);
+    }
+  }
+
+  private synchronized void handle(String line, boolean flush) {
+    if (closed) {
+      return;
+    }
+    if (firstLineNanos == 0) {
+      firstLineNanos = System.nanoTime();
+    }
+    accept(line);
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.write(line);
+      writer.newLine();
+      if (flush) {
+        writer.flush();
+      }
+    } catch (IOException e) {
+      writer = abandon(writer, e);
+    }
+  }
+
+  private synchronized void flush() {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.flush();
+    } catch (IOException e) {
+      writer = abandon(writer, e);
+    }
+  }
+
+  private synchronized void close() {
+    closed = true;
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.close();
+    } catch (IOException e) {
+      abandon(null, e);
+    }
+    writer = null;
+  }
+
+  /** Report the write failure, close the writer quietly and return {@code null}. */
+  private BufferedWriter abandon(BufferedWriter writer, IOException cause) {
+    warning.accept("Writing " + file + " failed, continuing without it: " + cause);
+    if (writer != null) {
+      try {
+        writer.close();
+      } catch (IOException e) {
+        // ignore, the file is already abandoned
+      }
+    }
+    return null;
+  }
+
+  /** Start this pump in a new daemon thread. */
+  Thread start(String name) {
+    var thread = new Thread(this, name);
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  /** Return the {@link System#nanoTime()} when the first line was read, zero if none was read. */
+  long getFirstLineNanos() {
+    return firstLineNanos;
+  }
+
+  Path getFile() {
+    return file;
+  }
+
+  /** Return a snapshot of the buffered last lines, always empty in live mode. */
+  synchronized List<String> getTail() {
+    return new ArrayList<>(tail);
+  }
+
+  boolean isLive() {
+    return capacity == 0;
+  }
+
+  /** Splits bytes into lines at line feeds, like {@link BufferedReader#readLine()} would. */
+  private class LineStream extends OutputStream {
+
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private boolean carriageReturn;
+
+    @Override
+    public void write(int b) {
+      synchronized (StreamPump.this) {
+        if (b == '\n' && carriageReturn) {
+          carriageReturn = false;
+          return;
+        }
+        carriageReturn = b == '\r';
+        if (b == '\n' || b == '\r') {
+          emit();
+          return;
+        }
+        line.write(b);
+      }
+    }
+
+    @Override
+    public void flush() {
+      StreamPump.this.flush();
+    }
+
+    @Override
+    public void close() {
+      synchronized (StreamPump.this) {
+        if (line.size() > 0) {
+          emit();
+        }
+        StreamPump.this.close();
+      }
+    }
+
+    private void emit() {
+      handle(new String(line.toByteArray(), StandardCharsets.UTF_8), false);
+      line.reset();
+    }
+  }
+
+  private void accept(String line) {
+    if (isLive()) {
+      consumer.accept(line);
+      return;
+    }
+    synchronized (this) {
+      if (tail.size() == capacity) {
+        tail.removeFirst();
+      }
+      tail.addLast(line);
+    }
+  }
+}
@@ -0,0 +1,487 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Finds candidate test classes in a directory without loading them.
+ *
+ * <p>Top-level classes and static member classes whose binary name matches the class name pattern
+ * are candidates, like the console launcher's {@code --scan-class-path} finds them. Class files are
+ * parsed in parallel: interfaces, abstract and private classes are dropped.
+ *
+ * <p>If tags are given, the annotations of each candidate, its member classes and its super types
+ * are read from the class files, including tags of composed annotations. A candidate is dropped if
+ * no subset of the tags it may declare satisfies a tag expression. Candidates referring to classes
+ * or annotations that can't be read are kept, the test engines have the final say.
+ */
+class TestClassScanner {
+
+  /** Same as the console launcher's default {@code --include-classname} pattern. */
+  static final Pattern DEFAULT_CLASS_NAME_PATTERN =
+      Pattern.compile("^(Test.*|.+[.$]Test.*|.*Tests?)$");
+
+  /** Packages of annotations that are known not to declare tags, except the ones below. */
+  private static final List<String> LIBRARIES =
+      List.of("java.", "javax.", "jdk.", "kotlin.", "org.junit.", "org.opentest4j.");
+
+  private static final String TAG = "org.junit.jupiter.api.Tag";
+  private static final String TAGS = "org.junit.jupiter.api.Tags";
+  private static final String CATEGORY = "org.junit.experimental.categories.Category";
+
+  private static final int ACC_PRIVATE = 0x0002;
+  private static final int ACC_STATIC = 0x0008;
+  private static final int ACC_INTERFACE = 0x0200;
+  private static final int ACC_ABSTRACT = 0x0400;
+
+  /** Parsed class file: access flags, super types, declared tags and other annotation types. */
+  static class ClassFile {
+
+    int access;
+    boolean member;
+    final List<String> supertypes = new ArrayList<>();
+    final Set<String> tags = new TreeSet<>();
+    final Set<String> annotations = new TreeSet<>();
+  }
+
+  private final Pattern pattern;
+  private final List<TagExpression> expressions;
+  private int scanned;
+
+  TestClassScanner() {
+    this(DEFAULT_CLASS_NAME_PATTERN, List.of());
+  }
+
+  TestClassScanner(Pattern pattern) {
+    this(pattern, List.of());
+  }
+
+  /**
+   * Create a scanner pre-filtering test classes by tags.
+   *
+   * @param pattern class name pattern
+   * @param tags tags or tag expressions, combined using {@code OR} semantics
+   * @throws IllegalArgumentException if a tag expression can't be parsed
+   */
+  TestClassScanner(Pattern pattern, List<String> tags) {
+    this.pattern = pattern;
+    this.expressions = tags.stream().map(TagExpression::new).collect(Collectors.toList());
+  }
+
+  /**
+   * Scan the directory for candidate test classes.
+   *
+   * @param directory root of a class file tree, usually the test output directory
+   * @return sorted list of binary class names
+   */
+  List<String> scan(Path directory) {
+    return scan(directory, List.of());
+  }
+
+  /**
+   * Scan the directory for candidate test classes.
+   *
+   * @param directory root of a class file tree, usually the test output directory
+   * @param libraries more class file trees to resolve super types and annotations of test classes,
+   *     usually the main output directory
+   * @return sorted list of binary class names
+   */
+  List<String> scan(Path directory, List<Path> libraries) {
+    scanned = 0;
+    if (Files.notExists(directory)) {
+      return List.of();
+    }
+    try {
+      var files = new TreeMap<String, Path>();
+      list(directory, files);
+      var candidates =
+          files.keySet().stream().filter(this::isCandidateName).collect(Collectors.toList());
+      var indexed = new TreeMap<String, Path>();
+      if (expressions.isEmpty()) {
+        candidates.forEach(name -> indexed.put(name, files.get(name)));
+      } else {
+        indexed.putAll(files);
+        for (var library : libraries) {
+          list(library, indexed);
+        }
+      }
+      var classes = read(indexed);
+      var testClasses =
+          candidates
+              .stream()
+              .filter(name -> isTestClass(name, classes.get(name)))
+              .collect(Collectors.toList());
+      scanned = testClasses.size();
+      if (expressions.isEmpty()) {
+        return testClasses;
+      }
+      var members = new HashMap<String, List<String>>();
+      for (var name : indexed.keySet()) {
+        var dollar = name.lastIndexOf('$');
+        if (dollar > 0) {
+          members.computeIfAbsent(name.substring(0, dollar), key -> new ArrayList<>()).add(name);
+        }
+      }
+      return testClasses
+          .stream()
+          .filter(name -> isSelected(collectTags(name, classes, members)))
+          .collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Scanning for test classes failed: " + directory, e);
+    }
+  }
+
+  /** Number of candidate test classes found by the last scan before filtering them by tags. */
+  int getScannedCount() {
+    return scanned;
+  }
+
+  private static void list(Path root, Map<String, Path> files) throws IOException {
+    if (Files.notExists(root)) {
+      return;
+    }
+    try (var paths = Files.walk(root)) {
+      for (var path : paths.collect(Collectors.toList())) {
+        if (path.getFileName().toString().endsWith(".class")) {
+          files.putIfAbsent(toClassName(root.relativize(path)), path);
+        }
+      }
+    }
+  }
+
+  private boolean isCandidateName(String name) {
+    if (name.endsWith("module-info") || name.endsWith("package-info")) {
+      return false;
+    }
+    return pattern.matcher(name).matches();
+  }
+
+  // Same as the console launcher's class path scan: no local, anonymous or inner classes
+  private static boolean isTestClass(String name, ClassFile file) {
+    if (file == null) {
+      return name.indexOf('$') < 0;
+    }
+    if ((file.access & (ACC_PRIVATE | ACC_INTERFACE | ACC_ABSTRACT)) != 0) {
+      return false;
+    }
+    return name.indexOf('$') < 0 || file.member && (file.access & ACC_STATIC) != 0;
+  }
+
+  // Class files that can't be read or parsed are left out of the returned map
+  private static Map<String, ClassFile> read(Map<String, Path> files) {
+    var classes = new ConcurrentHashMap<String, ClassFile>();
+    files
+        .entrySet()
+        .parallelStream()
+        .forEach(
+            entry -> {
+              try {
+                classes.put(entry.getKey(), read(Files.readAllBytes(entry.getValue())));
+              } catch (IOException | RuntimeException e) {
+                // unknown class file, treat it like a missing one
+              }
+            });
+    return classes;
+  }
+
+  // Tags of the class, its member classes and super types, empty if not all of them are known
+  private static Optional<Set<String>> collectTags(
+      String name, Map<String, ClassFile> classes, Map<String, List<String>> members) {
+    var tags = new TreeSet<String>();
+    var queue = new ArrayDeque<String>(List.of(name));
+    var visited = new HashSet<String>(queue);
+    while (!queue.isEmpty()) {
+      var next = queue.poll();
+      var file = classes.get(next);
+      if (file == null) {
+        if (LIBRARIES.stream().anyMatch(next::startsWith)) {
+          continue;
+        }
+        return Optional.empty();
+      }
+      tags.addAll(file.tags);
+      var references = new ArrayList<String>(file.supertypes);
+      references.addAll(file.annotations);
+      references.addAll(members.getOrDefault(next, List.of()));
+      for (var reference : references) {
+        if (visited.add(reference)) {
+          queue.add(reference);
+        }
+      }
+    }
+    return Optional.of(tags);
+  }
+
+  private boolean isSelected(Optional<Set<String>> tags) {
+    if (!tags.isPresent()) {
+      return true;
+    }
+    return expressions.stream().anyMatch(expression -> expression.isSatisfiable(tags.get()));
+  }
+
+  /**
+   * Read access flags, super types and annotations of a class file.
+   *
+   * <p>Annotations of the class and its methods are considered. Values of {@code Tag} and {@code
+   * Category} annotations are recorded as tags, all other annotation types are recorded by name.
+   */
+  static ClassFile read(byte[] bytes) throws IOException {
+    var reader = new ClassFileReader(new ByteArrayInputStream(bytes));
+    var in = reader.getInput();
+    var file = new ClassFile();
+    file.access = in.readUnsignedShort();
+    var thisClass = in.readUnsignedShort();
+    var superClass = in.readUnsignedShort();
+    if (superClass != 0) {
+      file.supertypes.add(toName(reader.getClassName(superClass)));
+    }
+    var interfaces = in.readUnsignedShort();
+    for (int i = 0; i < interfaces; i++) {
+      file.supertypes.add(toName(reader.getClassName(in.readUnsignedShort())));
+    }
+    for (int members = 0; members < 2; members++) { // fields, then methods
+      var memberCount = in.readUnsignedShort();
+      for (int i = 0; i < memberCount; i++) {
+        in.skipBytes(6); // access flags, name and descriptor
+        readAttributes(reader, file, members == 1, -1);
+      }
+    }
+    readAttributes(reader, file, true, thisClass);
+    return file;
+  }
+
+  // Parse runtime visible annotations and, if this class is given, the inner classes attribute
+  private static void readAttributes(
+      ClassFileReader reader, ClassFile file, boolean annotations, int thisClass)
+      throws IOException {
+    var in = reader.getInput();
+    var count = in.readUnsignedShort();
+    for (int i = 0; i < count; i++) {
+      var name = reader.getString(in.readUnsignedShort());
+      var length = in.readInt();
+      if (annotations && "RuntimeVisibleAnnotations".equals(name)) {
+        var annotationCount = in.readUnsignedShort();
+        for (int a = 0; a < annotationCount; a++) {
+          readAnnotation(reader, file);
+        }
+        continue;
+      }
+      if (thisClass > 0 && "InnerClasses".equals(name)) {
+        var classCount = in.readUnsignedShort();
+        for (int c = 0; c < classCount; c++) {
+          var inner = in.readUnsignedShort();
+          var outer = in.readUnsignedShort();
+          in.skipBytes(2); // simple name
+          var access = in.readUnsignedShort();
+          if (inner == thisClass) {
+            file.access = access;
+            file.member = outer != 0;
+          }
+        }
+        continue;
+      }
+      in.skipBytes(length);
+    }
+  }
+
+  // Nested annotations, like the ones contained in a Tags annotation, are recorded as well
+  private static void readAnnotation(ClassFileReader reader, ClassFile file) throws IOException {
+    var in = reader.getInput();
+    var type = toName(reader.getString(in.readUnsignedShort()));
+    var values = new ArrayList<String>();
+    var pairs = in.readUnsignedShort();
+    for (int i = 0; i < pairs; i++) {
+      in.skipBytes(2); // element name
+      readElementValue(reader, file, values);
+    }
+    switch (type) {
+      case TAG:
+      case CATEGORY:
+        values.forEach(value -> file.tags.add(value.trim()));
+        break;
+      case TAGS:
+        break;
+      default:
+        file.annotations.add(type);
+    }
+  }
+
+  // Collect string and class values, skip all other constants
+  private static void readElementValue(ClassFileReader reader, ClassFile file, List<String> values)
+      throws IOException {
+    var in = reader.getInput();
+    var tag = in.readUnsignedByte();
+    switch (tag) {
+      case 's':
+        values.add(reader.getString(in.readUnsignedShort()));
+        break;
+      case 'c':
+        values.add(toName(reader.getString(in.readUnsignedShort())));
+        break;
+      case 'e':
+        in.skipBytes(4);
+        break;
+      case '@':
+        readAnnotation(reader, file);
+        break;
+      case '[':
+        var count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+          readElementValue(reader, file, values);
+        }
+        break;
+      case 'B':
+      case 'C':
+      case 'D':
+      case 'F':
+      case 'I':
+      case 'J':
+      case 'S':
+      case 'Z':
+        in.skipBytes(2);
+        break;
+      default:
+        throw new IOException("Unknown element value tag " + (char) tag);
+    }
+  }
+
+  // Internal name "a/b/C" or field descriptor "La/b/C;" to binary name "a.b.C"
+  private static String toName(String name) {
+    if (name.startsWith("L") && name.endsWith(";")) {
+      name = name.substring(1, name.length() - 1);
+    }
+    return name.replace('/', '.');
+  }
+
+  static String toClassName(Path relative) {
+    var name = relative.toString().replace(relative.getFileSystem().getSeparator(), ".");
+    return name.substring(0, name.length() - ".class".length());
+  }
+
+  /**
+   * Tag expression parsed with the precedence of the JUnit Platform: {@code !} binds tighter than
+   * {@code &}, which binds tighter than {@code |}.
+   */
+  static class TagExpression {
+
+    /** Pre-filtering gives up on expressions with more distinct tags. */
+    private static final int MAX_TAGS = 16;
+
+    private final List<String> tokens = new ArrayList<>();
+    private final Set<String> names = new TreeSet<>();
+    private final Predicate<Set<String>> predicate;
+    private int position;
+
+    TagExpression(String expression) {
+      var matcher = Pattern.compile("[()&|!]|[^\\s()&|!]+").matcher(expression);
+      while (matcher.find()) {
+        tokens.add(matcher.group());
+      }
+      predicate = parseOr();
+      if (position != tokens.size()) {
+        throw new IllegalArgumentException("Unexpected '" + tokens.get(position) + "'");
+      }
+    }
+
+    /**
+     * Return {@code true} if any subset of the given tags satisfies this expression.
+     *
+     * @param tags all tags a test class and its tests may declare
+     */
+    boolean isSatisfiable(Set<String> tags) {
+      var relevant = names.stream().filter(tags::contains).collect(Collectors.toList());
+      if (relevant.size() > MAX_TAGS) {
+        return true;
+      }
+      for (int mask = 0; mask < 1 << relevant.size(); mask++) {
+        var subset = new HashSet<String>();
+        for (int bit = 0; bit < relevant.size(); bit++) {
+          if ((mask & 1 << bit) != 0) {
+            subset.add(relevant.get(bit));
+          }
+        }
+        if (predicate.test(subset)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private Predicate<Set<String>> parseOr() {
+      var left = parseAnd();
+      while (accept("|")) {
+        left = left.or(parseAnd());
+      }
+      return left;
+    }
+
+    private Predicate<Set<String>> parseAnd() {
+      var left = parseNot();
+      while (accept("&")) {
+        left = left.and(parseNot());
+      }
+      return left;
+    }
+
+    private Predicate<Set<String>> parseNot() {
+      if (accept("!")) {
+        return parseNot().negate();
+      }
+      if (accept("(")) {
+        var inner = parseOr();
+        if (!accept(")")) {
+          throw new IllegalArgumentException("Missing ')'");
+        }
+        return inner;
+      }
+      if (position == tokens.size() || "()&|".contains(tokens.get(position))) {
+        throw new IllegalArgumentException("Missing tag at token " + position);
+      }
+      var name = tokens.get(position++);
+      if (position < tokens.size() && tokens.get(position).equals("(")) {
+        throw new IllegalArgumentException("Unsupported function " + name + "()");
+      }
+      names.add(name);
+      return tags -> tags.contains(name);
+    }
+
+    private boolean accept(String token) {
+      if (position < tokens.size() && tokens.get(position).equals(token)) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+  }
+}
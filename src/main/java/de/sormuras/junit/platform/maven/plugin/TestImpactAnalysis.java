@@ -0,0 +1,304 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Selects test classes affected by changes since the last successful run.
+ *
+ * <p>An index of all classes in the main and test output directories maps each class to the classes
+ * it references, as read from the constant pool of its class file. Class files are parsed in
+ * parallel, unchanged files are taken from the index of the last successful run. Classes whose
+ * content changed, appeared or vanished are then followed backwards through the index: every test
+ * class that transitively references a changed class is affected.
+ *
+ * <p>If resources in the output directories or any other test class path element changed, all test
+ * classes are affected. The same applies if the configuration selecting and launching the tests,
+ * for example tags, shards or Java options, differs from the one of the last successful run: its
+ * baseline only covers the tests that run with that configuration. Compile-time constants inlined
+ * by {@code javac} leave no trace in the constant pool, changing such a constant is not detected.
+ */
+class TestImpactAnalysis {
+
+  /** Field types, signatures and array class names: {@code Lpack/Name;} or {@code Lpack/Name<}. */
+  private static final Pattern DESCRIPTOR = Pattern.compile("L([\\w/$]+)[;<]");
+
+  /** Indexed class file. */
+  static class Entry {
+
+    final long size;
+    final long modified;
+    final String hash;
+    final Set<String> dependencies;
+
+    Entry(long size, long modified, String hash, Set<String> dependencies) {
+      this.size = size;
+      this.modified = modified;
+      this.hash = hash;
+      this.dependencies = dependencies;
+    }
+  }
+
+  private final JUnitPlatformMojo mojo;
+  private final Path indexFile;
+  private final Map<String, Entry> baseline = new HashMap<>();
+  private final Map<String, Entry> current = new TreeMap<>();
+  private final Set<String> changed = new TreeSet<>();
+  private final Set<String> affected = new HashSet<>();
+  private String baselineKey = "";
+  private String currentKey = "";
+
+  TestImpactAnalysis(JUnitPlatformMojo mojo, Path directory) {
+    this.mojo = mojo;
+    this.indexFile = directory.resolve("index.tsv");
+  }
+
+  /** Index the output directories and compute the classes affected by changes. */
+  void update() throws IOException {
+    var start = System.nanoTime();
+    load();
+    var build = mojo.getMavenProject().getBuild();
+    var roots =
+        List.of(Paths.get(build.getOutputDirectory()), Paths.get(build.getTestOutputDirectory()));
+    var files = new TreeMap<String, Path>();
+    var resources = new TreeSet<Path>();
+    for (var root : roots) {
+      if (Files.notExists(root)) {
+        continue;
+      }
+      try (var paths = Files.walk(root)) {
+        for (var path : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+          var relative = root.relativize(path);
+          if (!relative.toString().endsWith(".class")) {
+            resources.add(path);
+            continue;
+          }
+          var name = TestClassScanner.toClassName(relative);
+          if (!name.endsWith("module-info")) {
+            files.putIfAbsent(name, path);
+          }
+        }
+      }
+    }
+    currentKey = computeKey(roots, resources);
+    try {
+      files
+          .entrySet()
+          .parallelStream()
+          .map(file -> Map.entry(file.getKey(), index(file.getKey(), file.getValue(), files)))
+          .collect(Collectors.toList())
+          .forEach(entry -> current.put(entry.getKey(), entry.getValue()));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    for (var entry : current.entrySet()) {
+      var previous = baseline.get(entry.getKey());
+      if (previous == null || !previous.hash.equals(entry.getValue().hash)) {
+        changed.add(entry.getKey());
+      }
+    }
+    for (var name : baseline.keySet()) {
+      if (!current.containsKey(name)) {
+        changed.add(name);
+      }
+    }
+    computeAffected();
+    var millis = (System.nanoTime() - start) / 1_000_000;
+    mojo.debug("Indexed %d classes in %d ms, %d changed", current.size(), millis, changed.size());
+  }
+
+  /** Return {@code true} if the last successful run can be compared with. */
+  boolean isSelective() {
+    return !baseline.isEmpty() && baselineKey.equals(currentKey);
+  }
+
+  /** Names of classes that changed since the last successful run. */
+  Set<String> getChangedClasses() {
+    return changed;
+  }
+
+  /**
+   * Filter the given test classes.
+   *
+   * @param testClasses names of test classes, member classes count as their top-level class
+   * @return the affected test classes, all given ones if no comparison is possible
+   */
+  List<String> getAffectedTestClasses(List<String> testClasses) {
+    if (!isSelective()) {
+      return testClasses;
+    }
+    return testClasses
+        .stream()
+        .filter(name -> affected.contains(DurationHistory.getTopLevelClassName(name)))
+        .collect(Collectors.toList());
+  }
+
+  /** Store the current index as the baseline for following runs. */
+  void save() throws IOException {
+    var lines = new ArrayList<String>();
+    lines.add("#\t" + currentKey);
+    current.forEach(
+        (name, entry) ->
+            lines.add(
+                String.join(
+                    "\t",
+                    name,
+                    String.valueOf(entry.size),
+                    String.valueOf(entry.modified),
+                    entry.hash,
+                    String.join(",", entry.dependencies))));
+    Files.createDirectories(indexFile.getParent());
+    Files.write(indexFile, lines);
+  }
+
+  private void load() throws IOException {
+    if (Files.notExists(indexFile)) {
+      return;
+    }
+    for (var line : Files.readAllLines(indexFile)) {
+      var columns = line.split("\t", -1);
+      if (columns.length == 2 && columns[0].equals("#")) {
+        baselineKey = columns[1];
+        continue;
+      }
+      if (columns.length != 5) {
+        continue;
+      }
+      var dependencies = new TreeSet<String>();
+      for (var dependency : columns[4].split(",")) {
+        if (!dependency.isEmpty()) {
+          dependencies.add(dependency);
+        }
+      }
+      var size = Long.parseLong(columns[1]);
+      var modified = Long.parseLong(columns[2]);
+      baseline.put(columns[0], new Entry(size, modified, columns[3], dependencies));
+    }
+  }
+
+  // Reuse the baseline entry if size and modification time didn't change, else parse the file
+  private Entry index(String name, Path path, Map<String, Path> known) {
+    try {
+      var size = Files.size(path);
+      var modified = Files.getLastModifiedTime(path).toMillis();
+      var previous = baseline.get(name);
+      if (previous != null && previous.size == size && previous.modified == modified) {
+        return previous;
+      }
+      var bytes = Files.readAllBytes(path);
+      var dependencies = readDependencies(new ByteArrayInputStream(bytes));
+      dependencies.retainAll(known.keySet());
+      dependencies.remove(name);
+      return new Entry(size, modified, Digests.toHex(Digests.sha256().digest(bytes)), dependencies);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Indexing class file failed: " + path, e);
+    }
+  }
+
+  // Walk the reversed dependency graph starting at all changed classes
+  private void computeAffected() {
+    var dependents = new HashMap<String, List<String>>();
+    current.forEach(
+        (name, entry) ->
+            entry.dependencies.forEach(
+                dependency ->
+                    dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(name)));
+    var queue = new ArrayDeque<>(changed);
+    var visited = new HashSet<>(changed);
+    while (!queue.isEmpty()) {
+      for (var dependent : dependents.getOrDefault(queue.poll(), List.of())) {
+        if (visited.add(dependent)) {
+          queue.add(dependent);
+        }
+      }
+    }
+    visited.forEach(name -> affected.add(DurationHistory.getTopLevelClassName(name)));
+  }
+
+  // Resources and all other class path elements: any change affects every test
+  private String computeKey(List<Path> roots, Set<Path> resources) throws IOException {
+    var digest = Digests.sha256();
+    for (var option : UpToDateCheck.getOptions(mojo)) {
+      digest.update((option + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+    for (var resource : resources) {
+      digest.update(resource.toString().getBytes(StandardCharsets.UTF_8));
+      digest.update(Files.readAllBytes(resource));
+    }
+    List<String> elements;
+    try {
+      elements = mojo.getMavenProject().getTestClasspathElements();
+    } catch (Exception e) {
+      throw new IllegalStateException("Resolving test class-path elements failed", e);
+    }
+    for (var element : elements) {
+      var path = Paths.get(element).toAbsolutePath().normalize();
+      if (roots.contains(path) || !Files.isRegularFile(path)) {
+        continue;
+      }
+      var size = Files.size(path);
+      var modified = Files.getLastModifiedTime(path).toMillis();
+      digest.update((path + "\t" + size + "\t" + modified + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+    return Digests.toHex(digest.digest());
+  }
+
+  /**
+   * Read the names of all classes referenced by the constant pool of a class file.
+   *
+   * <p>Class entries and all descriptors and signatures found in UTF-8 entries are considered.
+   *
+   * @param stream class file bytes
+   * @return binary names of referenced classes
+   */
+  static Set<String> readDependencies(InputStream stream) throws IOException {
+    var reader = new ClassFileReader(stream);
+    var names = new TreeSet<String>();
+    for (var name : reader.getClassNames()) {
+      if (!name.startsWith("[")) {
+        names.add(name.replace('/', '.'));
+      }
+    }
+    for (var string : reader.getStrings()) {
+      if (string.indexOf(';') < 0 && string.indexOf('<') < 0) {
+        continue;
+      }
+      var matcher = DESCRIPTOR.matcher(string);
+      while (matcher.find()) {
+        names.add(matcher.group(1).replace('/', '.'));
+      }
+    }
+    return names;
+  }
+}
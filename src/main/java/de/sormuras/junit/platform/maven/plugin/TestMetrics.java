@@ -0,0 +1,237 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Publishes live metrics of the test run received by an {@link EventCollector}.
+ *
+ * <p>The metrics are exposed by an MBean named {@code
+ * de.sormuras.junit.platform.maven.plugin:type=TestMetrics,module="<groupId>:<artifactId>"} in the
+ * Maven JVM and by a file in the Prometheus text format, periodically rewritten for the textfile
+ * collector of the node exporter. Both are updated until the run ends, the file keeps the final
+ * values. Modules are named by their {@code groupId:artifactId}: artifact ids alone may collide.
+ */
+class TestMetrics implements TestMetricsMBean, AutoCloseable {
+
+  static final String DOMAIN = "de.sormuras.junit.platform.maven.plugin";
+
+  private final JUnitPlatformMojo mojo;
+  private final EventCollector events;
+  private final Path file;
+  private final String module;
+  private ObjectName name;
+  private ScheduledExecutorService scheduler;
+
+  TestMetrics(JUnitPlatformMojo mojo, EventCollector events) {
+    this.mojo = mojo;
+    this.events = events;
+    var project = mojo.getMavenProject();
+    this.module = project.getGroupId() + ':' + project.getArtifactId();
+    var target = Paths.get(mojo.getMavenProject().getBuild().getDirectory(), "junit-platform");
+    this.file = target.resolve("metrics.prom");
+  }
+
+  /** Register the MBean and start rewriting the metrics file. */
+  TestMetrics start() {
+    var log = mojo.getLog();
+    try {
+      var server = ManagementFactory.getPlatformMBeanServer();
+      var candidate =
+          new ObjectName(DOMAIN + ":type=TestMetrics,module=" + ObjectName.quote(module));
+      if (server.isRegistered(candidate)) {
+        server.unregisterMBean(candidate);
+      }
+      server.registerMBean(this, candidate);
+      name = candidate;
+      mojo.debug("Test metrics registered as %s", name);
+    } catch (JMException e) {
+      log.warn("Registering test metrics MBean failed: " + e);
+    }
+    var interval = mojo.getMetricsInterval().toMillis();
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              var thread = new Thread(runnable, "junit-platform-metrics");
+              thread.setDaemon(true);
+              return thread;
+            });
+    scheduler.scheduleAtFixedRate(this::write, 0, interval, TimeUnit.MILLISECONDS);
+    log.info("Writing test metrics to " + file);
+    return this;
+  }
+
+  /** Stop updating, write the final values and unregister the MBean. */
+  @Override
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+    write();
+    if (name != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+      } catch (JMException e) {
+        mojo.debug("Unregistering test metrics MBean failed: %s", e);
+      }
+    }
+  }
+
+  // Write to a temporary file first, the collector must never read a partial file
+  private synchronized void write() {
+    try {
+      Files.createDirectories(file.getParent());
+      var temp = file.resolveSibling(file.getFileName() + ".tmp");
+      Files.write(temp, toPrometheusLines());
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | RuntimeException e) {
+      mojo.debug("Writing test metrics failed: %s", e);
+    }
+  }
+
+  /** Metrics in the Prometheus text exposition format. */
+  List<String> toPrometheusLines() {
+    var lines = new ArrayList<String>();
+    var label = "module=\"" + escape(module) + "\"";
+    counter(lines, "tests_started_total", "Tests started.", label, getTestsStarted());
+    lines.add("# HELP junit_platform_tests_finished_total Tests finished by status.");
+    lines.add("# TYPE junit_platform_tests_finished_total counter");
+    lines.add(finished(label, "successful", getTestsSuccessful()));
+    lines.add(finished(label, "failed", getTestsFailed()));
+    lines.add(finished(label, "aborted", getTestsAborted()));
+    lines.add(finished(label, "skipped", getTestsSkipped()));
+    gauge(lines, "tests_per_second", "Finished tests per second.", label, getTestsPerSecond());
+    gauge(
+        lines,
+        "last_event_timestamp_seconds",
+        "Time of the last test execution event.",
+        label,
+        events.getLastEventMillis() / 1000d);
+    gauge(lines, "fork_heap_used_bytes", "Heap used by forked JVMs.", label, getForkHeapUsed());
+    counter(
+        lines, "fork_cpu_seconds_total", "CPU time of forked JVMs.", label, getForkCpuSeconds());
+    lines.add("# HELP junit_platform_current_test_info Tests started, but not finished yet.");
+    lines.add("# TYPE junit_platform_current_test_info gauge");
+    for (var test : getCurrentTests()) {
+      lines.add("junit_platform_current_test_info{" + label + ",test=\"" + escape(test) + "\"} 1");
+    }
+    return lines;
+  }
+
+  private static void counter(
+      List<String> lines, String name, String help, String label, Number value) {
+    metric(lines, name, "counter", help, label, value);
+  }
+
+  private static void gauge(
+      List<String> lines, String name, String help, String label, Number value) {
+    metric(lines, name, "gauge", help, label, value);
+  }
+
+  private static void metric(
+      List<String> lines, String name, String type, String help, String label, Number value) {
+    lines.add("# HELP junit_platform_" + name + " " + help);
+    lines.add("# TYPE junit_platform_" + name + " " + type);
+    lines.add("junit_platform_" + name + "{" + label + "} " + format(value));
+  }
+
+  private static String finished(String label, String status, long value) {
+    return "junit_platform_tests_finished_total{" + label + ",status=\"" + status + "\"} " + value;
+  }
+
+  private static String format(Number value) {
+    if (value instanceof Double) {
+      return String.format(Locale.ROOT, "%.3f", value.doubleValue());
+    }
+    return String.valueOf(value);
+  }
+
+  // Backslash, double-quote and line feed must be escaped in label values
+  static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  @Override
+  public String getModule() {
+    return module;
+  }
+
+  @Override
+  public long getTestsStarted() {
+    return events.getTestsStarted();
+  }
+
+  @Override
+  public long getTestsSuccessful() {
+    return events.getTestsSuccessful();
+  }
+
+  @Override
+  public long getTestsFailed() {
+    return events.getTestsFailed();
+  }
+
+  @Override
+  public long getTestsAborted() {
+    return events.getTestsAborted();
+  }
+
+  @Override
+  public long getTestsSkipped() {
+    return events.getTestsSkipped();
+  }
+
+  @Override
+  public double getTestsPerSecond() {
+    var finished = getTestsSuccessful() + getTestsFailed() + getTestsAborted() + getTestsSkipped();
+    var seconds = events.getElapsed().toMillis() / 1000d;
+    return seconds > 0 ? finished / seconds : 0;
+  }
+
+  @Override
+  public String[] getCurrentTests() {
+    return events.getRunningTests().toArray(new String[0]);
+  }
+
+  @Override
+  public long getSecondsSinceLastEvent() {
+    return TimeUnit.MILLISECONDS.toSeconds(
+        System.currentTimeMillis() - events.getLastEventMillis());
+  }
+
+  @Override
+  public long getForkHeapUsed() {
+    return events.getForkHeapUsed();
+  }
+
+  @Override
+  public double getForkCpuSeconds() {
+    return events.getForkCpuTime().toMillis() / 1000d;
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+/**
+ * Management interface of the live test metrics of a module.
+ *
+ * <p>Standard MBean interfaces must be public, the implementation {@link TestMetrics} is not.
+ */
+public interface TestMetricsMBean {
+
+  /** Group and artifact id of the module running the tests, separated by a colon. */
+  String getModule();
+
+  long getTestsStarted();
+
+  long getTestsSuccessful();
+
+  long getTestsFailed();
+
+  long getTestsAborted();
+
+  long getTestsSkipped();
+
+  /** Finished tests per second since the launch. */
+  double getTestsPerSecond();
+
+  /** Tests started, but not finished yet. */
+  String[] getCurrentTests();
+
+  /** Seconds since the last test execution event, a growing value indicates a stalled run. */
+  long getSecondsSinceLastEvent();
+
+  /** Heap in use by all forked JVMs, in bytes. */
+  long getForkHeapUsed();
+
+  /** CPU time consumed by all forked JVMs, in seconds. */
+  double getForkCpuSeconds();
+}
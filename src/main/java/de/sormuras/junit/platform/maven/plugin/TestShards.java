@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Partitions test classes into a fixed number of shards, for example one per CI node.
+ *
+ * <p>Classes with a recorded duration are assigned longest first, each one to the shard with the
+ * least total duration so far. Classes without history are assigned by a stable hash of their name.
+ * The partition only depends on the given class names and the duration history: every node must see
+ * the same history, for example by restoring it from a shared cache, to get the same partition.
+ */
+class TestShards {
+
+  private final int count;
+  private final Optional<DurationHistory> history;
+
+  TestShards(int count, Optional<DurationHistory> history) {
+    if (count < 1) {
+      throw new IllegalArgumentException("shard count must be positive: " + count);
+    }
+    this.count = count;
+    this.history = history;
+  }
+
+  /**
+   * Partition the class names.
+   *
+   * @param classNames names of top-level test classes
+   * @return as many shards as configured, each one sorted by name
+   */
+  List<List<String>> partition(List<String> classNames) {
+    var shards = new ArrayList<List<String>>();
+    for (int i = 0; i < count; i++) {
+      shards.add(new ArrayList<>());
+    }
+    var medians = new HashMap<String, Long>();
+    var unknown = new ArrayList<String>();
+    for (var name : classNames) {
+      var median = getMedian(name);
+      if (median.isPresent()) {
+        medians.put(name, median.get().toMillis());
+      } else {
+        unknown.add(name);
+      }
+    }
+    // Sorting is stable: equal durations keep the order of their names
+    var known = new ArrayList<>(new TreeSet<>(medians.keySet()));
+    known.sort(Comparator.comparing(medians::get, Comparator.reverseOrder()));
+    var totals = new long[count];
+    for (var name : known) {
+      var lightest = 0;
+      for (int i = 1; i < count; i++) {
+        if (totals[i] < totals[lightest]) {
+          lightest = i;
+        }
+      }
+      shards.get(lightest).add(name);
+      totals[lightest] += medians.get(name);
+    }
+    for (var name : unknown) {
+      shards.get(hash(name, count)).add(name);
+    }
+    shards.forEach(shard -> shard.sort(Comparator.naturalOrder()));
+    return shards;
+  }
+
+  // String.hashCode() is specified, thus stable across JVMs, mix its bits for a fair spread
+  static int hash(String name, int count) {
+    var hash = name.hashCode() * 0x9E3779B9;
+    return Math.floorMod(hash ^ (hash >>> 16), count);
+  }
+
+  /**
+   * Fingerprint all inputs of the partition.
+   *
+   * @param classNames names of top-level test classes
+   * @return hex digest of the shard count and of every class name with its median duration
+   */
+  String digest(List<String> classNames) {
+    var digest = Digests.sha256();
+    digest.update(String.valueOf(count).getBytes(StandardCharsets.UTF_8));
+    for (var name : new TreeSet<>(classNames)) {
+      var median = getMedian(name).map(duration -> String.valueOf(duration.toMillis()));
+      var line = '\n' + name + '\t' + median.orElse("-");
+      digest.update(line.getBytes(StandardCharsets.UTF_8));
+    }
+    return Digests.toHex(digest.digest()).substring(0, 16);
+  }
+
+  /** Sum of the recorded median durations of the given classes. */
+  Duration estimate(List<String> classNames) {
+    return classNames
+        .stream()
+        .map(this::getMedian)
+        .flatMap(Optional::stream)
+        .reduce(Duration.ZERO, Duration::plus);
+  }
+
+  private Optional<Duration> getMedian(String className) {
+    return history.flatMap(h -> h.getPercentile(className, 50));
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Fingerprints all inputs of a test run to skip launching if nothing changed since the last
+ * successful run.
+ *
+ * <p>The inputs are the files of all test class path elements, including the main and test output
+ * directories, the resolved launcher and engine artifacts, the plugin archive and the
+ * configuration: Java executable, Java options, launcher options, parameters, tags, sharding,
+ * impact analysis, parallel execution, profiling and the JUnit versions. File contents are hashed
+ * in parallel. Hashes are cached by path, size and modification time, so only changed files are
+ * read again: a re-resolved snapshot launcher or engine is hashed anew.
+ */
+class UpToDateCheck {
+
+  private final JUnitPlatformMojo mojo;
+  private final Path directory;
+  private final Path cacheFile;
+  private final Path fingerprintFile;
+  private final Path reportsBackup;
+  private final Map<String, String> cache = new ConcurrentHashMap<>();
+
+  UpToDateCheck(JUnitPlatformMojo mojo, Path directory) {
+    this.mojo = mojo;
+    this.directory = directory;
+    this.cacheFile = directory.resolve("files.tsv");
+    this.fingerprintFile = directory.resolve("fingerprint");
+    this.reportsBackup = directory.resolve("reports");
+  }
+
+  /** Compute the fingerprint of the current inputs. */
+  String computeFingerprint() throws IOException {
+    var start = System.nanoTime();
+    loadCache();
+    var files = new TreeSet<Path>();
+    for (var element : getElements()) {
+      var path = Paths.get(element).toAbsolutePath().normalize();
+      if (Files.isDirectory(path)) {
+        try (var paths = Files.walk(path)) {
+          paths.filter(Files::isRegularFile).forEach(files::add);
+        }
+      } else if (Files.isRegularFile(path)) {
+        files.add(path);
+      }
+    }
+    var hashes = new TreeMap<Path, String>();
+    try {
+      files
+          .parallelStream()
+          .map(path -> Map.entry(path, hash(path)))
+          .collect(Collectors.toList())
+          .forEach(entry -> hashes.put(entry.getKey(), entry.getValue()));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    var digest = Digests.sha256();
+    for (var option : getOptions(mojo)) {
+      update(digest, option);
+    }
+    hashes.forEach((path, hash) -> update(digest, path + "=" + hash));
+    saveCache(hashes.keySet());
+    var fingerprint = Digests.toHex(digest.digest());
+    var millis = (System.nanoTime() - start) / 1_000_000;
+    mojo.debug("Fingerprint %s of %d files computed in %d ms", fingerprint, files.size(), millis);
+    return fingerprint;
+  }
+
+  /** Return {@code true} if the fingerprint matches the one of the last successful run. */
+  boolean isUpToDate(String fingerprint) throws IOException {
+    if (Files.notExists(fingerprintFile)) {
+      return false;
+    }
+    return Files.readAllLines(fingerprintFile).contains(fingerprint);
+  }
+
+  /** Forget the last successful run, a new one is about to start. */
+  void invalidate() throws IOException {
+    Files.deleteIfExists(fingerprintFile);
+  }
+
+  /** Remember the fingerprint of a successful run together with its reports. */
+  void markSuccessful(String fingerprint) throws IOException {
+    ForkPool.deleteTree(reportsBackup);
+    var reports = mojo.getReportsPath();
+    if (reports.isPresent()) {
+      copyTree(reports.get(), reportsBackup);
+    }
+    Files.write(fingerprintFile, List.of(fingerprint));
+  }
+
+  /** Replace the reports directory with the reports of the last successful run. */
+  void restoreReports() throws IOException {
+    var reports = mojo.getReportsPath();
+    if (reports.isPresent()) {
+      ForkPool.deleteTree(reports.get());
+      copyTree(reportsBackup, reports.get());
+    }
+  }
+
+  private List<String> getElements() {
+    var elements = new ArrayList<>(new JUnitPlatformStarter(mojo).createPathElements());
+    elements.add(ForkWorker.getLocation());
+    return elements;
+  }
+
+  /** Describe the configuration that selects and launches the tests, one option per line. */
+  static List<String> getOptions(JUnitPlatformMojo mojo) {
+    var options = new ArrayList<String>();
+    var javaOptions = mojo.getJavaOptions();
+    options.add("java=" + mojo.getJavaExecutable());
+    options.add("additionalOptions=" + javaOptions.getAdditionalOptions());
+    options.add("addModules=" + javaOptions.getAddModules());
+    options.add("addOpens=" + javaOptions.getAddOpens());
+    options.add("addReads=" + javaOptions.getAddReads());
+    options.add("overrideJavaOptions=" + mojo.getOverrideJavaOptions());
+    options.add("overrideLauncherOptions=" + mojo.getOverrideLauncherOptions());
+    options.add("parameters=" + new TreeMap<>(mojo.getParameters()));
+    options.add("tags=" + mojo.getTags());
+    options.add("reports=" + mojo.getReportsPath());
+    options.add("shard=" + mojo.getShardIndex() + "/" + mojo.getShardCount());
+    options.add("shardHistory=" + mojo.getShardHistoryPath());
+    options.add("impactAnalysis=" + mojo.isImpactAnalysis());
+    options.add("parallel=" + mojo.isParallel());
+    options.add("parallelism=" + mojo.getParallelism());
+    options.add("parallelMode=" + mojo.getParallelMode());
+    options.add("profile=" + mojo.isProfile());
+    options.add("jupiter=" + mojo.getJUnitJupiterVersion());
+    options.add("platform=" + mojo.getJUnitPlatformVersion());
+    options.add("vintage=" + mojo.getJUnitVintageVersion());
+    return options;
+  }
+
+  // Cache key: path, size and last modified time
+  private static String key(Path path) throws IOException {
+    return path + "\t" + Files.size(path) + "\t" + Files.getLastModifiedTime(path).toMillis();
+  }
+
+  private String hash(Path path) {
+    try {
+      var key = key(path);
+      var hash = cache.get(key);
+      if (hash == null) {
+        var digest = Digests.sha256();
+        digest.update(Files.readAllBytes(path));
+        hash = Digests.toHex(digest.digest());
+        cache.put(key, hash);
+      }
+      return hash;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Hashing file failed: " + path, e);
+    }
+  }
+
+  private void loadCache() throws IOException {
+    if (Files.notExists(cacheFile)) {
+      return;
+    }
+    for (var line : Files.readAllLines(cacheFile)) {
+      var separator = line.lastIndexOf('\t');
+      if (separator > 0) {
+        cache.put(line.substring(0, separator), line.substring(separator + 1));
+      }
+    }
+  }
+
+  // Keep entries of current files only
+  private void saveCache(Set<Path> files) throws IOException {
+    var lines = new ArrayList<String>();
+    for (var path : files) {
+      var key = key(path);
+      lines.add(key + "\t" + cache.get(key));
+    }
+    Files.createDirectories(directory);
+    Files.write(cacheFile, lines);
+  }
+
+  private static void copyTree(Path source, Path target) throws IOException {
+    if (Files.notExists(source)) {
+      return;
+    }
+    try (var paths = Files.walk(source)) {
+      for (var path : paths.collect(Collectors.toList())) {
+        var destination = target.resolve(source.relativize(path).toString());
+        if (Files.isDirectory(path)) {
+          Files.createDirectories(destination);
+          continue;
+        }
+        Files.copy(
+            path,
+            destination,
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.COPY_ATTRIBUTES);
+      }
+    }
+  }
+
+  private static void update(MessageDigest digest, String string) {
+    digest.update(string.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) '\n');
+  }
+}
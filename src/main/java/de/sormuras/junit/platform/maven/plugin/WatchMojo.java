@@ -0,0 +1,185 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.shared.utils.logging.MessageUtils;
+
+/**
+ * Re-run affected tests whenever class files change.
+ *
+ * <p>The main and test output directories are watched for changes written by an IDE or a {@code mvn
+ * test-compile} in another terminal. After each batch of changes, the test classes affected since
+ * the last successful run are launched within a warm {@link Daemon} JVM, each run using a fresh
+ * class loader or module layer. The goal runs until Maven is interrupted.
+ */
+@Mojo(
+    name = "watch",
+    requiresDependencyCollection = ResolutionScope.TEST,
+    requiresDependencyResolution = ResolutionScope.TEST)
+public class WatchMojo extends JUnitPlatformMojo {
+
+  @Parameter(defaultValue = "100")
+  private long watchQuietPeriod;
+
+  @Parameter(defaultValue = "0")
+  private int watchRuns;
+
+  private TestImpactAnalysis analysis;
+
+  @Override
+  public void execute() throws MojoFailureException {
+    var log = getLog();
+    log.info("Watching for changes...");
+
+    if (isSkip()) {
+      log.info(MessageUtils.buffer().warning("JUnit Platform execution skipped.").toString());
+      return;
+    }
+
+    var build = getMavenProject().getBuild();
+    var testOutput = Paths.get(build.getTestOutputDirectory());
+    if (Files.notExists(testOutput)) {
+      log.info(MessageUtils.buffer().warning("Test output directory doesn't exist.").toString());
+      return;
+    }
+
+    initialize();
+    debug("Java module system mode: %s", getModules().getMode());
+
+    var roots = List.of(Paths.get(build.getOutputDirectory()), testOutput);
+    var target = Paths.get(build.getDirectory(), "junit-platform");
+    try (var watcher = new DirectoryWatcher(roots)) {
+      Files.createDirectories(target);
+      var result = run(target);
+      for (int runs = 1; !isDryRun() && (getWatchRuns() <= 0 || runs < getWatchRuns()); runs++) {
+        log.info("");
+        log.info("Waiting for changes in " + roots + ", press Ctrl+C to stop");
+        var changes = watcher.await(getWatchQuietPeriod());
+        log.info(String.format("%d files changed", changes.size()));
+        changes.forEach(path -> debug("  %s", path));
+        // a clean build deletes the roots, wait for them to be created again
+        while (Files.notExists(testOutput)) {
+          log.info("Test output directory doesn't exist, waiting for it to be created");
+          changes = watcher.await(getWatchQuietPeriod());
+          changes.forEach(path -> debug("  %s", path));
+        }
+        Files.createDirectories(target);
+        if (changes.stream().anyMatch(WatchMojo::isModuleDescriptor)) {
+          initialize();
+          debug("Module descriptor changed, mode: %s", getModules().getMode());
+        }
+        result = run(target);
+      }
+      if (result != 0) {
+        throw new MojoFailureException("RED ALERT!");
+      }
+    } catch (IOException e) {
+      throw new MojoFailureException("Watching " + roots + " failed", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.info("Watching interrupted");
+    }
+  }
+
+  // Launch the affected test classes via the daemon, the last successful run is the baseline
+  private int run(Path target) {
+    var log = getLog();
+    var start = System.nanoTime();
+    var classes = discoverTestClasses();
+    if (classes.isEmpty() && isTestClassesFiltered()) {
+      log.info("No test classes match tags " + getTags() + ", nothing to launch");
+      return 0;
+    }
+    // Without test classes found by name, the engines scan the test output on their own
+    analysis = classes.isEmpty() ? null : analyze(target);
+    if (analysis != null && analysis.isSelective()) {
+      var affected = analysis.getAffectedTestClasses(classes);
+      log.info(
+          String.format(
+              "%d classes changed, %d of %d test classes affected",
+              analysis.getChangedClasses().size(), affected.size(), classes.size()));
+      if (affected.isEmpty()) {
+        save();
+        return 0;
+      }
+    }
+    var result = new DaemonClient(new JUnitPlatformStarter(this), target).getAsInt();
+    var millis = (System.nanoTime() - start) / 1_000_000;
+    if (result != 0) {
+      log.error(String.format("Tests failed in %d ms, exit value %d", millis, result));
+      return result;
+    }
+    log.info(MessageUtils.buffer().success("Tests passed in " + millis + " ms").toString());
+    save();
+    return 0;
+  }
+
+  private TestImpactAnalysis analyze(Path target) {
+    var analysis = new TestImpactAnalysis(this, target.resolve("watch"));
+    try {
+      analysis.update();
+      return analysis;
+    } catch (IOException | RuntimeException e) {
+      getLog().warn("Test impact analysis failed, running all tests: " + e);
+      return null;
+    }
+  }
+
+  private void save() {
+    if (analysis == null || isDryRun()) {
+      return;
+    }
+    try {
+      analysis.save();
+    } catch (IOException e) {
+      getLog().warn("Saving test impact analysis index failed: " + e);
+    }
+  }
+
+  private static boolean isModuleDescriptor(Path path) {
+    return path.getFileName().toString().equals("module-info.class");
+  }
+
+  /** The affected test classes of the current run, computed by the watch goal itself. */
+  @Override
+  Optional<TestImpactAnalysis> getTestImpactAnalysis() {
+    return Optional.ofNullable(analysis);
+  }
+
+  /**
+   * Time without further changes that ends a batch of changes, in milliseconds.
+   *
+   * <p>Compilers write many class files in a row, tests are launched once after the last one.
+   */
+  Duration getWatchQuietPeriod() {
+    return Duration.ofMillis(Math.max(1, watchQuietPeriod));
+  }
+
+  /** Number of runs after which the goal ends, {@code 0} watches until Maven is interrupted. */
+  int getWatchRuns() {
+    return watchRuns;
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class BenchmarkResultsTests {
+
+  private static String result(String mode, String score, String unit) {
+    return "[{\"jmhVersion\":\"1.21\",\"benchmark\":\"a.B.c\",\"mode\":\""
+        + mode
+        + "\",\"params\":{\"z\":\"1\",\"a\":\"x y\"},\"primaryMetric\":{\"score\":"
+        + score
+        + ",\"scoreError\":\"NaN\",\"scoreConfidence\":[1.0E2,-3],\"scoreUnit\":\""
+        + unit
+        + "\",\"rawData\":[[1.5,2.5]]},\"secondaryMetrics\":{}}]";
+  }
+
+  @Test
+  void parseJmhResult() throws IOException {
+    var results = BenchmarkResults.parse(result("avgt", "12.5", "us/op"));
+    var score = results.getScores().get("a.B.c(a=x y,z=1)");
+    assertEquals("avgt", score.mode);
+    assertEquals(12.5, score.value);
+    assertEquals("us/op", score.unit);
+  }
+
+  @Test
+  void parseMalformedResultFails() {
+    assertThrows(IOException.class, () -> BenchmarkResults.parse("[1]"));
+    assertThrows(IOException.class, () -> BenchmarkResults.parse("[{\"benchmark\":\"a\"}]"));
+    assertThrows(IOException.class, () -> BenchmarkResults.parse(result("avgt", "\"x\"", "s")));
+  }
+
+  @Test
+  void compareThroughputAndAverageTime() throws IOException {
+    var thrpt = BenchmarkResults.parse(result("thrpt", "150", "ops/s"));
+    var thrptBaseline = BenchmarkResults.parse(result("thrpt", "100", "ops/s"));
+    assertEquals(50.0, thrpt.compare(thrptBaseline).get(0).getImprovement(), 1e-9);
+
+    var avgt = BenchmarkResults.parse(result("avgt", "150", "us/op"));
+    var avgtBaseline = BenchmarkResults.parse(result("avgt", "100", "us/op"));
+    assertEquals(-50.0, avgt.compare(avgtBaseline).get(0).getImprovement(), 1e-9);
+
+    var other = BenchmarkResults.parse(result("avgt", "150", "ms/op"));
+    assertEquals(List.of(), other.compare(avgtBaseline));
+  }
+
+  @Test
+  void jsonParser() {
+    var json = "{\"s\":\"\\\"\\u0041\\n\",\"n\":-1.5e1,\"t\":true,\"f\":false,\"x\":null,\"l\":[]}";
+    var map = (Map<?, ?>) new BenchmarkResults.JsonParser(json).parse();
+    assertEquals("\"A\n", map.get("s"));
+    assertEquals(-15.0, map.get("n"));
+    assertEquals(true, map.get("t"));
+    assertEquals(false, map.get("f"));
+    assertEquals(null, map.get("x"));
+    assertEquals(List.of(), map.get("l"));
+    assertThrows(
+        IllegalArgumentException.class, () -> new BenchmarkResults.JsonParser("[1,").parse());
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class ClassDataSharingTests {
+
+  @Test
+  void reorderPathsPutsFilesBeforeDirectories() throws Exception {
+    var temp = Files.createTempDirectory("class-data-sharing-");
+    var classes = Files.createDirectories(temp.resolve("classes")).toString();
+    Files.write(temp.resolve("classes/log4j2-test.xml"), List.of("<Configuration/>"));
+    var a = createJar(temp.resolve("a.jar"), "a/A.class").toString();
+    var b = createJar(temp.resolve("b.jar"), "b/B.class").toString();
+    var path = String.join(File.pathSeparator, classes, a, b);
+    var command = new ArrayList<>(List.of("java", "--class-path", path, "Main", classes));
+    assertTrue(ClassDataSharing.reorderPaths(command, temp.resolve("cds")));
+    assertEquals(String.join(File.pathSeparator, a, b, classes), command.get(2));
+    assertEquals(classes, command.get(4));
+    ForkPool.deleteTree(temp);
+  }
+
+  @Test
+  void reorderPathsKeepsOrderIfJarShadowsDirectory() throws Exception {
+    var temp = Files.createTempDirectory("class-data-sharing-");
+    var classes = Files.createDirectories(temp.resolve("classes")).toString();
+    Files.write(temp.resolve("classes/log4j2-test.xml"), List.of("<Configuration/>"));
+    var a = createJar(temp.resolve("a.jar"), "log4j2-test.xml").toString();
+    var path = String.join(File.pathSeparator, classes, a);
+    var command = new ArrayList<>(List.of("java", "--class-path", path, "Main"));
+    assertFalse(ClassDataSharing.reorderPaths(command, temp.resolve("cds")));
+    assertEquals(path, command.get(2));
+    ForkPool.deleteTree(temp);
+  }
+
+  @Test
+  void reorderPathsReusesStoredDecision() throws Exception {
+    var temp = Files.createTempDirectory("class-data-sharing-");
+    var directory = temp.resolve("cds");
+    var classes = Files.createDirectories(temp.resolve("classes")).toString();
+    Files.write(temp.resolve("classes/log4j2-test.xml"), List.of("<Configuration/>"));
+    var a = createJar(temp.resolve("a.jar"), "log4j2-test.xml").toString();
+    var path = String.join(File.pathSeparator, classes, a);
+    var command = new ArrayList<>(List.of("java", "--class-path", path, "Main"));
+    assertFalse(ClassDataSharing.reorderPaths(command, directory));
+    try (var files = Files.list(directory)) {
+      var order = files.collect(Collectors.toList());
+      assertEquals(1, order.size());
+      assertTrue(order.get(0).toString().endsWith(".order"));
+      var lines = Files.readAllLines(order.get(0));
+      Files.write(order.get(0), List.of("false", lines.get(1)));
+    }
+    assertTrue(ClassDataSharing.reorderPaths(command, directory));
+    assertEquals(String.join(File.pathSeparator, a, classes), command.get(2));
+    ForkPool.deleteTree(temp);
+  }
+
+  @Test
+  void reorderPathsRecomputesDecisionIfDirectoryEntriesChanged() throws Exception {
+    var temp = Files.createTempDirectory("class-data-sharing-");
+    var directory = temp.resolve("cds");
+    var classes = Files.createDirectories(temp.resolve("classes")).toString();
+    Files.write(temp.resolve("classes/log4j2-test.xml"), List.of("<Configuration/>"));
+    var a = createJar(temp.resolve("a.jar"), "a/A.class").toString();
+    var path = String.join(File.pathSeparator, classes, a);
+    var command = new ArrayList<>(List.of("java", "--class-path", path, "Main"));
+    assertTrue(ClassDataSharing.reorderPaths(command, directory));
+    Files.createDirectories(temp.resolve("classes/a"));
+    Files.write(temp.resolve("classes/a/A.class"), new byte[] {1});
+    command = new ArrayList<>(List.of("java", "--class-path", path, "Main"));
+    assertFalse(ClassDataSharing.reorderPaths(command, directory));
+    assertEquals(path, command.get(2));
+    ForkPool.deleteTree(temp);
+  }
+
+  private static Path createJar(Path jar, String entry) throws Exception {
+    try (var out = new JarOutputStream(Files.newOutputStream(jar))) {
+      out.putNextEntry(new JarEntry(entry));
+      out.closeEntry();
+    }
+    return jar;
+  }
+
+  @Test
+  void modulePathIsNotSupported() {
+    var command = List.of("java", "--module-path", "mods", "--module", "foo");
+    assertFalse(ClassDataSharing.isSupported(command));
+  }
+
+  @Test
+  void argumentFileIsNotSupported() {
+    var java = ProcessHandle.current().info().command().orElse("java");
+    var args = Paths.get("target", "junit-platform", "console-launcher.args");
+    var command = List.of(java, "@" + args, "--module", "org.junit.platform.console");
+    assertFalse(ClassDataSharing.isSupported(command));
+  }
+}
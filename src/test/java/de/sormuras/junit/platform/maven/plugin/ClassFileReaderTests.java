@@ -0,0 +1,45 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class ClassFileReaderTests {
+
+  @Test
+  void readConstantPoolOfThisClass() throws Exception {
+    var name = getClass().getSimpleName() + ".class";
+    try (var stream = getClass().getResourceAsStream(name)) {
+      var reader = new ClassFileReader(stream);
+      var internal = getClass().getName().replace('.', '/');
+      assertTrue(reader.getClassNames().contains(internal));
+      assertTrue(reader.getStrings().contains("readConstantPoolOfThisClass"));
+      reader.getInput().readUnsignedShort(); // access flags
+      assertEquals(internal, reader.getClassName(reader.getInput().readUnsignedShort()));
+    }
+  }
+
+  @Test
+  void rejectNonClassFile() {
+    var stream = new ByteArrayInputStream(new byte[] {1, 2, 3, 4});
+    assertThrows(IOException.class, () -> new ClassFileReader(stream));
+  }
+}
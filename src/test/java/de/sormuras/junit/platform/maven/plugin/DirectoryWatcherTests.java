@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class DirectoryWatcherTests {
+
+  @Test
+  void changesInNestedAndNewDirectoriesAreCollected() throws Exception {
+    var root = Files.createTempDirectory("watch-");
+    var nested = Files.createDirectories(root.resolve("a"));
+    var missing = root.resolve("missing");
+    try (var watcher = new DirectoryWatcher(List.of(root, missing))) {
+      var writer =
+          new Thread(
+              () -> {
+                try {
+                  Files.write(nested.resolve("A.class"), new byte[] {1});
+                  Files.createDirectories(root.resolve("b/c"));
+                  Files.write(root.resolve("b/c/C.class"), new byte[] {2});
+                } catch (Exception e) {
+                  throw new AssertionError(e);
+                }
+              });
+      writer.start();
+      writer.join();
+      var changes = watcher.await(Duration.ofMillis(500));
+      var expected =
+          Set.of(nested.resolve("A.class"), root.resolve("b"), root.resolve("b/c/C.class"));
+      assertTrue(changes.containsAll(expected), changes::toString);
+    }
+  }
+
+  @Test
+  void rootsCreatedLaterAreWatched() throws Exception {
+    var temp = Files.createTempDirectory("watch-");
+    var root = temp.resolve("target/test-classes");
+    try (var watcher = new DirectoryWatcher(List.of(root))) {
+      Files.createDirectories(root.resolve("a"));
+      Files.write(root.resolve("a/A.class"), new byte[] {1});
+      var changes = watcher.await(Duration.ofMillis(500));
+      assertTrue(changes.contains(root.resolve("a/A.class")), changes::toString);
+      Files.write(root.resolve("a/B.class"), new byte[] {2});
+      changes = watcher.await(Duration.ofMillis(500));
+      assertTrue(changes.contains(root.resolve("a/B.class")), changes::toString);
+    }
+    ForkPool.deleteTree(temp);
+  }
+
+  @Test
+  void rootsDeletedAndRecreatedAreWatchedAgain() throws Exception {
+    var temp = Files.createTempDirectory("watch-");
+    var root = Files.createDirectories(temp.resolve("target/test-classes"));
+    Files.write(root.resolve("A.class"), new byte[] {1});
+    try (var watcher = new DirectoryWatcher(List.of(root))) {
+      ForkPool.deleteTree(temp.resolve("target"));
+      watcher.await(Duration.ofMillis(500));
+      Files.createDirectories(root);
+      Files.write(root.resolve("A.class"), new byte[] {2});
+      var changes = watcher.await(Duration.ofMillis(500));
+      assertTrue(changes.contains(root.resolve("A.class")), changes::toString);
+      Files.write(root.resolve("B.class"), new byte[] {3});
+      changes = watcher.await(Duration.ofMillis(500));
+      assertTrue(changes.contains(root.resolve("B.class")), changes::toString);
+    }
+    ForkPool.deleteTree(temp);
+  }
+}
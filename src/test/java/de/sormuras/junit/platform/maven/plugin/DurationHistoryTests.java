@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class DurationHistoryTests {
+
+  @Test
+  void recordSaveAndLoad() throws Exception {
+    var temp = Files.createTempDirectory("duration-history-");
+    var file = temp.resolve("history").resolve("durations.tsv");
+    var history = new DurationHistory(file).load();
+    assertTrue(history.isEmpty());
+    var report =
+        "<testsuite>"
+            + "<testcase name=\"a()\" classname=\"p.SlowTests\" time=\"1.5\"/>"
+            + "<testcase name=\"b()\" classname=\"p.SlowTests$NestedTests\" time=\"0.5\"/>"
+            + "<testcase name=\"c()\" classname=\"p.FastTests\" time=\"0.01\">"
+            + "<failure message=\"boom\"/>"
+            + "</testcase>"
+            + "</testsuite>";
+    Files.write(temp.resolve("TEST-junit-jupiter.xml"), List.of(report));
+    assertEquals(3, history.recordReports(temp, Instant.EPOCH));
+    history.save();
+
+    var loaded = new DurationHistory(file).load();
+    assertEquals(Duration.ofMillis(2000), loaded.getPercentile("p.SlowTests", 50).get());
+    assertEquals(Duration.ofMillis(10), loaded.getPercentile("p.FastTests", 50).get());
+    var names = List.of("p.FastTests", "p.NewTests", "p.SlowTests");
+    assertEquals(
+        List.of("p.NewTests", "p.SlowTests", "p.FastTests"), loaded.sortLongestFirst(names));
+    assertEquals(Set.of("p.FastTests"), loaded.getFailedClassNames());
+    assertEquals(
+        List.of("p.FastTests", "p.SlowTests", "p.NewTests"),
+        loaded.sortFailuresFirst(names, Set.of("p.SlowTests")));
+    ForkPool.deleteTree(temp);
+  }
+
+  @Test
+  void percentilesOfClassSamples() throws Exception {
+    var temp = Files.createTempDirectory("duration-history-");
+    var file = temp.resolve("durations.tsv");
+    var lines = new ArrayList<String>();
+    for (int i = 1; i <= 20; i++) {
+      lines.add("C\tp.SlowTests\t" + i * 100);
+      lines.add("C\tp.FastTests\t" + i);
+    }
+    lines.add("corrupt");
+    Files.write(file, lines);
+    var history = new DurationHistory(file).load();
+    // only the last 10 samples are kept: 1100..2000
+    assertEquals(Duration.ofMillis(1500), history.getPercentile("p.SlowTests", 50).get());
+    assertEquals(Duration.ofMillis(2000), history.getPercentile("p.SlowTests", 95).get());
+    assertEquals(Duration.ofMillis(15), history.getPercentile("p.FastTests", 50).get());
+    ForkPool.deleteTree(temp);
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class EventCollectorTests {
+
+  @Test
+  void failedContainerReachesFailFastThreshold() throws Exception {
+    try (var events = new EventCollector(new JUnitPlatformMojo(), 1)) {
+      var stop = new CountDownLatch(1);
+      events.onFailFast(stop::countDown);
+      var environment = new HashMap<String, String>();
+      events.addEnvironment(environment);
+      var port = Integer.parseInt(events.getJavaOption().replaceAll(".*=", ""));
+      try (var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+        var out = new DataOutputStream(socket.getOutputStream());
+        out.writeUTF(environment.get(EventStreamListener.TOKEN));
+        // a container failing in @BeforeAll, no test of it is ever started
+        out.writeByte(EventStreamListener.STARTED);
+        out.writeInt(0);
+        out.writeBoolean(false);
+        writeString(out, "FailingTests");
+        writeString(out, "FailingTests");
+        out.writeByte(EventStreamListener.FINISHED);
+        out.writeInt(0);
+        out.writeByte(EventCollector.Result.Status.FAILED.ordinal());
+        out.writeLong(0);
+        writeString(out, "java.lang.IllegalStateException: before all");
+        out.flush();
+        assertTrue(stop.await(10, TimeUnit.SECONDS));
+      }
+      assertTrue(events.isStopped());
+      assertEquals(1, events.getContainersFailed());
+      assertEquals(0, events.getTestsFailed());
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String string) throws IOException {
+    var bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.Test;
+
+class ForkArchiveTests {
+
+  @Test
+  void eventStreamArchiveHoldsOnlyTheListener() throws Exception {
+    var temp = Files.createTempDirectory("fork-archive-");
+    var jar = ForkArchive.eventStream(temp);
+    try (var zip = new ZipFile(jar.toFile())) {
+      var names = zip.stream().map(ZipEntry::getName).collect(Collectors.toList());
+      var expected =
+          List.of(
+              "META-INF/services/org.junit.platform.launcher.TestExecutionListener",
+              "de/sormuras/junit/platform/maven/plugin/EventStreamListener.class");
+      assertEquals(expected, names);
+    }
+    var modified = Files.getLastModifiedTime(jar);
+    Thread.sleep(10);
+    ForkArchive.eventStream(temp);
+    assertEquals(modified, Files.getLastModifiedTime(jar), "unchanged archive rewritten");
+    ForkPool.deleteTree(temp);
+  }
+
+  @Test
+  void daemonArchiveHoldsNoMavenDependentClasses() throws Exception {
+    var temp = Files.createTempDirectory("fork-archive-");
+    var jar = ForkArchive.daemon(temp.resolve("daemon.jar"));
+    try (var zip = new ZipFile(jar.toFile())) {
+      var names = zip.stream().map(ZipEntry::getName).collect(Collectors.toList());
+      var prefix = "de/sormuras/junit/platform/maven/plugin/";
+      assertTrue(names.contains(prefix + "Daemon.class"));
+      assertTrue(names.contains(prefix + "IsolatedLauncher.class"));
+      assertTrue(names.contains(prefix + "LaunchRequest.class"));
+      assertTrue(names.contains(prefix + "ForkWorker.class"));
+      assertFalse(names.contains(prefix + "JUnitPlatformMojo.class"));
+      assertFalse(names.contains(prefix + "DaemonClient.class"));
+    }
+    ForkPool.deleteTree(temp);
+  }
+}
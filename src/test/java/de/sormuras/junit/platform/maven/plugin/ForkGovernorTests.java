@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.OptionalDouble;
+import org.junit.jupiter.api.Test;
+
+class ForkGovernorTests {
+
+  private static final long GB = 1L << 30;
+
+  @Test
+  void slotsAreDerivedFromProcessors() {
+    var governor = new ForkGovernor(16, OptionalDouble.empty(), 64 * GB, GB, 0);
+    assertEquals(16, governor.getSlots());
+    assertEquals(1, governor.getProcessors());
+    assertEquals(3024, governor.getHeap() >> 20);
+  }
+
+  @Test
+  void slotsAreLimitedByMemoryAndCpuQuota() {
+    var memory = new ForkGovernor(16, OptionalDouble.empty(), 4 * GB, GB, 0);
+    assertEquals(4, memory.getSlots());
+    assertEquals(576, memory.getHeap() >> 20);
+    var quota = new ForkGovernor(16, OptionalDouble.of(2.5), 64 * GB, GB, 0);
+    assertEquals(3, quota.getSlots());
+    assertEquals(1, quota.getProcessors());
+  }
+
+  @Test
+  void explicitSlotsShareBudget() {
+    var governor = new ForkGovernor(16, OptionalDouble.empty(), 64 * GB, GB, 4);
+    assertEquals(4, governor.getSlots());
+    assertEquals(4, governor.getProcessors());
+    assertEquals(12096, governor.getHeap() >> 20);
+    assertEquals("4 concurrent forks, 12096 MB heap and 4 processors each", governor.toString());
+  }
+
+  @Test
+  void configuredJavaOptionsTakePrecedence() {
+    var governor = new ForkGovernor(8, OptionalDouble.empty(), 16 * GB, 0, 2);
+    assertEquals(
+        List.of("-Xmx6144m", "-XX:ActiveProcessorCount=4"), governor.createJavaOptions(List.of()));
+    assertEquals(
+        List.of("-XX:ActiveProcessorCount=4"), governor.createJavaOptions(List.of("-Xmx1g")));
+    assertEquals(
+        List.of(), governor.createJavaOptions(List.of("-Xmx1g", "-XX:ActiveProcessorCount=2")));
+  }
+
+  @Test
+  void governorsAreKeptPerSession() {
+    var session = new Object();
+    var governor = ForkGovernor.of(session, 3);
+    assertSame(governor, ForkGovernor.of(session, 5));
+    assertEquals(3, governor.getMaxForks());
+    assertEquals(3, governor.getSlots());
+    assertNotSame(governor, ForkGovernor.of(new Object(), 3));
+  }
+}
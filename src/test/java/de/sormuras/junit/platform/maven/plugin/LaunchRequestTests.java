@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LaunchRequestTests {
+
+  @Test
+  void writeAndReadYieldsEqualRequest() throws Exception {
+    var request =
+        new LaunchRequest(
+            List.of("main", "test", "lib.jar"),
+            List.of("foo"),
+            "foo",
+            "test",
+            List.of("org.junit.jupiter.api"),
+            List.of("org.junit.platform.commons"),
+            List.of("--details", "tree", "--select-class", "foo.FooTests"));
+    var bytes = new ByteArrayOutputStream();
+    request.write(new DataOutputStream(bytes));
+    var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    var copy = LaunchRequest.read(in);
+    assertEquals(request.toString(), copy.toString());
+    assertTrue(copy.isModular());
+    assertTrue(copy.isPatched());
+  }
+
+  @Test
+  void classPathRequestIsNeitherModularNorPatched() {
+    var request =
+        new LaunchRequest(List.of("lib.jar"), List.of(), "", "", List.of(), List.of(), List.of());
+    assertFalse(request.isModular());
+    assertFalse(request.isPatched());
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.junit.jupiter.api.Test;
+
+class MergedClassPathTests {
+
+  @Test
+  void mergeJarsWithDistinctResources() throws Exception {
+    var temp = Files.createTempDirectory("merged-class-path-");
+    var a = createJar(temp.resolve("a.jar"), null, "a/A.class", "a.properties").toString();
+    var b = createJar(temp.resolve("b.jar"), null, "b/B.class", "b.properties").toString();
+    var merged = new MergedClassPath(new JUnitPlatformMojo(), temp.resolve("merged"));
+    var elements = merged.merge(List.of(a, b));
+    assertEquals(1, elements.size());
+    try (var jar = new JarFile(elements.get(0))) {
+      assertTrue(jar.getEntry("a.properties") != null);
+      assertTrue(jar.getEntry("b/B.class") != null);
+    }
+    assertEquals(elements, merged.merge(List.of(a, b)));
+    ForkPool.deleteTree(temp);
+  }
+
+  @Test
+  void keepJarWithDuplicateResource() throws Exception {
+    var temp = Files.createTempDirectory("merged-class-path-");
+    var a = createJar(temp.resolve("a.jar"), null, "a/A.class", "reference.conf").toString();
+    var b = createJar(temp.resolve("b.jar"), null, "b/B.class").toString();
+    var c = createJar(temp.resolve("c.jar"), null, "c/C.class", "reference.conf").toString();
+    var d = createJar(temp.resolve("d.jar"), null, "d/D.class").toString();
+    var merged = new MergedClassPath(new JUnitPlatformMojo(), temp.resolve("merged"));
+    var elements = merged.merge(List.of(a, b, c, d));
+    assertEquals(3, elements.size());
+    assertTrue(elements.get(0).contains("merged-"));
+    assertEquals(c, elements.get(1));
+    assertEquals(d, elements.get(2));
+    ForkPool.deleteTree(temp);
+  }
+
+  @Test
+  void keepJarWithClassPathOrPackageAttributes() throws Exception {
+    var temp = Files.createTempDirectory("merged-class-path-");
+    var manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, "lib/x.jar");
+    var a = createJar(temp.resolve("a.jar"), manifest, "a/A.class").toString();
+    manifest.getMainAttributes().remove(Attributes.Name.CLASS_PATH);
+    manifest.getMainAttributes().put(Attributes.Name.IMPLEMENTATION_VERSION, "1.0");
+    var b = createJar(temp.resolve("b.jar"), manifest, "b/B.class").toString();
+    var merged = new MergedClassPath(new JUnitPlatformMojo(), temp.resolve("merged"));
+    assertEquals(List.of(a, b), merged.merge(List.of(a, b)));
+    ForkPool.deleteTree(temp);
+  }
+
+  private static Path createJar(Path jar, Manifest manifest, String... entries) throws Exception {
+    var stream = Files.newOutputStream(jar);
+    var manifestOrEmpty = manifest == null ? new Manifest() : manifest;
+    try (var out = new JarOutputStream(stream, manifestOrEmpty)) {
+      for (var entry : entries) {
+        out.putNextEntry(new JarEntry(entry));
+        out.write(entry.getBytes());
+        out.closeEntry();
+      }
+    }
+    return jar;
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.module.ModuleDescriptor;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class ModuleGraphTests {
+
+  @Test
+  void resolveExplicitModuleAndFindAutomaticModule() {
+    var jars = Paths.get("target", "test-classes", "jars");
+    var paths =
+        List.of(
+            jars.resolve("slf4j-api-1.8.0-beta2.jar").toString(),
+            jars.resolve("junit-platform-commons-1.2.0.jar").toString());
+    var graph = ModuleGraph.resolve(paths, Set.of("org.slf4j")).orElseThrow();
+    assertTrue(graph.contains("org.slf4j"));
+    assertTrue(graph.reads("org.slf4j", "java.base"));
+    assertFalse(graph.reads("org.slf4j", "org.junit.platform.commons"));
+    assertTrue(graph.isResolvable("org.junit.platform.commons"));
+    assertFalse(graph.isResolvable("org.slf4j"));
+    assertFalse(graph.isResolvable("does.not.exist"));
+  }
+
+  @Test
+  void unresolvableRootYieldsEmptyGraph() {
+    assertFalse(ModuleGraph.resolve(List.of(), Set.of("does.not.exist")).isPresent());
+  }
+
+  @Test
+  void opensOnlyPackagesNotAlreadyOpened() {
+    var packages = Set.of("foo", "foo.api", "foo.internal");
+    var descriptor =
+        ModuleDescriptor.newModule("foo")
+            .packages(packages)
+            .opens("foo.api")
+            .opens("foo.internal", Set.of("other"))
+            .build();
+    assertEquals(Set.of("foo", "foo.internal"), ModuleGraph.opens(descriptor, packages, "x"));
+    assertEquals(Set.of("foo"), ModuleGraph.opens(descriptor, packages, "other"));
+    var open = ModuleDescriptor.newOpenModule("foo").packages(packages).build();
+    assertEquals(Set.of(), ModuleGraph.opens(open, packages, "x"));
+  }
+
+  @Test
+  void currentRuntimeIsDetected() {
+    var command = ProcessHandle.current().info().command().orElseThrow();
+    assertTrue(ModuleGraph.isCurrentRuntime(command));
+    assertFalse(ModuleGraph.isCurrentRuntime(Paths.get("does", "not", "exist").toString()));
+  }
+
+  @Test
+  void quoteArgumentsForArgumentFiles() {
+    assertEquals("--add-modules", JUnitPlatformStarter.quoteArgument("--add-modules"));
+    assertEquals("\"a b\"", JUnitPlatformStarter.quoteArgument("a b"));
+    assertEquals("\"C:\\\\x\"", JUnitPlatformStarter.quoteArgument("C:\\x"));
+    assertEquals("\"\"", JUnitPlatformStarter.quoteArgument(""));
+  }
+}
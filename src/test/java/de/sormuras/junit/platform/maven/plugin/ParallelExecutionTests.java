@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.OptionalDouble;
+import org.junit.jupiter.api.Test;
+
+class ParallelExecutionTests {
+
+  @Test
+  void processorsAreSharedByForks() {
+    assertEquals(8, new ParallelExecution(8, OptionalDouble.empty(), 1, 0).getParallelism());
+    assertEquals(2, new ParallelExecution(8, OptionalDouble.empty(), 4, 0).getParallelism());
+    assertEquals(1, new ParallelExecution(2, OptionalDouble.empty(), 4, 0).getParallelism());
+  }
+
+  @Test
+  void cpuQuotaLimitsProcessors() {
+    assertEquals(2, new ParallelExecution(16, OptionalDouble.of(1.5), 1, 0).getParallelism());
+    assertEquals(4, new ParallelExecution(4, OptionalDouble.of(32), 1, 0).getParallelism());
+  }
+
+  @Test
+  void explicitParallelismWins() {
+    var execution = new ParallelExecution(16, OptionalDouble.of(2), 4, 3);
+    assertEquals(3, execution.getParallelism());
+    var configuration = execution.createConfiguration("concurrent");
+    assertEquals("true", configuration.get("junit.jupiter.execution.parallel.enabled"));
+    assertEquals("concurrent", configuration.get("junit.jupiter.execution.parallel.mode.default"));
+    assertEquals(
+        "3", configuration.get("junit.jupiter.execution.parallel.config.fixed.parallelism"));
+  }
+
+  @Test
+  void divideQuotaByPeriod() {
+    assertEquals(1.5, ControlGroup.divide("150000", "100000").getAsDouble());
+    assertFalse(ControlGroup.divide("max", "100000").isPresent());
+    assertFalse(ControlGroup.divide("-1", "100000").isPresent());
+  }
+}
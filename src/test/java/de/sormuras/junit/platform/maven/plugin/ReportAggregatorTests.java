@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
+
+class ReportAggregatorTests {
+
+  @Test
+  void reportsOfAllModulesAreMerged() throws Exception {
+    var temp = Files.createTempDirectory("report-aggregator-");
+    var a = Files.createDirectories(temp.resolve("a/reports"));
+    var b = Files.createDirectories(temp.resolve("b/reports/shard-1"));
+    Files.write(
+        a.resolve("TEST-junit-jupiter.xml"),
+        List.of(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>",
+            "<testsuite name=\"JUnit Jupiter\" tests=\"2\" time=\"1.5\">",
+            "<testcase name=\"a()\" classname=\"A\" time=\"1.0\"/>",
+            "<testcase name=\"b()\" classname=\"A\" time=\"0.4\">",
+            "<failure message=\"&lt;boom&gt;\">trace</failure><system-out><![CDATA[out]]></system-out>",
+            "</testcase>",
+            "</testsuite>"));
+    Files.write(
+        b.resolve("TEST-junit-vintage.xml"),
+        List.of(
+            "<testsuites><testsuite name=\"JUnit Vintage\">",
+            "<testcase name=\"c\" classname=\"B\" time=\"0.25\"><skipped/></testcase>",
+            "</testsuite></testsuites>"));
+    var modules = new LinkedHashMap<String, Path>();
+    modules.put("a", a);
+    modules.put("b", temp.resolve("b/reports"));
+    modules.put("c", temp.resolve("c/reports"));
+    var file = temp.resolve("TEST-aggregate.xml");
+    var totals = new ReportAggregator(temp.resolve("aggregate")).aggregate(modules, file, "all");
+
+    assertEquals(2, totals.size());
+    assertEquals("a: 2 tests, 1 failures, 0 errors, 0 skipped, 1.500 s", totals.get(0).toString());
+    assertEquals("b: 1 tests, 0 failures, 0 errors, 1 skipped, 0.250 s", totals.get(1).toString());
+    var document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file.toFile());
+    var root = document.getDocumentElement();
+    assertEquals("testsuites", root.getTagName());
+    assertEquals("3", root.getAttribute("tests"));
+    assertEquals("1", root.getAttribute("failures"));
+    assertEquals("1.750", root.getAttribute("time"));
+    var suites = root.getElementsByTagName("testsuite");
+    assertEquals(2, suites.getLength());
+    assertEquals("a/JUnit Jupiter", ((Element) suites.item(0)).getAttribute("name"));
+    assertEquals("b/JUnit Vintage", ((Element) suites.item(1)).getAttribute("name"));
+    assertEquals(
+        "<boom>", ((Element) root.getElementsByTagName("failure").item(0)).getAttribute("message"));
+    assertTrue(AggregateMojo.createSummary(totals).get(0).startsWith("Tests run: 3, Failures: 1"));
+    ForkPool.deleteTree(temp);
+  }
+}
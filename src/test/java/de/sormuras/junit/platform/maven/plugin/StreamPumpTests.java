@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+
+class StreamPumpTests {
+
+  private static ByteArrayInputStream stream(String... lines) {
+    var text = String.join("\n", lines);
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static Consumer<String> fail() {
+    return message -> {
+      throw new AssertionError(message);
+    };
+  }
+
+  @Test
+  void liveModePassesEachLineAndWritesFile() throws Exception {
+    var file = Files.createTempFile("pump-", ".log");
+    var lines = new ArrayList<String>();
+    var pump = new StreamPump(stream("1", "2", "3"), file, lines::add, 0, fail());
+    pump.run();
+    assertTrue(pump.isLive());
+    assertEquals(List.of("1", "2", "3"), lines);
+    assertEquals(List.of(), pump.getTail());
+    assertEquals(List.of("1", "2", "3"), Files.readAllLines(file));
+  }
+
+  @Test
+  void tailModeKeepsOnlyLastLinesAndWritesFile() throws Exception {
+    var file = Files.createTempFile("pump-", ".log");
+    var lines = new ArrayList<String>();
+    var pump = new StreamPump(stream("1", "2", "3", "4", "5"), file, lines::add, 2, fail());
+    pump.run();
+    assertEquals(List.of(), lines);
+    assertEquals(List.of("4", "5"), pump.getTail());
+    assertEquals(List.of("1", "2", "3", "4", "5"), Files.readAllLines(file));
+  }
+
+  @Test
+  void writeFailureKeepsDrainingAndWarnsOnce() throws Exception {
+    var directory = Files.createTempDirectory("pump-");
+    var lines = new ArrayList<String>();
+    var warnings = new ArrayList<String>();
+    var pump = new StreamPump(stream("1", "2", "3"), directory, lines::add, 0, warnings::add);
+    pump.run();
+    assertEquals(List.of("1", "2", "3"), lines);
+    assertEquals(1, warnings.size());
+  }
+
+  @Test
+  void outputStreamSplitsLinesAfterWriterThreadEnded() throws Exception {
+    var file = Files.createTempFile("pump-", ".log");
+    var lines = new ArrayList<String>();
+    var pump = new StreamPump(file, lines::add, 0, fail());
+    var out = new PrintStream(pump.openOutputStream(), true, "UTF-8");
+    var writer = new Thread(() -> out.print("1\n2\r\n3\r4\n\u00e4"));
+    writer.start();
+    writer.join();
+    out.close();
+    out.println("dropped");
+    assertEquals(List.of("1", "2", "3", "4", "\u00e4"), lines);
+    assertEquals(List.of("1", "2", "3", "4", "\u00e4"), Files.readAllLines(file));
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import java.nio.file.Path;
+import java.util.List;
+import org.apache.maven.project.MavenProject;
+
+/** Mojo of a project below the given base directory, configured with default values. */
+class StubMojo extends JUnitPlatformMojo {
+
+  final MavenProject project = new MavenProject();
+  final Path target;
+  final Path classes;
+  final Path testClasses;
+  List<String> tags = List.of();
+
+  StubMojo(Path base) {
+    target = base.resolve("target");
+    classes = target.resolve("classes");
+    testClasses = target.resolve("test-classes");
+    project.getBuild().setDirectory(target.toString());
+    project.getBuild().setOutputDirectory(classes.toString());
+    project.getBuild().setTestOutputDirectory(testClasses.toString());
+  }
+
+  @Override
+  MavenProject getMavenProject() {
+    return project;
+  }
+
+  @Override
+  String getReports() {
+    return "";
+  }
+
+  @Override
+  List<String> getTags() {
+    return tags;
+  }
+
+  @Override
+  String getVersion(String key) {
+    return "1";
+  }
+}
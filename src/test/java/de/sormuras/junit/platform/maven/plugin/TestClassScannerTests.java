@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class TestClassScannerTests {
+
+  @Test
+  void scanTestClassesOfThisProject() {
+    var classes = new TestClassScanner().scan(Paths.get("target", "test-classes"));
+    assertTrue(classes.contains(ModulesTests.class.getName()));
+    assertTrue(classes.contains(TestClassScannerTests.class.getName()));
+    assertFalse(classes.stream().anyMatch(name -> name.contains("$")));
+  }
+
+  @Test
+  void scanNonExistingDirectoryYieldsEmptyList() {
+    assertTrue(new TestClassScanner().scan(Paths.get("does", "not", "exist")).isEmpty());
+  }
+
+  @Test
+  void scanTestClassesOfThisProjectFilteredByTags() {
+    var pattern = TestClassScanner.DEFAULT_CLASS_NAME_PATTERN;
+    var scanner = new TestClassScanner(pattern, List.of("(fast | method) & !slow"));
+    var classes = scanner.scan(Paths.get("target", "test-classes"));
+    assertEquals(List.of(TestClassScannerTests.class.getName()), classes);
+    assertTrue(scanner.getScannedCount() > 1);
+  }
+
+  @Test
+  void readTagsOfComposedAnnotationAndMethods() throws Exception {
+    var path = Paths.get("target", "test-classes", Tagged.class.getName().replace('.', '/'));
+    var file = TestClassScanner.read(Files.readAllBytes(Paths.get(path + ".class")));
+    assertEquals(Set.of("method"), file.tags);
+    assertTrue(file.annotations.contains(Fast.class.getName()));
+    assertTrue(file.member);
+    var fast = Paths.get(path.toString().replace("Tagged", "Fast") + ".class");
+    assertEquals(Set.of("fast"), TestClassScanner.read(Files.readAllBytes(fast)).tags);
+  }
+
+  @Test
+  void tagExpressionIsSatisfiableBySubsetOfTags() {
+    var expression = new TestClassScanner.TagExpression("(a | b) & !c");
+    assertTrue(expression.isSatisfiable(Set.of("a")));
+    assertTrue(expression.isSatisfiable(Set.of("b", "c")));
+    assertFalse(expression.isSatisfiable(Set.of("c")));
+    assertFalse(expression.isSatisfiable(Set.of()));
+    assertTrue(new TestClassScanner.TagExpression("!c").isSatisfiable(Set.of("c")));
+  }
+
+  @Test
+  void unsupportedTagExpressionsAreRejected() {
+    var expressions = List.of("a &", "(a", "any()", "a b");
+    for (var expression : expressions) {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> new TestClassScanner.TagExpression(expression),
+          expression);
+    }
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new TestClassScanner(Pattern.compile(".*"), List.of("none()")));
+  }
+
+  @Test
+  void classNameOfRelativePath() {
+    assertEquals("a.b.C", TestClassScanner.toClassName(Paths.get("a", "b", "C.class")));
+  }
+
+  @Retention(RetentionPolicy.RUNTIME)
+  @Tag("fast")
+  @interface Fast {}
+
+  @Fast
+  class Tagged {
+
+    @Tag("method")
+    void method() {}
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class TestImpactAnalysisTests {
+
+  private static final String PACKAGE = TestImpactAnalysis.class.getPackageName();
+  private static final String DIGESTS = PACKAGE + ".Digests";
+  private static final String SHARDS = PACKAGE + ".TestShards";
+  private static final String DIGESTS_TESTS = PACKAGE + ".DigestsTests";
+  private static final String SHARDS_TESTS = PACKAGE + ".TestShardsTests";
+  private static final String MODULES_TESTS = PACKAGE + ".ModulesTests";
+  private static final List<String> TEST_CLASSES = List.of(DIGESTS_TESTS, SHARDS_TESTS);
+
+  @Test
+  void readDependenciesOfThisClass() throws Exception {
+    var name = getClass().getSimpleName() + ".class";
+    try (var stream = getClass().getResourceAsStream(name)) {
+      var dependencies = TestImpactAnalysis.readDependencies(stream);
+      assertTrue(dependencies.contains(TestImpactAnalysis.class.getName()));
+      assertTrue(dependencies.contains(Test.class.getName()), "annotation type");
+      assertTrue(dependencies.contains(Exception.class.getName()), "thrown type");
+      assertFalse(dependencies.contains("de.sormuras.junit.platform.maven.plugin.Daemon"));
+    }
+  }
+
+  @Test
+  void firstRunIsNotSelective() throws Exception {
+    var temp = Files.createTempDirectory("test-impact-analysis-");
+    var mojo = createProject(temp);
+
+    var analysis = analyze(mojo);
+    assertFalse(analysis.isSelective());
+    var all = Set.of(DIGESTS, SHARDS, DIGESTS_TESTS, SHARDS_TESTS);
+    assertEquals(all, analysis.getChangedClasses());
+    assertEquals(TEST_CLASSES, analysis.getAffectedTestClasses(TEST_CLASSES));
+    ForkPool.deleteTree(temp);
+  }
+
+  @Test
+  void unchangedClassFilesAreTakenFromTheIndex() throws Exception {
+    var temp = Files.createTempDirectory("test-impact-analysis-");
+    var mojo = createProject(temp);
+    analyze(mojo).save();
+
+    // same size and modification time, but no longer a class file: must not be parsed again
+    var file = file(mojo.classes, SHARDS);
+    var modified = Files.getLastModifiedTime(file);
+    Files.write(file, new byte[(int) Files.size(file)]);
+    Files.setLastModifiedTime(file, modified);
+
+    var analysis = analyze(mojo);
+    assertTrue(analysis.isSelective());
+    assertTrue(analysis.getChangedClasses().isEmpty());
+    assertTrue(analysis.getAffectedTestClasses(TEST_CLASSES).isEmpty());
+    ForkPool.deleteTree(temp);
+  }
+
+  @Test
+  void changedClassAffectsTestClassesTransitively() throws Exception {
+    var temp = Files.createTempDirectory("test-impact-analysis-");
+    var mojo = createProject(temp);
+    analyze(mojo).save();
+
+    // TestShardsTests -> TestShards -> Digests
+    var other = Paths.get("target", "classes").resolve(Modules.class.getName().replace('.', '/'));
+    Files.copy(Paths.get(other + ".class"), file(mojo.classes, DIGESTS), REPLACE_EXISTING);
+
+    var analysis = analyze(mojo);
+    assertTrue(analysis.isSelective());
+    assertEquals(Set.of(DIGESTS), analysis.getChangedClasses());
+    assertEquals(TEST_CLASSES, analysis.getAffectedTestClasses(TEST_CLASSES));
+    ForkPool.deleteTree(temp);
+  }
+
+  @Test
+  void vanishedClassCountsAsChanged() throws Exception {
+    var temp = Files.createTempDirectory("test-impact-analysis-");
+    var mojo = createProject(temp);
+    analyze(mojo).save();
+
+    Files.delete(file(mojo.classes, SHARDS));
+
+    var analysis = analyze(mojo);
+    assertTrue(analysis.isSelective());
+    assertEquals(Set.of(SHARDS), analysis.getChangedClasses());
+    assertEquals(List.of(SHARDS_TESTS), analysis.getAffectedTestClasses(TEST_CLASSES));
+    ForkPool.deleteTree(temp);
+  }
+
+  @Test
+  void memberClassesCountAsTheirTopLevelClass() throws Exception {
+    var temp = Files.createTempDirectory("test-impact-analysis-");
+    var mojo = createProject(temp);
+    var member = file(mojo.testClasses, MODULES_TESTS + "$Member");
+    Files.copy(file(mojo.testClasses, SHARDS_TESTS), member);
+    analyze(mojo).save();
+
+    Files.write(file(mojo.classes, SHARDS), new byte[] {0}, APPEND);
+
+    var analysis = analyze(mojo);
+    var nested = MODULES_TESTS + "$Nested";
+    var testClasses = List.of(MODULES_TESTS, nested, DIGESTS_TESTS + "$Nested");
+    assertEquals(List.of(MODULES_TESTS, nested), analysis.getAffectedTestClasses(testClasses));
+    ForkPool.deleteTree(temp);
+  }
+
+  @Test
+  void changedConfigurationIsNotSelective() throws Exception {
+    var temp = Files.createTempDirectory("test-impact-analysis-");
+    var mojo = createProject(temp);
+    analyze(mojo).save();
+
+    mojo.tags = List.of("fast");
+
+    var analysis = analyze(mojo);
+    assertFalse(analysis.isSelective());
+    assertTrue(analysis.getChangedClasses().isEmpty());
+    assertEquals(TEST_CLASSES, analysis.getAffectedTestClasses(TEST_CLASSES));
+    ForkPool.deleteTree(temp);
+  }
+
+  private static StubMojo createProject(Path temp) throws IOException {
+    var mojo = new StubMojo(temp);
+    for (var name : List.of(DIGESTS, SHARDS)) {
+      Files.createDirectories(file(mojo.classes, name).getParent());
+      Files.copy(file(Paths.get("target", "classes"), name), file(mojo.classes, name));
+    }
+    for (var name : List.of(DIGESTS_TESTS, SHARDS_TESTS)) {
+      Files.createDirectories(file(mojo.testClasses, name).getParent());
+      Files.copy(file(Paths.get("target", "test-classes"), name), file(mojo.testClasses, name));
+    }
+    return mojo;
+  }
+
+  private static Path file(Path root, String name) {
+    return root.resolve(name.replace('.', '/') + ".class");
+  }
+
+  private static TestImpactAnalysis analyze(StubMojo mojo) throws Exception {
+    var analysis = new TestImpactAnalysis(mojo, mojo.target.resolve("impact"));
+    analysis.update();
+    return analysis;
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.sormuras.junit.platform.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class TestShardsTests {
+
+  @Test
+  void recordedDurationsAreBalanced() throws Exception {
+    var temp = Files.createTempDirectory("test-shards-");
+    var file = temp.resolve("durations.tsv");
+    Files.write(
+        file, List.of("C\tA\t900", "C\tB\t600", "C\tC\t500", "C\tD\t400", "C\tE\t100", "C\tX\t1"));
+    var history = new DurationHistory(file).load();
+    var shards = new TestShards(2, Optional.of(history));
+    var partition = shards.partition(List.of("A", "B", "C", "D", "E"));
+    assertEquals(List.of(List.of("A", "D"), List.of("B", "C", "E")), partition);
+    assertEquals(Duration.ofMillis(1300), shards.estimate(partition.get(0)));
+    assertEquals(Duration.ofMillis(1200), shards.estimate(partition.get(1)));
+    ForkPool.deleteTree(temp);
+  }
+
+  @Test
+  void unknownClassesAreHashed() {
+    var names = new ArrayList<String>();
+    for (int i = 0; i < 100; i++) {
+      names.add("p.Test" + i);
+    }
+    var shards = new TestShards(8, Optional.empty());
+    var partition = shards.partition(names);
+    assertEquals(partition, shards.partition(names));
+    var all = new ArrayList<String>();
+    partition.forEach(all::addAll);
+    all.sort(null);
+    var sorted = new ArrayList<>(names);
+    sorted.sort(null);
+    assertEquals(sorted, all);
+    partition.forEach(shard -> assertTrue(shard.size() > 0, partition::toString));
+    assertEquals(List.of("p.Test0"), partition.get(TestShards.hash("p.Test0", 8)).subList(0, 1));
+  }
+
+  @Test
+  void digestCoversAllPartitionInputs() throws Exception {
+    var temp = Files.createTempDirectory("test-shards-");
+    var file = temp.resolve("durations.tsv");
+    Files.write(file, List.of("C\tA\t900"));
+    var history = new DurationHistory(file).load();
+    var names = List.of("A", "B");
+    var digest = new TestShards(2, Optional.empty()).digest(names);
+    assertEquals(digest, new TestShards(2, Optional.empty()).digest(List.of("B", "A")));
+    assertNotEquals(digest, new TestShards(3, Optional.empty()).digest(names));
+    assertNotEquals(digest, new TestShards(2, Optional.empty()).digest(List.of("A")));
+    assertNotEquals(digest, new TestShards(2, Optional.of(history)).digest(names));
+    ForkPool.deleteTree(temp);
+  }
+}